@@ -0,0 +1,67 @@
+package benchmarks;
+
+import java.util.Random;
+
+/**
+ * Address streams the benchmarks are run with. All of them stay within a footprint (in bytes), and are
+ * generated once, before measuring, with a fixed seed.
+ */
+public enum AddressPattern {
+	// Consecutive words
+	SEQUENTIAL,
+	// One word every STRIDE bytes (a new block on every access for blocks up to STRIDE bytes)
+	STRIDED,
+	// Uniformly random words
+	RANDOM,
+	// A linked list of NODE byte nodes in random order, followed from node to node (like a pointer chase,
+	// every access depends on the previous one and there is no locality to exploit)
+	POINTER_CHASING;
+
+	private final static int STRIDE = 128;
+	private final static int NODE = 64;
+	private final static long SEED = 42;
+
+	/**
+	 * Generates the addresses of the pattern.
+	 *
+	 * @param length Number of addresses
+	 * @param footprint Bytes the addresses are spread over, a power of 2 not smaller than NODE
+	 */
+	public int[] generate(int length, int footprint) {
+		int[] addresses = new int[length];
+		Random random = new Random(SEED);
+		switch (this) {
+		case SEQUENTIAL:
+			for (int i = 0; i < length; i++)
+				addresses[i] = (i << 2) & (footprint - 1);
+			break;
+		case STRIDED:
+			for (int i = 0; i < length; i++)
+				addresses[i] = (int) (((long) i * STRIDE) & (footprint - 1));
+			break;
+		case RANDOM:
+			for (int i = 0; i < length; i++)
+				addresses[i] = random.nextInt(footprint) & ~3;
+			break;
+		case POINTER_CHASING:
+			// Sattolo's shuffle gives a single cycle over all the nodes
+			int nodes = footprint / NODE;
+			int[] next = new int[nodes];
+			for (int i = 0; i < nodes; i++)
+				next[i] = i;
+			for (int i = nodes - 1; i > 0; i--) {
+				int j = random.nextInt(i);
+				int tmp = next[i];
+				next[i] = next[j];
+				next[j] = tmp;
+			}
+			int node = 0;
+			for (int i = 0; i < length; i++) {
+				addresses[i] = node * NODE;
+				node = next[node];
+			}
+			break;
+		}
+		return addresses;
+	}
+}
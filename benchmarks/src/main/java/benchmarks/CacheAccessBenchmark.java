@@ -0,0 +1,86 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import memory.MainMemory;
+import memory.cache.Associativity;
+import memory.cache.Cache;
+import memory.cache.CacheInfo;
+import memory.cache.FactoryCache;
+
+/**
+ * Cost of an access to a single cache (in front of a main memory), for every type of cache, several sizes and
+ * every address pattern. The three ways to access are measured: access() (which builds a MemoryResults),
+ * accessPacked() and accessBatch().
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheAccessBenchmark {
+
+	// Biggest cache_size (the constant of @OperationsPerInvocation can not depend on the parameters)
+	private final static int MAX_CACHE_SIZE = 262144;
+
+	// Enough words for SEQUENTIAL to go once over twice the biggest cache (the smaller ones are gone over
+	// several times)
+	private final static int ADDRESSES = 2 * MAX_CACHE_SIZE / 4;
+
+	@Param({"DIRECT_MAPPED", "SET_ASSOCIATIVE_2WAY", "SET_ASSOCIATIVE_8WAY", "FULLY_ASSOCIATIVE"})
+	public Associativity associativity;
+
+	@Param({"4096", "262144"})
+	public int cache_size;
+
+	@Param({"SEQUENTIAL", "STRIDED", "RANDOM", "POINTER_CHASING"})
+	public AddressPattern pattern;
+
+	private Cache cache;
+	private int[] addresses;
+
+	@Setup
+	public void setup() {
+		this.cache = FactoryCache.createCache(new CacheInfo(32, this.cache_size, 10, this.associativity));
+		this.cache.setNextLevel(new MainMemory(100));
+		// Twice the size of the cache, so that every pattern has misses
+		this.addresses = this.pattern.generate(ADDRESSES, 2 * this.cache_size);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ADDRESSES)
+	public void access(Blackhole blackhole) {
+		for (int address : this.addresses)
+			blackhole.consume(this.cache.access(address));
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ADDRESSES)
+	public long accessPacked() {
+		long sum = 0;
+		for (int address : this.addresses)
+			sum += this.cache.accessPacked(address);
+		return sum;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ADDRESSES)
+	public long accessBatch() {
+		return this.cache.accessBatch(this.addresses, 0, ADDRESSES, null);
+	}
+}
@@ -0,0 +1,56 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import memory.MainMemory;
+import memory.cache.Associativity;
+import memory.cache.Cache;
+import memory.cache.CacheEntry;
+import memory.cache.CacheInfo;
+import memory.cache.FactoryCache;
+
+/**
+ * Time to get the contents of a full cache with cacheToArray() (as the GUI does to show them), for every
+ * type of cache and several sizes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheToArrayBenchmark {
+
+	@Param({"DIRECT_MAPPED", "SET_ASSOCIATIVE_8WAY", "FULLY_ASSOCIATIVE"})
+	public Associativity associativity;
+
+	@Param({"4096", "65536", "1048576"})
+	public int cache_size;
+
+	private Cache cache;
+
+	@Setup
+	public void setup() {
+		this.cache = FactoryCache.createCache(new CacheInfo(32, this.cache_size, 10, this.associativity));
+		this.cache.setNextLevel(new MainMemory(100));
+		for (int address : AddressPattern.RANDOM.generate(4 * this.cache_size / 32, 4 * this.cache_size))
+			this.cache.accessPacked(address);
+	}
+
+	@Benchmark
+	public CacheEntry[] cacheToArray() {
+		return this.cache.cacheToArray();
+	}
+}
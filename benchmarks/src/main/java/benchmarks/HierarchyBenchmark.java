@@ -0,0 +1,74 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import memory.MemoryHierarchy;
+import memory.cache.Associativity;
+import memory.cache.CacheInfo;
+
+/**
+ * Cost of an access to a MemoryHierarchy of 1, 2 and 3 levels (a typical 32K L1, 256K L2 and 4M L3), for
+ * every address pattern over a 16M footprint.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HierarchyBenchmark {
+
+	private final static int ADDRESSES = 1 << 16;
+	private final static int FOOTPRINT = 1 << 24;
+
+	@Param({"1", "2", "3"})
+	public int depth;
+
+	@Param({"SEQUENTIAL", "STRIDED", "RANDOM", "POINTER_CHASING"})
+	public AddressPattern pattern;
+
+	private MemoryHierarchy hierarchy;
+	private int[] addresses;
+
+	@Setup
+	public void setup() {
+		CacheInfo L1 = new CacheInfo(64, 1 << 15, 1, Associativity.SET_ASSOCIATIVE_8WAY);
+		CacheInfo L2 = new CacheInfo(64, 1 << 18, 4, Associativity.SET_ASSOCIATIVE_8WAY);
+		CacheInfo L3 = new CacheInfo(64, 1 << 22, 12, Associativity.SET_ASSOCIATIVE_16WAY);
+		if (this.depth == 1)
+			this.hierarchy = new MemoryHierarchy(L1, 100);
+		else if (this.depth == 2)
+			this.hierarchy = new MemoryHierarchy(L1, L2, 100);
+		else
+			this.hierarchy = new MemoryHierarchy(L1, L2, L3, 100);
+		this.addresses = this.pattern.generate(ADDRESSES, FOOTPRINT);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ADDRESSES)
+	public long accessPacked() {
+		long sum = 0;
+		for (int address : this.addresses)
+			sum += this.hierarchy.accessPacked(address);
+		return sum;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ADDRESSES)
+	public long accessBatch() {
+		return this.hierarchy.accessBatch(this.addresses, 0, ADDRESSES, null);
+	}
+}
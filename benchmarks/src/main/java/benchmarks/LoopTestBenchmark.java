@@ -0,0 +1,57 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jfree.data.category.CategoryDataset;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import memory.MemoryHierarchy;
+import memory.cache.Associativity;
+import memory.cache.CacheInfo;
+import memory.cache.Replacement;
+import processor.Processor;
+
+/**
+ * Time to run the whole especulated loop test of the Processor, for several sizes of the biggest loop. With
+ * 'analytic' the L2 is LRU, so the AnalyticLoopModel covers the hierarchy; otherwise it is Random, and every
+ * loop has to be simulated.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class LoopTestBenchmark {
+
+	@Param({"65536", "524288", "2097152"})
+	public int max_size;
+
+	@Param({"true", "false"})
+	public boolean analytic;
+
+	private Processor processor;
+
+	@Setup
+	public void setup() {
+		CacheInfo L1 = new CacheInfo(32, 1 << 13, 10, Associativity.SET_ASSOCIATIVE_4WAY);
+		CacheInfo L2 = new CacheInfo(64, 1 << 18, 40, Associativity.SET_ASSOCIATIVE_8WAY,
+				this.analytic ? Replacement.LRU : Replacement.RANDOM);
+		this.processor = new Processor(new MemoryHierarchy(L1, L2, 200));
+	}
+
+	@Benchmark
+	public CategoryDataset runEspeculatedLoopTest() {
+		return this.processor.runEspeculatedLoopTest(this.max_size);
+	}
+}
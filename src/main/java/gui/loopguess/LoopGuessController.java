@@ -87,7 +87,7 @@ public class LoopGuessController implements ActionListener {
 		MemoryHierarchy mem = this.question.toMemoryHierarchy();
 		Processor p = new Processor(mem);
 		int max_loop_size = mem.getDepth()==3?0x800000:0x400000;
-		this.plot = GraphicFrame.chartFromDataset(p.runEspeculatedLoopTest(max_loop_size));
+		this.plot = GraphicFrame.chartFromDataset(p.runAnalyticLoopTest(max_loop_size));
 		
 		this.panelResult.setText("");
 		
@@ -8,6 +8,7 @@ import memory.MemorySystem;
 
 import org.jfree.data.category.CategoryDataset;
 
+import processor.ParallelLoopRunner;
 import processor.Processor;
 import gui.components.CachePanel;
 import gui.components.GraphicFrame;
@@ -88,9 +89,10 @@ public class LoopRunController implements ActionListener {
 		// Loop run and data collection
 		CategoryDataset dataset;
 		if (this.panelSettings.speculateEnabled()) {
-			dataset = p.runEspeculatedLoopTest(this.panelSettings.getMaxLoopSize());
+			dataset = p.runAnalyticLoopTest(this.panelSettings.getMaxLoopSize());
 		} else {
-			dataset = p.runSimulatedLoopTest(this.panelSettings.getMaxLoopSize(), DEFAULT_ITERATIONS);
+			// Loops are independent, so they are run in parallel over copies of the hierarchy
+			dataset = new ParallelLoopRunner(mem).runSimulatedLoopTest(this.panelSettings.getMaxLoopSize(), DEFAULT_ITERATIONS);
 		}
 		
 		// Create and show a new line plot from the dataset
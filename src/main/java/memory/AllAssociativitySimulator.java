@@ -0,0 +1,235 @@
+package memory;
+
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import memory.cache.Associativity;
+import memory.cache.CacheInfo;
+import memory.cache.Replacement;
+
+/**
+ * Single pass simulator of every combination of number of sets and associativity of LRU caches with a fixed
+ * block size (all-associativity simulation, as described by Hill & Smith).<br><br>
+ *
+ * LRU has the inclusion property: for a given number of sets, a cache of A ways hits exactly when the block
+ * is among the A most recently used blocks of its set. So, for each number of sets, it is enough to keep the
+ * LRU stack of each set, truncated to the highest associativity, and count how deep each access is found.
+ * A single pass then gives the hits of every associativity (from direct mapped to max_ways) for every number
+ * of sets (from 1, fully associative, to 2^max_sets_mag), instead of replaying the trace once per cache.<br><br>
+ *
+ * Each access costs O(number of set counts * max_ways), and it creates no objects.
+ */
+public class AllAssociativitySimulator {
+
+	// Highest associativity of set associative caches
+	public final static int MAX_WAYS = 64;
+
+	private int block_size;
+	private int block_mag;
+	private int max_sets_mag;
+	private int max_ways;
+
+	// For each number of sets (2^s): the truncated LRU stacks of the sets (set * max_ways + depth, being
+	// depth 0 the most recently used block), how many blocks each stack holds, and how many accesses
+	// were found at each depth
+	private int[][] stacks;
+	private int[][] depths;
+	private long[][] found_at;
+	private long references;
+
+	/**
+	 * Creates a simulator for caches of the given block size.
+	 *
+	 * @param block_size Block size in bytes, must be power of 2
+	 * @param max_sets Highest number of sets to simulate, must be power of 2
+	 * @param max_ways Highest associativity to simulate, must be power of 2 and up to MAX_WAYS
+	 */
+	public AllAssociativitySimulator(int block_size, int max_sets, int max_ways) {
+		if (Integer.bitCount(block_size) != 1 || Integer.bitCount(max_sets) != 1 || Integer.bitCount(max_ways) != 1)
+			throw new IllegalArgumentException("Block size, sets and ways must be powers of 2");
+		if (max_ways > MAX_WAYS)
+			throw new IllegalArgumentException("At most " + MAX_WAYS + " ways can be simulated");
+		this.block_size = block_size;
+		this.block_mag = Integer.numberOfTrailingZeros(block_size);
+		this.max_sets_mag = Integer.numberOfTrailingZeros(max_sets);
+		this.max_ways = max_ways;
+
+		this.stacks = new int[this.max_sets_mag + 1][];
+		this.depths = new int[this.max_sets_mag + 1][];
+		this.found_at = new long[this.max_sets_mag + 1][max_ways];
+		for (int s = 0; s <= this.max_sets_mag; s++) {
+			this.stacks[s] = new int[(1 << s) * max_ways];
+			this.depths[s] = new int[1 << s];
+		}
+	}
+
+
+	// Access methods
+
+	/**
+	 * Simulates the access to one address in every cache.
+	 */
+	public void access(int address) {
+		this.references++;
+		int block = address >>> this.block_mag;
+		for (int s = 0; s <= this.max_sets_mag; s++) {
+			int set = block & ((1 << s) - 1);
+			int[] stack = this.stacks[s];
+			int base = set * this.max_ways;
+			int depth = this.depths[s][set];
+
+			int p = 0;
+			while (p < depth && stack[base + p] != block)
+				p++;
+			if (p < depth) {
+				this.found_at[s][p]++;
+			} else if (depth < this.max_ways) {
+				// Not found: the stack grows, or its deepest block is dropped
+				this.depths[s][set] = depth + 1;
+			} else {
+				p = this.max_ways - 1;
+			}
+
+			// The block becomes the most recently used of the set
+			System.arraycopy(stack, base, stack, base + 1, p);
+			stack[base] = block;
+		}
+	}
+
+	/**
+	 * Simulates the accesses to a range of an array of addresses, in order.
+	 */
+	public void accessBatch(int[] addresses, int offset, int length) {
+		for (int i = offset; i < offset + length; i++)
+			this.access(addresses[i]);
+	}
+
+	/**
+	 * Simulates the accesses to the remaining addresses of the buffer, in order. The position of the buffer is
+	 * left at its limit.
+	 */
+	public void accessBatch(IntBuffer addresses) {
+		while (addresses.hasRemaining())
+			this.access(addresses.get());
+	}
+
+	/**
+	 * Forgets all the accesses simulated.
+	 */
+	public void clean() {
+		this.references = 0;
+		for (int s = 0; s <= this.max_sets_mag; s++) {
+			Arrays.fill(this.depths[s], 0);
+			Arrays.fill(this.found_at[s], 0);
+		}
+	}
+
+
+	// Results
+
+	/**
+	 * Gets the number of hits of the LRU cache with the given number of sets and ways.
+	 *
+	 * @param sets Number of sets, a power of 2 not higher than max_sets
+	 * @param ways Number of ways, from 1 to max_ways
+	 * @return The exact number of hits
+	 */
+	public long getHits(int sets, int ways) {
+		if (Integer.bitCount(sets) != 1 || sets > (1 << this.max_sets_mag) || ways < 1 || ways > this.max_ways)
+			throw new IllegalArgumentException("Configuration not simulated: " + sets + " sets of " + ways + " ways");
+		long[] found = this.found_at[Integer.numberOfTrailingZeros(sets)];
+		long hits = 0;
+		for (int p = 0; p < ways; p++)
+			hits += found[p];
+		return hits;
+	}
+
+	public long getMisses(int sets, int ways) {
+		return this.references - this.getHits(sets, ways);
+	}
+
+	public float getMissRate(int sets, int ways) {
+		if (this.references == 0)
+			return 0;
+		return (float) this.getMisses(sets, ways) / this.references;
+	}
+
+	/**
+	 * Gets the results of every power-of-2 combination of sets and ways as a table, with one row per cache.
+	 * The rows are CacheDescriptors, so they can be given to FactoryCache or MemoryHierarchy directly (a
+	 * single set is reported as fully associative, and a single way as direct mapped).
+	 *
+	 * @param hit_time Hit time to put in the descriptors
+	 * @return The rows, ordered by number of sets and then by number of ways
+	 */
+	public List<Row> getTable(int hit_time) {
+		List<Row> table = new ArrayList<Row>();
+		for (int s = 0; s <= this.max_sets_mag; s++) {
+			for (int ways = 1; ways <= this.max_ways; ways <<= 1) {
+				long hits = this.getHits(1 << s, ways);
+				table.add(new Row(this.block_size, (1 << s) * ways, ways, hit_time, hits, this.references - hits));
+			}
+		}
+		return table;
+	}
+
+
+	// Getters!!
+	public long getReferences() {
+		return this.references;
+	}
+	public int getBlockSize() {
+		return this.block_size;
+	}
+	public int getMaxSets() {
+		return 1 << this.max_sets_mag;
+	}
+	public int getMaxWays() {
+		return this.max_ways;
+	}
+
+
+
+	/**
+	 * A row of the results table: the description of an LRU cache, and its hits and misses.
+	 */
+	public static class Row extends CacheInfo {
+		public final int sets;
+		public final int ways;
+		public final long hits;
+		public final long misses;
+
+		private Row(int block_size, int entries, int ways, int hit_time, long hits, long misses) {
+			super(block_size, block_size * entries, hit_time, associativityOf(entries / ways, ways), Replacement.LRU);
+			this.sets = entries / ways;
+			this.ways = ways;
+			this.hits = hits;
+			this.misses = misses;
+		}
+
+		private static Associativity associativityOf(int sets, int ways) {
+			if (ways == 1)
+				return Associativity.DIRECT_MAPPED;
+			if (sets == 1)
+				return Associativity.FULLY_ASSOCIATIVE;
+			for (Associativity assoc : Associativity.values()) {
+				if (assoc.getNumberWays() == ways)
+					return assoc;
+			}
+			throw new IllegalArgumentException("Unsupported number of ways: " + ways);
+		}
+
+		public float getMissRate() {
+			if (this.hits + this.misses == 0)
+				return 0;
+			return (float) this.misses / (this.hits + this.misses);
+		}
+
+		@Override
+		public String toString() {
+			return super.toString() + " Hits: " + this.hits + ", misses: " + this.misses + ".";
+		}
+	}
+}
@@ -0,0 +1,141 @@
+package memory;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded queue of ints for exactly one producer thread and one consumer thread (e.g. to pass addresses
+ * from a thread that reads a trace to a thread that simulates a cache).<br><br>
+ *
+ * Values are copied in and out in blocks, and the indexes are published once per block with ordered writes
+ * (no locks), so the cost per value is little more than copying it. Each side keeps a cached copy of the
+ * index of the other side and only reads the shared one when the cached copy says the buffer is full (or
+ * empty).<br>
+ * The producer calls 'close()' after its last value; the consumer then gets the remaining values, and -1
+ * once the buffer is empty.
+ */
+public final class IntRingBuffer {
+
+	private final int[] buffer;
+	private final int mask;
+
+	// Next position to read (written only by the consumer) and to write (written only by the producer)
+	private final AtomicLong head = new AtomicLong();
+	private final AtomicLong tail = new AtomicLong();
+	private long cached_head;
+	private long cached_tail;
+	private volatile boolean closed;
+
+	/**
+	 * Creates an empty buffer.
+	 *
+	 * @param capacity Number of values the buffer can hold, it is rounded up to a power of 2
+	 */
+	public IntRingBuffer(int capacity) {
+		int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+		this.buffer = new int[size];
+		this.mask = size - 1;
+	}
+
+
+	// Producer side
+
+	/**
+	 * Copies as many values as fit in the buffer, without waiting.
+	 *
+	 * @return The number of values copied (maybe 0)
+	 */
+	public int offer(int[] values, int offset, int length) {
+		long t = this.tail.get();
+		long free = this.buffer.length - (t - this.cached_head);
+		if (free < length) {
+			this.cached_head = this.head.get();
+			free = this.buffer.length - (t - this.cached_head);
+		}
+		int n = (int) Math.min(free, length);
+		if (n == 0)
+			return 0;
+
+		// The values may wrap around the end of the array
+		int start = (int) t & this.mask;
+		int first = Math.min(n, this.buffer.length - start);
+		System.arraycopy(values, offset, this.buffer, start, first);
+		System.arraycopy(values, offset + first, this.buffer, 0, n - first);
+		this.tail.lazySet(t + n);
+		return n;
+	}
+
+	/**
+	 * Copies all the values, waiting for room when the buffer is full.
+	 */
+	public void put(int[] values, int offset, int length) {
+		while (length > 0) {
+			int n = this.offer(values, offset, length);
+			if (n == 0)
+				Thread.yield();
+			offset += n;
+			length -= n;
+		}
+	}
+
+	/**
+	 * Tells the consumer that no more values will be put.
+	 */
+	public void close() {
+		this.closed = true;
+	}
+
+
+	// Consumer side
+
+	/**
+	 * Takes as many values as there are (up to 'max'), without waiting.
+	 *
+	 * @return The number of values taken (maybe 0)
+	 */
+	public int poll(int[] values, int offset, int max) {
+		long h = this.head.get();
+		long available = this.cached_tail - h;
+		if (available < max) {
+			this.cached_tail = this.tail.get();
+			available = this.cached_tail - h;
+		}
+		int n = (int) Math.min(available, max);
+		if (n == 0)
+			return 0;
+
+		int start = (int) h & this.mask;
+		int first = Math.min(n, this.buffer.length - start);
+		System.arraycopy(this.buffer, start, values, offset, first);
+		System.arraycopy(this.buffer, 0, values, offset + first, n - first);
+		this.head.lazySet(h + n);
+		return n;
+	}
+
+	/**
+	 * Takes at least one value (up to 'max'), waiting for them when the buffer is empty.
+	 *
+	 * @return The number of values taken, or -1 if the buffer is empty and closed
+	 */
+	public int take(int[] values, int offset, int max) {
+		while (true) {
+			int n = this.poll(values, offset, max);
+			if (n > 0)
+				return n;
+			if (this.closed) {
+				// Values put before closing are visible once 'closed' is seen
+				n = this.poll(values, offset, max);
+				return (n > 0) ? n : -1;
+			}
+			Thread.yield();
+		}
+	}
+
+
+	// Getters!!
+	public int getCapacity() {
+		return this.buffer.length;
+	}
+	public boolean isClosed() {
+		return this.closed;
+	}
+}
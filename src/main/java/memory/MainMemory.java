@@ -1,5 +1,8 @@
 package memory;
 
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
 /**
  * Simple model of a main memory.
  */
@@ -9,7 +12,13 @@ public class MainMemory implements MemorySystem {
 	private int accessTime;
 	
 	// Counter to satisfy statistic methods from MemorySystem
-	private int accessCount;
+	private long accessCount;
+	
+	// Value of the counter at the last markCounters()
+	private long markedCount;
+	
+	// Address of the last access, to build its MemoryResults
+	private int lastAddress;
 	
 	/**
 	 * Default constructor, with default access time (500 ns)	
@@ -35,11 +44,45 @@ public class MainMemory implements MemorySystem {
 	
 	@Override
 	public MemoryResults access(Integer address) {
-		MemoryResults results = new MemoryResults(true, accessTime, address);
-		results.setBlockPosition(address);
+		this.accessPacked(address);
+		return this.lastAccessResults();
+	}
+	@Override
+	public long accessPacked(int address) {
+		this.lastAddress = address;
 		this.accessCount++;
+		return PackedResults.hit(this.accessTime);
+	}
+	@Override
+	public MemoryResults lastAccessResults() {
+		MemoryResults results = new MemoryResults(true, this.accessTime, this.lastAddress);
+		results.setBlockPosition(this.lastAddress);
 		return results;
-	}	
+	}
+	
+	@Override
+	public long accessBatch(int[] addresses, int offset, int length, long[] results) {
+		// Every access is a hit, so only the last address has to be remembered
+		if (length <= 0)
+			return 0;
+		this.lastAddress = addresses[offset + length - 1];
+		this.accessCount += length;
+		if (results != null)
+			Arrays.fill(results, offset, offset + length, PackedResults.hit(this.accessTime));
+		return (long) length * this.accessTime;
+	}
+	@Override
+	public long accessBatch(IntBuffer addresses, long[] results) {
+		int length = addresses.remaining();
+		if (length <= 0)
+			return 0;
+		this.lastAddress = addresses.get(addresses.limit() - 1);
+		this.accessCount += length;
+		if (results != null)
+			Arrays.fill(results, 0, length, PackedResults.hit(this.accessTime));
+		addresses.position(addresses.limit());
+		return (long) length * this.accessTime;
+	}
 	@Override
 	public void clean() {
 		this.accessCount = 0;
@@ -49,15 +92,40 @@ public class MainMemory implements MemorySystem {
 		return true;
 	}
 	@Override
-	public int getTotalReferences() {
+	public MainMemory emptyCopy() {
+		return new MainMemory(this.accessTime);
+	}
+	@Override
+	public MainMemory copy() {
+		MainMemory copy = new MainMemory(this.accessTime);
+		copy.accessCount = this.accessCount;
+		copy.markedCount = this.markedCount;
+		copy.lastAddress = this.lastAddress;
+		return copy;
+	}
+	@Override
+	public long stateHash() {
+		// A main memory has no state
+		return 0;
+	}
+	@Override
+	public void markCounters() {
+		this.markedCount = this.accessCount;
+	}
+	@Override
+	public void extrapolateCounters(int times) {
+		this.accessCount += times * (this.accessCount - this.markedCount);
+	}
+	@Override
+	public long getTotalReferences() {
 		return this.accessCount;
 	}
 	@Override
-	public int getTotalMisses() {
+	public long getTotalMisses() {
 		return 0;
 	}
 	@Override
-	public int getTotalHits() {
+	public long getTotalHits() {
 		return this.accessCount;
 	}
 	@Override
@@ -69,4 +137,11 @@ public class MainMemory implements MemorySystem {
 		return 0;
 	}
 	
+	/**
+	 * Gets the time every access takes.
+	 */
+	public int getAccessTime() {
+		return this.accessTime;
+	}
+	
 }
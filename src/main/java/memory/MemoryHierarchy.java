@@ -1,8 +1,11 @@
 package memory;
 
+import java.nio.IntBuffer;
+
 import memory.cache.Cache;
 import memory.cache.CacheDescriptor;
 import memory.cache.FactoryCache;
+import memory.stats.HierarchyStats;
 
 /**
  *	Multilevel cache structure (up to three levels of cache).
@@ -10,7 +13,7 @@ import memory.cache.FactoryCache;
 public class MemoryHierarchy implements MemorySystem {
 
 	// MainMemory reference and up to three levels of cache
-	private MemorySystem mainMemory;
+	private MainMemory mainMemory;
 	private Cache L1;
 	private Cache L2;
 	private Cache L3;
@@ -29,6 +32,10 @@ public class MemoryHierarchy implements MemorySystem {
 	
 	// Multiple constructors, one for each depth.
 	
+	// Empty constructor, for copies
+	private MemoryHierarchy() {
+	}
+	
 	/**
 	 * One level hierarchy constructor. Automatically assigns L2, and L3 to be null, and the
 	 * depth to 1.
@@ -105,6 +112,24 @@ public class MemoryHierarchy implements MemorySystem {
 	public int getDepth() {
 		return this.depth;
 	}
+	
+	/**
+	 * Starts classifying the misses of every level (see Cache.enableMissClassification()).
+	 */
+	public void enableMissClassification() {
+		this.L1.enableMissClassification();
+		if (this.depth > 1)
+			this.L2.enableMissClassification();
+		if (this.depth > 2)
+			this.L3.enableMissClassification();
+	}
+	
+	/**
+	 * Gets the statistics of every level (the counters above are only those of the L1).
+	 */
+	public HierarchyStats getStats() {
+		return HierarchyStats.of(this);
+	}
 		
 	
 	// Overridden methods inherited from MemorySystem
@@ -114,6 +139,22 @@ public class MemoryHierarchy implements MemorySystem {
 		return this.L1.access(address);
 	}
 	@Override
+	public long accessPacked(int address) {
+		return this.L1.accessPacked(address);
+	}
+	@Override
+	public MemoryResults lastAccessResults() {
+		return this.L1.lastAccessResults();
+	}
+	@Override
+	public long accessBatch(int[] addresses, int offset, int length, long[] results) {
+		return this.L1.accessBatch(addresses, offset, length, results);
+	}
+	@Override
+	public long accessBatch(IntBuffer addresses, long[] results) {
+		return this.L1.accessBatch(addresses, results);
+	}
+	@Override
 	public void clean() {
 		this.L1.clean();
 		if (this.depth > 1)
@@ -127,15 +168,56 @@ public class MemoryHierarchy implements MemorySystem {
 		return this.L1.inMemory(address);
 	}
 	@Override
-	public int getTotalReferences() {
+	public MemoryHierarchy emptyCopy() {
+		// Caches are descriptors of themselves
+		int accessTime_MM = this.mainMemory.getAccessTime();
+		if (this.depth == 3)
+			return new MemoryHierarchy(this.L1, this.L2, this.L3, accessTime_MM);
+		if (this.depth == 2)
+			return new MemoryHierarchy(this.L1, this.L2, accessTime_MM);
+		return new MemoryHierarchy(this.L1, accessTime_MM);
+	}
+	@Override
+	public MemoryHierarchy copy() {
+		// Copying L1 copies all the levels below, which are then found through the copy
+		MemoryHierarchy copy = new MemoryHierarchy();
+		copy.depth = this.depth;
+		copy.L1 = this.L1.copy();
+		Cache last = copy.L1;
+		if (this.depth > 1) {
+			copy.L2 = (Cache) last.getNextLevel();
+			last = copy.L2;
+		}
+		if (this.depth > 2) {
+			copy.L3 = (Cache) last.getNextLevel();
+			last = copy.L3;
+		}
+		copy.mainMemory = (MainMemory) last.getNextLevel();
+		return copy;
+	}
+	@Override
+	public long stateHash() {
+		// Each level includes the state of its next levels
+		return this.L1.stateHash();
+	}
+	@Override
+	public void markCounters() {
+		this.L1.markCounters();
+	}
+	@Override
+	public void extrapolateCounters(int times) {
+		this.L1.extrapolateCounters(times);
+	}
+	@Override
+	public long getTotalReferences() {
 		return this.L1.getTotalReferences();
 	}
 	@Override
-	public int getTotalMisses() {
+	public long getTotalMisses() {
 		return this.L1.getTotalMisses();
 	}
 	@Override
-	public int getTotalHits() {
+	public long getTotalHits() {
 		return this.L1.getTotalHits();
 	}
 	@Override
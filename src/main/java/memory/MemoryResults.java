@@ -1,5 +1,7 @@
 package memory;
 
+import memory.cache.MissType;
+
 /**
  *	This class is a compact structure that can hold all the information regarding
  *	a memory access. It has a reference to an instance of itself to concatenate 
@@ -15,6 +17,7 @@ public class MemoryResults {
 	private boolean blockWasRemoved;
 	private int removedBlockAddress;
 	private int blockPosition;
+	private MissType missType;
 	
 	// Reference to next level access. It is null if 'wasHit' is true.
 	private MemoryResults nextLevelResult;
@@ -98,10 +101,24 @@ public class MemoryResults {
 	
 	
 	
+	/**
+	 * Use this method in a miss to inform its cause, if the misses of the cache are classified.
+	 * 
+	 * @param missType the type of the miss
+	 * 
+	 * @see Cache.enableMissClassification()
+	 */
+	public void setMissType(MissType missType) {
+		this.missType = missType;
+	}
+	
+	
 	// Method to convert the results in a printable string.
 	@Override
 	public String toString() {
 		String s = "Access to: 0x" + Integer.toString(this.address, 16) + " was " + (this.wasHit?"hit. ":"miss. ");
+		if (this.missType != null)
+			s = s + "(" + this.missType + " miss) ";
 		s = s + (this.blockWasRemoved?("A block was removed (0x"+Integer.toString(this.removedBlockAddress,16)+"). "):"No block was removed. ");
 		s = s + "The block was placed in position " + this.blockPosition + "\n";
 		return s;
@@ -127,4 +144,10 @@ public class MemoryResults {
 	public int getBlockPosition() {
 		return this.blockPosition;
 	}	
+	/**
+	 * Gets the type of the miss, or null if it was a hit or the misses are not classified.
+	 */
+	public MissType getMissType() {
+		return this.missType;
+	}
 }
@@ -1,5 +1,7 @@
 package memory;
 
+import java.nio.IntBuffer;
+
 /**
  * This interface is meant to be implemented by anything that can be taken as a source
  * of memory addresses by a processor.
@@ -20,8 +22,62 @@ public interface MemorySystem {
 	 * @see MemoryResults
 	 */
 	public MemoryResults access(Integer address);
-	
-	
+
+
+	/**
+	 * Simulates an access into memory exactly as 'access(Integer)' does, but it reports the outcome
+	 * packed in a primitive long instead of a MemoryResults. Implementations must not create any object
+	 * in this method, so it is the one to use when running long sequences of accesses.<br>
+	 *
+	 * The block position and the removed block address are not packed, they can be obtained (along with
+	 * the rest of the information) by calling 'lastAccessResults()' right after this method.
+	 *
+	 * @param address Memory address to be accessed (up-to-byte)
+	 * @return the outcome of the access, to be read with the static methods of PackedResults
+	 *
+	 * @see PackedResults
+	 */
+	public long accessPacked(int address);
+
+
+	/**
+	 * Builds the MemoryResults of the last access made to the memory system, including the results
+	 * of the next levels that were involved in it. This method DOES NOT represent an access.
+	 *
+	 * @return the MemoryResults of the last access
+	 */
+	public MemoryResults lastAccessResults();
+
+
+	/**
+	 * Simulates a whole block of consecutive accesses, as if 'accessPacked(int)' were called for each
+	 * address in order. Use this method to push long sequences of references (e.g. a loop or a trace)
+	 * into the memory system.
+	 *
+	 * @param addresses Array with the memory addresses to be accessed
+	 * @param offset Index in the array of the first address to access
+	 * @param length Number of addresses to access
+	 * @param results Array where the packed results of each access are stored, in the same index as its
+	 * address. It may be null if only the aggregated access time is needed.
+	 * @return the sum of the access times of all the accesses
+	 *
+	 * @see accessPacked(int)
+	 */
+	public long accessBatch(int[] addresses, int offset, int length, long[] results);
+
+
+	/**
+	 * Same as 'accessBatch(int[], int, int, long[])' but it takes the addresses from a buffer. All the remaining
+	 * addresses of the buffer are accessed, and its position is left at its limit.
+	 *
+	 * @param addresses Buffer with the memory addresses to be accessed
+	 * @param results Array where the packed results of each access are stored (the first one in index 0).
+	 * It may be null if only the aggregated access time is needed.
+	 * @return the sum of the access times of all the accesses
+	 */
+	public long accessBatch(IntBuffer addresses, long[] results);
+
+
 	/**
 	 * Cleans the memory system. It will leave the memory system as if it was new.
 	 * For example, after a clean() call on a cache, all its entries should be marked as
@@ -44,12 +100,68 @@ public interface MemorySystem {
 	public boolean inMemory(Integer address);
 	
 	
+	/**
+	 * Creates a new memory system with the same configuration as this one (every level included), but
+	 * empty and with its counters cleaned, as if it were just created. Copies share nothing with the
+	 * original, so each of them can be used from a different thread.
+	 *
+	 * @return a new, empty, memory system
+	 */
+	public MemorySystem emptyCopy();
+
+
+	/**
+	 * Creates an independent copy of the memory system (every level included), in the same state: the
+	 * same blocks, replacement information and counters. Accessing the copy does not change the original,
+	 * so a warm memory system can be copied to run many simulations from the same starting point.
+	 *
+	 * @return a new memory system, equal to this one
+	 */
+	public MemorySystem copy();
+
+
+	/**
+	 * Computes a hash of the whole state of the memory system: the blocks held by every level and their
+	 * replacement information, and the state of the miss classifiers of the caches that have one (counters
+	 * are not part of the state). If the hash after running a sequence of
+	 * accesses is the same as before running it, the memory system is in a periodic state, and running the
+	 * sequence again will give exactly the same results.<br>
+	 * Only the contents are hashed incrementally as blocks come and go; the replacement information (and the
+	 * shadow cache of the miss classifiers) is hashed whole on every call, which costs O(entries) per level.
+	 * Callers should only compute the hash when cheaper checks already match (e.g. Processor only does it
+	 * once an iteration takes the same time as the one before).
+	 *
+	 * @return a 64-bit hash of the state
+	 *
+	 * @see StateHash
+	 */
+	public long stateHash();
+
+
+	/**
+	 * Remembers the current value of the counters (references, misses, time) of every level, so that
+	 * 'extrapolateCounters()' can repeat what changed since then.
+	 */
+	public void markCounters();
+
+
+	/**
+	 * Adds to the counters of every level what they changed since the last call to 'markCounters()', as many
+	 * times as specified. It gives the exact counters that running the accesses made since the mark that many
+	 * more times would give, as long as the state was the same before and after them (see 'stateHash()').
+	 * The state of the memory system is not changed.
+	 *
+	 * @param times Number of times the accesses since the mark are repeated
+	 */
+	public void extrapolateCounters(int times);
+
+
 	// Methods to obtain average information of all the access since last clean.
-	// Counters:
-	public int getTotalReferences();
-	public int getTotalMisses();
-	public int getTotalHits();
-	// Average and rates:
+	// Counters (64 bits, long traces easily go over 2^31 references):
+	public long getTotalReferences();
+	public long getTotalMisses();
+	public long getTotalHits();
+	// Average and rates. The average access time includes the time of the next levels:
 	public float getAverageAccessTime();
 	public float getMissRate();
 }
@@ -0,0 +1,73 @@
+package memory;
+
+/**
+ * Primitive counterpart of MemoryResults. The outcome of an access is packed in a single long
+ * so that it can be returned by 'MemorySystem.accessPacked(int)' without creating any object.<br><br>
+ *
+ * The layout of the long is the following:
+ * <li> bits 0 to 31: total access time (in ns)
+ * <li> bit 32: set if the access was a hit
+ * <li> bit 33: set if a valid block was removed to make room for the accessed one
+ * <li> bits 40 to 47: level that served the access, being 0 the memory system that was accessed,
+ * 1 its next level, and so on.<br><br>
+ *
+ * This class only provides static methods to build and read packed results.
+ *
+ * @see MemoryResults, MemorySystem.accessPacked(int)
+ */
+public final class PackedResults {
+
+	// Bit positions and masks of each field
+	private final static long TIME_MASK = 0xFFFFFFFFL;
+	private final static long HIT_BIT = 1L << 32;
+	private final static long REMOVED_BIT = 1L << 33;
+	private final static int LEVEL_SHIFT = 40;
+	private final static long LEVEL_MASK = 0xFFL;
+
+	// Private constructor, only static methods
+	private PackedResults() {
+	}
+
+
+	/**
+	 * Packs the results of an access that was served by the memory system itself (a hit, as seen
+	 * by the level that was accessed).
+	 *
+	 * @param accessTime total access time
+	 * @return the packed results
+	 */
+	public static long hit(int accessTime) {
+		return HIT_BIT | (accessTime & TIME_MASK);
+	}
+
+	/**
+	 * Packs the results of a miss, by chaining the packed results of the next level. The access time
+	 * is the sum of the hit time of the level and the access time of the next level, and the serving
+	 * level is one more than the one reported by the next level.
+	 *
+	 * @param hitTime access time on hit of the level that missed
+	 * @param nextLevel packed results of the access to the next level
+	 * @param blockRemoved true if a valid block was overwritten by the missing one
+	 * @return the packed results
+	 */
+	public static long miss(int hitTime, long nextLevel, boolean blockRemoved) {
+		long level = getLevel(nextLevel) + 1;
+		long time = (hitTime + getAccessTime(nextLevel)) & TIME_MASK;
+		return (level << LEVEL_SHIFT) | (blockRemoved ? REMOVED_BIT : 0) | time;
+	}
+
+
+	// Getters!!
+	public static boolean wasHit(long results) {
+		return (results & HIT_BIT) != 0;
+	}
+	public static int getAccessTime(long results) {
+		return (int) (results & TIME_MASK);
+	}
+	public static boolean blockWasRemoved(long results) {
+		return (results & REMOVED_BIT) != 0;
+	}
+	public static int getLevel(long results) {
+		return (int) ((results >>> LEVEL_SHIFT) & LEVEL_MASK);
+	}
+}
@@ -0,0 +1,272 @@
+package memory;
+
+import java.nio.IntBuffer;
+
+import memory.cache.Cache;
+import memory.cache.CacheDescriptor;
+import memory.cache.FactoryCache;
+
+/**
+ * Multilevel cache structure where each level is simulated by its own thread, for long traces.<br><br>
+ *
+ * The state of a cache only depends on the addresses that reach it, never on what the next level answers
+ * (the next level only adds time). So each level can run on its own: the first one is accessed by the thread
+ * that calls 'run()', and its misses, instead of going to the next level, are put in a ring buffer that the
+ * thread of the next level consumes, and so on down to the last level, whose next level is the main memory.
+ * Once every level has drained its buffer, the references, misses and evictions of each level (and the total
+ * time, which is the sum of the times of all of them) are exactly those of a MemoryHierarchy that ran the same
+ * trace.<br>
+ * The time of a level only counts its own accesses, as its next level takes no time (only the last level adds
+ * the time of the main memory). The time of a level including the levels below it, as a MemoryHierarchy gives
+ * it, is 'getTotalTime(level)'.<br><br>
+ *
+ * The results of single accesses (packed results, or lastAccessResults()) do not include the next levels, so
+ * only the totals are given.
+ */
+public class PipelinedHierarchy {
+
+	// Size of the blocks of addresses moved between levels, and of the buffers between them
+	private final static int CHUNK = 4096;
+	private final static int RING_CAPACITY = 16 * CHUNK;
+
+	private Cache[] levels;
+	private MissForwarder[] forwarders;
+	private MainMemory mainMemory;
+
+	/**
+	 * Creates the hierarchy, given the description of its caches (from L1 down) and the access time of the
+	 * main memory.
+	 */
+	public PipelinedHierarchy(int accessTime_MM, CacheDescriptor... levels) {
+		if (levels.length == 0)
+			throw new IllegalArgumentException("At least one level of cache is needed");
+		this.levels = new Cache[levels.length];
+		this.forwarders = new MissForwarder[levels.length - 1];
+		this.mainMemory = new MainMemory(accessTime_MM);
+		for (int i = 0; i < levels.length; i++)
+			this.levels[i] = FactoryCache.createCache(levels[i]);
+
+		// Every level but the last one sends its misses to the buffer of the next one
+		for (int i = 0; i < this.forwarders.length; i++) {
+			this.forwarders[i] = new MissForwarder();
+			this.levels[i].setNextLevel(this.forwarders[i]);
+		}
+		this.levels[levels.length - 1].setNextLevel(this.mainMemory);
+	}
+
+	/**
+	 * Creates a pipelined hierarchy with the same configuration as a MemoryHierarchy (and empty).
+	 */
+	public PipelinedHierarchy(MemoryHierarchy hierarchy) {
+		this(mainMemoryTime(hierarchy), levelsOf(hierarchy));
+	}
+
+	private static int mainMemoryTime(MemoryHierarchy hierarchy) {
+		// The caches of a hierarchy always end in its main memory
+		Cache last = hierarchy.getL1Cache();
+		while (last.getNextLevel() instanceof Cache)
+			last = (Cache) last.getNextLevel();
+		return ((MainMemory) last.getNextLevel()).getAccessTime();
+	}
+
+	private static CacheDescriptor[] levelsOf(MemoryHierarchy hierarchy) {
+		Cache[] all = {hierarchy.getL1Cache(), hierarchy.getL2Cache(), hierarchy.getL3Cache()};
+		CacheDescriptor[] levels = new CacheDescriptor[hierarchy.getDepth()];
+		System.arraycopy(all, 0, levels, 0, levels.length);
+		return levels;
+	}
+
+
+	/**
+	 * Stands for the next level of a cache: instead of being accessed, it gathers the addresses that
+	 * reach it and puts them in the buffer of the next level a chunk at a time. Its accesses take no time
+	 * (the time is counted by the next level).
+	 */
+	private static class MissForwarder extends MainMemory {
+		private int[] chunk = new int[CHUNK];
+		private int filled;
+		private IntRingBuffer ring;
+
+		MissForwarder() {
+			super(0);
+		}
+
+		@Override
+		public long accessPacked(int address) {
+			this.chunk[this.filled++] = address;
+			if (this.filled == CHUNK)
+				this.flush();
+			return PackedResults.hit(0);
+		}
+
+		void flush() {
+			this.ring.put(this.chunk, 0, this.filled);
+			this.filled = 0;
+		}
+	}
+
+
+	// Simulation methods
+
+	/**
+	 * Simulates the accesses to a range of an array of addresses, in order (counters accumulate over calls).
+	 *
+	 * @return The sum of the access times
+	 */
+	public long run(int[] addresses, int offset, int length) {
+		return this.run(IntBuffer.wrap(addresses, offset, length));
+	}
+
+	/**
+	 * Simulates the accesses to the remaining addresses of the buffer, in order (counters accumulate over calls).
+	 * The position of the buffer is left at its limit. It returns once every level has finished.
+	 *
+	 * @return The sum of the access times
+	 */
+	public long run(IntBuffer addresses) {
+		int stages = this.forwarders.length;
+		final long[] times = new long[stages];
+		final Throwable[] errors = new Throwable[stages];
+		Thread[] workers = new Thread[stages];
+		for (int i = 0; i < stages; i++)
+			this.forwarders[i].ring = new IntRingBuffer(RING_CAPACITY);
+		for (int i = 0; i < stages; i++) {
+			final int stage = i;
+			workers[i] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						times[stage] = PipelinedHierarchy.this.consume(stage);
+					} catch (Throwable e) {
+						errors[stage] = e;
+						PipelinedHierarchy.this.discard(stage);
+					}
+				}
+			}, "cache-level-" + (i + 2));
+			workers[i].setDaemon(true);
+			workers[i].start();
+		}
+
+		// The first level runs in this thread
+		long time;
+		try {
+			time = this.levels[0].accessBatch(addresses, null);
+		} finally {
+			if (stages > 0)
+				this.finish(0);
+		}
+
+		for (int i = 0; i < stages; i++) {
+			try {
+				workers[i].join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Simulation interrupted", e);
+			}
+			if (errors[i] != null)
+				throw new IllegalStateException("Simulation of level " + (i + 2) + " failed", errors[i]);
+			time += times[i];
+		}
+		return time;
+	}
+
+	/**
+	 * Body of the thread of a level (stage + 1): accesses its cache with the misses of the level above until
+	 * they end, and then tells the next level that its misses ended too.
+	 */
+	private long consume(int stage) {
+		IntRingBuffer ring = this.forwarders[stage].ring;
+		Cache cache = this.levels[stage + 1];
+		int[] chunk = new int[CHUNK];
+		long time = 0;
+		int n;
+		try {
+			while ((n = ring.take(chunk, 0, CHUNK)) >= 0)
+				time += cache.accessBatch(chunk, 0, n, null);
+		} finally {
+			if (stage + 1 < this.forwarders.length)
+				this.finish(stage + 1);
+		}
+		return time;
+	}
+
+	/**
+	 * Sends the last misses gathered by a forwarder, and closes its buffer.
+	 */
+	private void finish(int stage) {
+		MissForwarder forwarder = this.forwarders[stage];
+		try {
+			forwarder.flush();
+		} finally {
+			forwarder.ring.close();
+		}
+	}
+
+	/**
+	 * Takes (and forgets) the rest of the misses of the level above a failed level, so that it never waits
+	 * for room in the buffer.
+	 */
+	private void discard(int stage) {
+		int[] chunk = new int[CHUNK];
+		while (this.forwarders[stage].ring.take(chunk, 0, CHUNK) >= 0)
+			;
+	}
+
+	/**
+	 * Empties all the levels and cleans their counters.
+	 */
+	public void clean() {
+		for (Cache level : this.levels)
+			level.clean();
+		for (MissForwarder forwarder : this.forwarders)
+			forwarder.filled = 0;
+		this.mainMemory.clean();
+	}
+
+
+	// Getters!!
+
+	/**
+	 * Gets a level of cache, being 0 the L1. Its references, misses and evictions are those of the level in a
+	 * MemoryHierarchy, but its time does not include the levels below it (see 'getTotalTime(level)').
+	 */
+	public Cache getLevel(int level) {
+		return this.levels[level];
+	}
+	public int getDepth() {
+		return this.levels.length;
+	}
+	public MainMemory getMainMemory() {
+		return this.mainMemory;
+	}
+	public long getTotalReferences() {
+		return this.levels[0].getTotalReferences();
+	}
+	public long getTotalMisses() {
+		return this.levels[0].getTotalMisses();
+	}
+	public long getTotalHits() {
+		return this.levels[0].getTotalHits();
+	}
+
+	/**
+	 * Gets the time of the accesses to a level, including the levels below it (as in a MemoryHierarchy): the
+	 * misses of a level are the accesses to the next one, so it is the sum of the times of them all.
+	 */
+	public long getTotalTime(int level) {
+		long time = 0;
+		for (int i = level; i < this.levels.length; i++)
+			time += this.levels[i].getTotalTime();
+		return time;
+	}
+
+	/**
+	 * Gets the average access time of a level, including the levels below it (as in a MemoryHierarchy).
+	 */
+	public float getAverageAccessTime(int level) {
+		long references = this.levels[level].getTotalReferences();
+		if (references == 0)
+			return 0;
+		return (float) ((double) this.getTotalTime(level) / references);
+	}
+}
@@ -0,0 +1,233 @@
+package memory;
+
+import java.nio.IntBuffer;
+
+import memory.cache.Associativity;
+import memory.cache.Cache;
+import memory.cache.CacheDescriptor;
+import memory.cache.FactoryCache;
+import memory.cache.Replacement;
+import memory.stats.SimulatorMetrics;
+
+/**
+ * Parallel simulation of a single cache level (direct mapped or set associative) over a long trace.<br><br>
+ *
+ * The sets of such a cache never interact, so the cache is split in 'shards' by the lowest bits of the set
+ * index, and each shard is simulated by its own thread as an independent cache with fewer sets. The thread that
+ * calls 'run()' reads the addresses, sends each one to the ring buffer of its shard (removing the shard bits
+ * from the block number, so that the smaller cache finds the same set and tag), and the shard threads access
+ * their caches in blocks. At the end the counters of the shards are added up, which gives exactly the same
+ * totals as the sequential simulation of the whole cache.<br><br>
+ *
+ * Policies with state shared by all the sets (Random and Bimodal RRIP draw from a single generator) would not
+ * give the same results, so those caches, as well as fully associative ones, are simulated in a single shard,
+ * by the calling thread.
+ */
+public class ShardedCacheSimulator {
+
+	// Size of the blocks of addresses moved through the ring buffers, and of the buffers themselves
+	private final static int CHUNK = 4096;
+	private final static int RING_CAPACITY = 16 * CHUNK;
+
+	private Cache[] shards;
+	private int shard_mag;
+	private int block_mag;
+	private int shard_mask;
+
+	/**
+	 * Creates a simulator for a cache level in front of a main memory.
+	 *
+	 * @param descriptor The description of the cache
+	 * @param accessTime_MM The access time of the main memory
+	 * @param threads Maximum number of threads to use (it is reduced to a power of 2, and to the number of sets)
+	 */
+	public ShardedCacheSimulator(CacheDescriptor descriptor, int accessTime_MM, int threads) {
+		Cache whole = FactoryCache.createCache(descriptor);
+		int entries = whole.getCacheSize() / whole.getBlockSize();
+		int sets;
+		if (whole.getAssociativity() == Associativity.FULLY_ASSOCIATIVE)
+			sets = 1;
+		else
+			sets = entries / whole.getAssociativity().getNumberWays();
+		Replacement replacement = whole.getReplacement();
+		if (replacement == Replacement.RANDOM || replacement == Replacement.BRRIP)
+			sets = 1;
+
+		int shardCount = Integer.highestOneBit(Math.max(1, Math.min(threads, sets)));
+		this.shard_mag = Integer.numberOfTrailingZeros(shardCount);
+		this.shard_mask = shardCount - 1;
+		this.block_mag = Integer.numberOfTrailingZeros(whole.getBlockSize());
+
+		// Each shard is the same cache with 1/shardCount of the sets
+		this.shards = new Cache[shardCount];
+		for (int i = 0; i < shardCount; i++) {
+			if (shardCount == 1)
+				this.shards[i] = whole;
+			else
+				this.shards[i] = FactoryCache.createCache(whole.getBlockSize(), whole.getCacheSize() / shardCount,
+						whole.getHitTime(), whole.getAssociativity(), replacement);
+			this.shards[i].setNextLevel(new MainMemory(accessTime_MM));
+		}
+	}
+
+	/**
+	 * Address of the block in its shard: the block number without the bits that choose the shard.
+	 */
+	private int shardAddress(int address) {
+		return (address >>> this.block_mag >>> this.shard_mag) << this.block_mag;
+	}
+
+
+	// Simulation methods
+
+	/**
+	 * Simulates the accesses to a range of an array of addresses, in order (counters accumulate over calls).
+	 *
+	 * @return The sum of the access times
+	 */
+	public long run(int[] addresses, int offset, int length) {
+		return this.run(IntBuffer.wrap(addresses, offset, length));
+	}
+
+	/**
+	 * Simulates the accesses to the remaining addresses of the buffer, in order (counters accumulate over calls).
+	 * The position of the buffer is left at its limit.
+	 *
+	 * @return The sum of the access times
+	 */
+	public long run(IntBuffer addresses) {
+		if (this.shards.length == 1)
+			return this.shards[0].accessBatch(addresses, null);
+
+		int count = this.shards.length;
+		final IntRingBuffer[] rings = new IntRingBuffer[count];
+		final long[] times = new long[count];
+		final Throwable[] errors = new Throwable[count];
+		Thread[] workers = new Thread[count];
+		for (int i = 0; i < count; i++) {
+			rings[i] = new IntRingBuffer(RING_CAPACITY);
+			final int shard = i;
+			workers[i] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						times[shard] = ShardedCacheSimulator.this.consume(shard, rings[shard]);
+					} catch (Throwable e) {
+						errors[shard] = e;
+						ShardedCacheSimulator.discard(rings[shard]);
+					}
+				}
+			}, "cache-shard-" + i);
+			workers[i].setDaemon(true);
+			workers[i].start();
+		}
+
+		// Addresses are gathered per shard, and put in its ring a chunk at a time
+		int[][] pending = new int[count][CHUNK];
+		int[] filled = new int[count];
+		while (addresses.hasRemaining()) {
+			int address = addresses.get();
+			int shard = (address >>> this.block_mag) & this.shard_mask;
+			pending[shard][filled[shard]++] = this.shardAddress(address);
+			if (filled[shard] == CHUNK) {
+				rings[shard].put(pending[shard], 0, CHUNK);
+				filled[shard] = 0;
+			}
+		}
+		for (int i = 0; i < count; i++) {
+			rings[i].put(pending[i], 0, filled[i]);
+			rings[i].close();
+		}
+
+		long time = 0;
+		for (int i = 0; i < count; i++) {
+			try {
+				workers[i].join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Simulation interrupted", e);
+			}
+			if (errors[i] != null)
+				throw new IllegalStateException("Simulation of shard " + i + " failed", errors[i]);
+			time += times[i];
+		}
+		return time;
+	}
+
+	/**
+	 * Body of the thread of a shard: accesses its cache with the addresses of its ring until it is closed.
+	 */
+	private long consume(int shard, IntRingBuffer ring) {
+		Cache cache = this.shards[shard];
+		int[] chunk = new int[CHUNK];
+		long time = 0;
+		int n;
+		while ((n = ring.take(chunk, 0, CHUNK)) >= 0)
+			time += cache.accessBatch(chunk, 0, n, null);
+		return time;
+	}
+
+	/**
+	 * Takes (and forgets) the rest of the addresses of a failed shard, so that the thread putting them never
+	 * waits for room in its ring.
+	 */
+	private static void discard(IntRingBuffer ring) {
+		int[] chunk = new int[CHUNK];
+		while (ring.take(chunk, 0, CHUNK) >= 0)
+			;
+	}
+
+	/**
+	 * Empties the cache and cleans the counters.
+	 */
+	public void clean() {
+		for (Cache shard : this.shards) {
+			shard.clean();
+			shard.getNextLevel().clean();
+		}
+	}
+
+
+	// Counters, added up over all the shards
+	public long getTotalReferences() {
+		long references = 0;
+		for (Cache shard : this.shards)
+			references += shard.getTotalReferences();
+		return references;
+	}
+	public long getTotalMisses() {
+		long misses = 0;
+		for (Cache shard : this.shards)
+			misses += shard.getTotalMisses();
+		return misses;
+	}
+	public long getTotalHits() {
+		return this.getTotalReferences() - this.getTotalMisses();
+	}
+	public float getMissRate() {
+		long references = this.getTotalReferences();
+		if (references == 0)
+			return 0;
+		return (float) this.getTotalMisses() / references;
+	}
+
+	/**
+	 * Makes some metrics watch the shards, as stripes of the same level.
+	 */
+	public void watch(SimulatorMetrics metrics) {
+		for (Cache shard : this.shards)
+			metrics.watch(0, shard);
+	}
+
+	// Getters!!
+	public int getShards() {
+		return this.shards.length;
+	}
+
+	/**
+	 * Gets the cache of a shard, which holds the sets whose lowest index bits are the shard number.
+	 */
+	public Cache getShard(int shard) {
+		return this.shards[shard];
+	}
+}
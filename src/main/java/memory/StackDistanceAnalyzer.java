@@ -0,0 +1,281 @@
+package memory;
+
+import java.nio.IntBuffer;
+
+import memory.cache.BlockMap;
+
+/**
+ * Single pass LRU stack distance (reuse distance) analyzer, following Mattson's algorithm.<br><br>
+ *
+ * The stack distance of an access is the number of different blocks accessed since the last access to the
+ * same block. A fully associative LRU cache of C blocks hits exactly on the accesses whose distance is lower
+ * than C, so a single pass over an address stream gives the hits of every cache size at once, instead of
+ * replaying the stream through one CacheFA per size.<br><br>
+ *
+ * Distances are kept in a histogram of power-of-2 buckets (bucket 0 holds distance 0, and bucket k the distances
+ * from 2^(k-1) to 2^k - 1), which is enough to get the exact hits of any power-of-2 cache size. Many block sizes
+ * can be analyzed in the same pass.<br><br>
+ *
+ * Each access costs O(log n): the last access time of every block is marked in a Fenwick tree indexed by time, so the
+ * distance is the number of marks after the last access of the block.
+ */
+public class StackDistanceAnalyzer {
+
+	// Number of buckets of the histograms (distances are always lower than 2^31)
+	public final static int BUCKETS = 33;
+
+	private int[] block_sizes;
+	private DistanceTracker[] trackers;
+	private long references;
+
+	/**
+	 * Creates a new analyzer for the given block sizes.
+	 *
+	 * @param block_sizes Block sizes in bytes, each of them must be a power of 2
+	 */
+	public StackDistanceAnalyzer(int... block_sizes) {
+		if (block_sizes.length == 0)
+			throw new IllegalArgumentException("At least one block size is needed");
+		this.block_sizes = block_sizes.clone();
+		this.trackers = new DistanceTracker[block_sizes.length];
+		for (int i = 0; i < block_sizes.length; i++) {
+			if (block_sizes[i] <= 0 || Integer.bitCount(block_sizes[i]) != 1)
+				throw new IllegalArgumentException("Block size must be a power of 2: " + block_sizes[i]);
+			this.trackers[i] = new DistanceTracker(Integer.numberOfTrailingZeros(block_sizes[i]));
+		}
+	}
+
+
+	// Access methods
+
+	/**
+	 * Analyzes the access to one address.
+	 */
+	public void access(int address) {
+		this.references++;
+		for (DistanceTracker tracker : this.trackers)
+			tracker.access(address);
+	}
+
+	/**
+	 * Analyzes the accesses to a range of an array of addresses, in order.
+	 */
+	public void accessBatch(int[] addresses, int offset, int length) {
+		this.references += length;
+		for (DistanceTracker tracker : this.trackers) {
+			for (int i = offset; i < offset + length; i++)
+				tracker.access(addresses[i]);
+		}
+	}
+
+	/**
+	 * Analyzes the accesses to the remaining addresses of the buffer, in order. The position of the buffer is
+	 * left at its limit.
+	 */
+	public void accessBatch(IntBuffer addresses) {
+		int start = addresses.position();
+		int length = addresses.remaining();
+		this.references += length;
+		for (DistanceTracker tracker : this.trackers) {
+			for (int i = 0; i < length; i++)
+				tracker.access(addresses.get(start + i));
+		}
+		addresses.position(start + length);
+	}
+
+	/**
+	 * Forgets all the accesses analyzed.
+	 */
+	public void clean() {
+		this.references = 0;
+		for (int i = 0; i < this.trackers.length; i++)
+			this.trackers[i] = new DistanceTracker(this.trackers[i].block_mag);
+	}
+
+
+	// Results
+
+	private DistanceTracker tracker(int block_size) {
+		for (int i = 0; i < this.block_sizes.length; i++) {
+			if (this.block_sizes[i] == block_size)
+				return this.trackers[i];
+		}
+		throw new IllegalArgumentException("Block size not analyzed: " + block_size);
+	}
+
+	/**
+	 * Gets a copy of the histogram of stack distances for a block size. Bucket 0 counts the accesses with
+	 * distance 0, and bucket k the ones with distance from 2^(k-1) to 2^k - 1. First accesses to a block
+	 * (cold misses) are not in the histogram.
+	 */
+	public long[] getHistogram(int block_size) {
+		return this.tracker(block_size).histogram.clone();
+	}
+
+	/**
+	 * Gets the number of accesses to blocks never accessed before (which miss in any cache).
+	 */
+	public long getColdMisses(int block_size) {
+		return this.tracker(block_size).cold_misses;
+	}
+
+	/**
+	 * Gets the number of hits a fully associative LRU cache would have had with the accesses analyzed.
+	 *
+	 * @param block_size Block size in bytes (one of the analyzed ones)
+	 * @param cache_size Cache size in bytes, a power of 2 greater or equal than block_size
+	 * @return The exact number of hits
+	 */
+	public long getHits(int block_size, int cache_size) {
+		if (cache_size < block_size || Integer.bitCount(cache_size) != 1)
+			throw new IllegalArgumentException("Invalid cache size: " + cache_size);
+		long[] histogram = this.tracker(block_size).histogram;
+		// A cache of 2^m blocks hits on distances up to 2^m - 1, which are the buckets 0 to m
+		int m = Integer.numberOfTrailingZeros(cache_size / block_size);
+		long hits = 0;
+		for (int k = 0; k <= m && k < BUCKETS; k++)
+			hits += histogram[k];
+		return hits;
+	}
+
+	/**
+	 * Gets the number of misses a fully associative LRU cache would have had with the accesses analyzed.
+	 */
+	public long getMisses(int block_size, int cache_size) {
+		return this.references - this.getHits(block_size, cache_size);
+	}
+
+	/**
+	 * Gets the miss rate a fully associative LRU cache would have had with the accesses analyzed.
+	 */
+	public float getMissRate(int block_size, int cache_size) {
+		if (this.references == 0)
+			return 0;
+		return (float) this.getMisses(block_size, cache_size) / this.references;
+	}
+
+	/**
+	 * Gets the misses of every power-of-2 cache size, from one block (position 0) to 2^k blocks (position k),
+	 * up to the smallest size where only cold misses remain.
+	 */
+	public long[] getMissCurve(int block_size) {
+		DistanceTracker tracker = this.tracker(block_size);
+		int last = BUCKETS - 1;
+		while (last > 0 && tracker.histogram[last] == 0)
+			last--;
+		long[] curve = new long[last + 1];
+		long misses = this.references;
+		for (int k = 0; k <= last; k++) {
+			misses -= tracker.histogram[k];
+			curve[k] = misses;
+		}
+		return curve;
+	}
+
+
+	// Getters!!
+	public long getReferences() {
+		return this.references;
+	}
+	public int[] getBlockSizes() {
+		return this.block_sizes.clone();
+	}
+
+
+
+	/**
+	 * Stack distances of a single block size.<br><br>
+	 *
+	 * Each access is given a time (a position in the Fenwick tree). Only the position of the last access of
+	 * each block is marked, so the distance of an access is the number of marks after the previous access to
+	 * the block. When the positions run out, the live marks are moved to the start (keeping their order) and
+	 * the tree is rebuilt, so it never grows over twice the number of different blocks.
+	 */
+	private static class DistanceTracker {
+
+		private final static int INITIAL_CAPACITY = 1024;
+
+		private final int block_mag;
+		private BlockMap last_time;
+		private int[] fenwick;
+		private int[] block_at;
+		private int time;
+		private int live;
+
+		private long[] histogram;
+		private long cold_misses;
+
+		DistanceTracker(int block_mag) {
+			this.block_mag = block_mag;
+			this.last_time = new BlockMap(INITIAL_CAPACITY);
+			this.fenwick = new int[INITIAL_CAPACITY + 1];
+			this.block_at = new int[INITIAL_CAPACITY];
+			this.histogram = new long[BUCKETS];
+		}
+
+		// Fenwick tree operations (positions are 0-based outside, 1-based inside the tree)
+		private void add(int position, int delta) {
+			for (int i = position + 1; i < this.fenwick.length; i += i & -i)
+				this.fenwick[i] += delta;
+		}
+		private int prefix(int position) {
+			// Marks in positions 0 to 'position', both included
+			int sum = 0;
+			for (int i = position + 1; i > 0; i -= i & -i)
+				sum += this.fenwick[i];
+			return sum;
+		}
+
+		void access(int address) {
+			if (this.time == this.block_at.length)
+				this.compact();
+
+			int block = address >>> this.block_mag;
+			int previous = this.last_time.get(block);
+			if (previous == BlockMap.NOT_FOUND) {
+				this.cold_misses++;
+				this.live++;
+			} else {
+				int distance = this.live - this.prefix(previous);
+				this.histogram[(distance == 0) ? 0 : 32 - Integer.numberOfLeadingZeros(distance)]++;
+				this.add(previous, -1);
+			}
+
+			this.block_at[this.time] = block;
+			this.last_time.put(block, this.time);
+			this.add(this.time, 1);
+			this.time++;
+		}
+
+		/**
+		 * Moves the live marks to the first positions, growing the tree if more than half of it would be used.
+		 */
+		private void compact() {
+			int capacity = this.block_at.length;
+			int[] blocks = this.block_at;
+			if (this.live * 2 > capacity) {
+				capacity <<= 1;
+				this.block_at = new int[capacity];
+			}
+			int next = 0;
+			for (int t = 0; t < this.time; t++) {
+				int block = blocks[t];
+				if (this.last_time.get(block) == t) {
+					this.block_at[next] = block;
+					this.last_time.put(block, next);
+					next++;
+				}
+			}
+			this.time = next;
+
+			// Node i of the tree counts the marks of the positions i-(i & -i)+1 to i (1-based), and
+			// now only the positions 1 to 'next' are marked
+			this.fenwick = new int[capacity + 1];
+			for (int i = 1; i <= capacity; i++) {
+				int low = i & -i;
+				int first = i - low + 1;
+				this.fenwick[i] = Math.max(0, Math.min(i, next) - first + 1);
+			}
+		}
+	}
+}
@@ -0,0 +1,60 @@
+package memory;
+
+/**
+ * Static helpers to compute 64-bit hashes of the state of memory systems (see MemorySystem.stateHash()).<br><br>
+ *
+ * Values are mixed with the finalizer of MurmurHash3, so that any change of a single bit changes about half
+ * the bits of the hash. Hashes of unordered collections (e.g. the blocks in a cache) can be kept
+ * incrementally as the XOR of the hash of each element, adding or removing one element at a time.
+ */
+public final class StateHash {
+
+	// Private constructor, only static methods
+	private StateHash() {
+	}
+
+
+	/**
+	 * Mixes all the bits of a value.
+	 */
+	public static long mix(long x) {
+		x ^= x >>> 33;
+		x *= 0xFF51AFD7ED558CCDL;
+		x ^= x >>> 33;
+		x *= 0xC4CEB9FE1A85EC53L;
+		x ^= x >>> 33;
+		return x;
+	}
+
+	/**
+	 * Combines a hash with another value, depending on the order in which values are combined.
+	 */
+	public static long combine(long hash, long value) {
+		return mix(hash * 0x9E3779B97F4A7C15L + value);
+	}
+
+	/**
+	 * Hash of an entry of a cache (a block address in a position), to be XORed into the hash of its contents
+	 * when the block is placed and when it is removed.
+	 */
+	public static long entry(int position, int blockAddress) {
+		return mix(((long) position << 32) | (blockAddress & 0xFFFFFFFFL));
+	}
+
+	// Hashes of whole arrays, combined with a previous hash
+	public static long combine(long hash, int[] values) {
+		for (int value : values)
+			hash = hash * 0x9E3779B97F4A7C15L + value;
+		return mix(hash);
+	}
+	public static long combine(long hash, long[] values) {
+		for (long value : values)
+			hash = mix(hash + value);
+		return hash;
+	}
+	public static long combine(long hash, byte[] values) {
+		for (byte value : values)
+			hash = hash * 0x9E3779B97F4A7C15L + value;
+		return mix(hash);
+	}
+}
@@ -10,7 +10,9 @@ public enum Associativity {
 	SET_ASSOCIATIVE_2WAY ("2-Way set associative", 2),
 	SET_ASSOCIATIVE_4WAY ("4-Way set associative", 4),
 	SET_ASSOCIATIVE_8WAY ("8-Way set associative", 8),
-	SET_ASSOCIATIVE_16WAY ("16-Way set associative", 16);
+	SET_ASSOCIATIVE_16WAY ("16-Way set associative", 16),
+	SET_ASSOCIATIVE_32WAY ("32-Way set associative", 32),
+	SET_ASSOCIATIVE_64WAY ("64-Way set associative", 64);
 	
 	// The string contains the printable name, while another variable holds
 	// the number of ways.
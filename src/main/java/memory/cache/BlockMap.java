@@ -0,0 +1,165 @@
+package memory.cache;
+
+import java.util.Arrays;
+
+/**
+ * Hash map from int keys (block addresses or block numbers) to non-negative int values (usually
+ * the position of a block), made only of primitive arrays. It uses open addressing with linear
+ * probing, so a lookup never creates objects nor follows references, as a HashMap<Integer, ...> does.<br><br>
+ *
+ * The table grows automatically to keep its load under one half. Removed keys are deleted by shifting
+ * back the following keys of the probe sequence, so the table never fills up with deleted marks.
+ */
+public final class BlockMap {
+
+	// Value stored in empty slots, and returned when a key is not in the map
+	public final static int NOT_FOUND = -1;
+
+	private int[] keys;
+	private int[] values;
+	private int mask;
+	private int shift;
+	private int size;
+
+	/**
+	 * Creates a new map able to hold the expected number of keys without growing.
+	 *
+	 * @param expected Number of keys the map is expected to hold
+	 */
+	public BlockMap(int expected) {
+		int capacity = Integer.highestOneBit(Math.max(expected, 4) * 2 - 1) << 1;
+		this.allocate(capacity);
+	}
+
+	private void allocate(int capacity) {
+		this.keys = new int[capacity];
+		this.values = new int[capacity];
+		Arrays.fill(this.values, NOT_FOUND);
+		this.mask = capacity - 1;
+		this.shift = 32 - Integer.numberOfTrailingZeros(capacity);
+		this.size = 0;
+	}
+
+	// Fibonacci hashing: the high bits of the product mix all the bits of the key
+	private int slot(int key) {
+		return (key * 0x9E3779B9) >>> this.shift;
+	}
+
+
+	/**
+	 * Gets the value of a key.
+	 *
+	 * @param key The key
+	 * @return The value of the key, or NOT_FOUND if it is not in the map
+	 */
+	public int get(int key) {
+		int i = this.slot(key);
+		while (this.values[i] != NOT_FOUND) {
+			if (this.keys[i] == key)
+				return this.values[i];
+			i = (i + 1) & this.mask;
+		}
+		return NOT_FOUND;
+	}
+
+	/**
+	 * Associates a value to a key, replacing any previous value.
+	 *
+	 * @param key The key
+	 * @param value Any non-negative value
+	 */
+	public void put(int key, int value) {
+		int i = this.slot(key);
+		while (this.values[i] != NOT_FOUND) {
+			if (this.keys[i] == key) {
+				this.values[i] = value;
+				return;
+			}
+			i = (i + 1) & this.mask;
+		}
+		this.keys[i] = key;
+		this.values[i] = value;
+		this.size++;
+		if (this.size * 2 > this.keys.length)
+			this.grow();
+	}
+
+	/**
+	 * Removes a key from the map.
+	 *
+	 * @param key The key
+	 * @return The value the key had, or NOT_FOUND if it was not in the map
+	 */
+	public int remove(int key) {
+		int i = this.slot(key);
+		while (this.values[i] != NOT_FOUND) {
+			if (this.keys[i] == key) {
+				int value = this.values[i];
+				this.deleteSlot(i);
+				this.size--;
+				return value;
+			}
+			i = (i + 1) & this.mask;
+		}
+		return NOT_FOUND;
+	}
+
+	/**
+	 * Empties the slot, and moves back the keys after it that would not be reachable otherwise.
+	 */
+	private void deleteSlot(int hole) {
+		int i = hole;
+		while (true) {
+			i = (i + 1) & this.mask;
+			if (this.values[i] == NOT_FOUND)
+				break;
+			// The key at i can fill the hole only if its home slot is not between the hole and i
+			int home = this.slot(this.keys[i]);
+			if (((i - home) & this.mask) >= ((i - hole) & this.mask)) {
+				this.keys[hole] = this.keys[i];
+				this.values[hole] = this.values[i];
+				hole = i;
+			}
+		}
+		this.values[hole] = NOT_FOUND;
+	}
+
+	private void grow() {
+		int[] oldKeys = this.keys;
+		int[] oldValues = this.values;
+		this.allocate(oldKeys.length << 1);
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldValues[i] != NOT_FOUND)
+				this.put(oldKeys[i], oldValues[i]);
+		}
+	}
+
+	/**
+	 * Creates an independent copy of the map, with the same keys and capacity.
+	 */
+	public BlockMap copy() {
+		BlockMap copy = new BlockMap(4);
+		copy.keys = this.keys.clone();
+		copy.values = this.values.clone();
+		copy.mask = this.mask;
+		copy.shift = this.shift;
+		copy.size = this.size;
+		return copy;
+	}
+
+	/**
+	 * Removes all the keys. The capacity of the map is kept.
+	 */
+	public void clear() {
+		if (this.size > 0)
+			Arrays.fill(this.values, NOT_FOUND);
+		this.size = 0;
+	}
+
+	/**
+	 * Gives the number of keys in the map.
+	 */
+	public int size() {
+		return this.size;
+	}
+}
@@ -1,13 +1,28 @@
 package memory.cache;
 
+import java.util.Arrays;
+
+import memory.MemoryResults;
 import memory.MemorySystem;
+import memory.PackedResults;
+import memory.StateHash;
 
-public abstract class Cache implements MemorySystem, CacheDescriptor {
+public abstract class Cache implements MemorySystem, CacheDescriptor, Cloneable {
+	
+	// Access count variables to satisfy MemorySystem methods. The total time (the time of the accesses
+	// to this cache, including the next levels) is added up by 'recordAccess()'.
+	protected long references;
+	protected long misses;
+	protected long total_time;
+	protected long evictions;
 	
-	// Access count variables to satisfy MemorySystem methods
-	protected int references;
-	protected int misses;
-	protected int total_time;
+	// Counters at the last markCounters(), and hash of the contents of the cache (the XOR of
+	// StateHash.entry() of every valid entry), which types of cache must keep up to date
+	private long marked_references;
+	private long marked_misses;
+	private long marked_time;
+	private long marked_evictions;
+	protected long content_hash;
 	
 	// The description of the cache, as well as the reference to next level
 	protected CacheInfo info;
@@ -16,14 +31,26 @@ public abstract class Cache implements MemorySystem, CacheDescriptor {
 	// Some auxiliary variables: size magnitudes (log2[size]) and erased block info.
 	protected char block_mag;
 	protected char cache_mag;
+	protected int block_mask;
 	protected boolean erasedBlock;
 	protected int erasedBlockAddress;
 	
+	// Information of the last access that does not fit in its packed results. Every
+	// 'accessPacked()' implementation must update these (and the erased block info above).
+	protected int last_address;
+	protected int last_position;
+	protected long last_results;
+	
+	// Probes attached to the cache, null when there are none (so detached probes cost a null check)
+	private CacheProbe[] probes;
+	private MissClassifier classifier;
+	
 	// Protected constructor to initialize some common variables
 	protected Cache(int block_size, int cache_size, int hitTime) {
 		this.info = new CacheInfo(block_size, cache_size, hitTime, Associativity.FULLY_ASSOCIATIVE);
 		this.block_mag = compute_mag(this.info.block_size);
 		this.cache_mag = compute_mag(this.info.cache_size);	
+		this.block_mask = 0xFFFFFFFF << this.block_mag;
 		
 		this.erasedBlock = false;
 		this.erasedBlockAddress = 0;
@@ -60,11 +87,8 @@ public abstract class Cache implements MemorySystem, CacheDescriptor {
 	 * @return The memory location of the first word of the block of 'address'
 	 */
 	protected int findBlockAddress(int address) {
-		int block_mask = 0xFFFFFFFF;
-		for (int i = 0; i < this.block_mag; i++)
-			block_mask = block_mask << 1;
-
-		return address & block_mask;
+		// The mask is computed once in the constructor
+		return address & this.block_mask;
 	}
 	
 	/**
@@ -75,41 +99,222 @@ public abstract class Cache implements MemorySystem, CacheDescriptor {
 	 * @return The block number of the parameter address
 	 */
 	protected int findBlockNumber(int address) {
-		int block_number = address;
-		// Uses bit shifting and a mask to eliminate any sign extension
-		for (int i = 0; i < this.block_mag; i++)
-			block_number = block_number >> 1 & 0x7FFFFFFF;
-
-		return block_number;
+		// Unsigned shift to eliminate any sign extension
+		return address >>> this.block_mag;
 	}	
 	
 	
 	
 	// Methods from MemorySystem
+	
+	/**
+	 * The object version of the access is built over 'accessPacked()', so types of cache only
+	 * have to implement the primitive one.
+	 */
+	@Override
+	public MemoryResults access(Integer address) {
+		this.accessPacked(address);
+		return this.lastAccessResults();
+	}
+	@Override
+	public MemoryResults lastAccessResults() {
+		boolean hit = PackedResults.wasHit(this.last_results);
+		MemoryResults result = new MemoryResults(hit, PackedResults.getAccessTime(this.last_results), this.last_address);
+		result.setBlockPosition(this.last_position);
+		if (this.erasedBlock)
+			result.setRemovedBlock(this.erasedBlockAddress);
+		if (!hit) {
+			result.setNextLevelResult(this.next_level.lastAccessResults());
+			if (this.classifier != null)
+				result.setMissType(this.classifier.getLastMissType());
+		}
+		return result;
+	}
+	
+	/**
+	 * Records the information of an access so that 'lastAccessResults()' can rebuild it. Types
+	 * of cache should call this right before returning from 'accessPacked()'.
+	 * 
+	 * @param address The accessed address
+	 * @param position The position of the block in the cache after the access
+	 * @param results The packed results of the access
+	 * @return The same packed results, for convenience
+	 */
+	protected long recordAccess(int address, int position, long results) {
+		this.total_time += PackedResults.getAccessTime(results);
+		this.last_address = address;
+		this.last_position = position;
+		this.last_results = results;
+		if (this.probes != null) {
+			for (CacheProbe probe : this.probes)
+				probe.accessed(address, position, results);
+		}
+		return results;
+	}
+	
+	/**
+	 * Attaches a probe to the cache, which will be told of every access from now on. Copies of the cache
+	 * do not keep the probes.
+	 */
+	public void attach(CacheProbe probe) {
+		probe.attached(this);
+		int count = (this.probes == null) ? 0 : this.probes.length;
+		CacheProbe[] probes = new CacheProbe[count + 1];
+		if (count > 0)
+			System.arraycopy(this.probes, 0, probes, 0, count);
+		probes[count] = probe;
+		this.probes = probes;
+	}
+	
+	/**
+	 * Detaches a probe from the cache (nothing happens if it was not attached).
+	 */
+	public void detach(CacheProbe probe) {
+		if (this.probes == null)
+			return;
+		int count = 0;
+		CacheProbe[] probes = new CacheProbe[this.probes.length];
+		for (CacheProbe attached : this.probes) {
+			if (attached != probe)
+				probes[count++] = attached;
+		}
+		if (count == 0)
+			this.probes = null;
+		else if (count < probes.length)
+			this.probes = Arrays.copyOf(probes, count);
+	}
 
+	/**
+	 * Gets the hash of the replacement information of the cache, to be included in its state hash.
+	 * Caches with no replacement information (direct mapped) keep this one.
+	 */
+	protected long replacementHash() {
+		return 0;
+	}
+	
+	/**
+	 * The copy is made by the FactoryCache from the description of this cache, and its next level is an
+	 * empty copy of the next level of this one.
+	 */
 	@Override
-	public int getTotalMisses() {
+	public Cache emptyCopy() {
+		Cache copy = FactoryCache.createCache(this.info);
+		copy.setNextLevel(this.next_level.emptyCopy());
+		return copy;
+	}
+	/**
+	 * All the fields are copied by clone(), the description and next level are copied, and then the types
+	 * of cache copy their own arrays in 'copyContents()'.
+	 */
+	@Override
+	public Cache copy() {
+		Cache copy;
+		try {
+			copy = (Cache) super.clone();
+		} catch (CloneNotSupportedException e) {
+			throw new AssertionError(e);
+		}
+		copy.info = new CacheInfo(this.info);
+		copy.probes = null;
+		copy.classifier = null;
+		copy.next_level = this.next_level.copy();
+		copy.copyContents();
+		return copy;
+	}
+	
+	/**
+	 * Called on a new copy of a cache (see 'copy()'), whose fields still point to the arrays of the original
+	 * cache. It must replace them by copies, so that both caches are independent.
+	 */
+	protected abstract void copyContents();
+	
+	/**
+	 * Probes can not be extrapolated (only the miss classifier can), so while any other probe is attached the
+	 * number of references is part of the hash: the state never repeats, and every access is simulated and
+	 * seen by the probes. The state of the miss classifier (the blocks touched and its shadow cache) is part
+	 * of the hash too, as it decides the types of the next misses.
+	 */
+	@Override
+	public long stateHash() {
+		long hash = StateHash.combine(this.content_hash, this.replacementHash());
+		if (this.probes != null && (this.probes.length > 1 || this.classifier == null))
+			hash = StateHash.combine(hash, this.references);
+		if (this.classifier != null)
+			hash = StateHash.combine(hash, this.classifier.stateHash());
+		return StateHash.combine(hash, this.next_level.stateHash());
+	}
+	@Override
+	public void markCounters() {
+		this.marked_references = this.references;
+		this.marked_misses = this.misses;
+		this.marked_time = this.total_time;
+		this.marked_evictions = this.evictions;
+		if (this.classifier != null)
+			this.classifier.markCounters();
+		this.next_level.markCounters();
+	}
+	@Override
+	public void extrapolateCounters(int times) {
+		this.references += times * (this.references - this.marked_references);
+		this.misses += times * (this.misses - this.marked_misses);
+		this.total_time += times * (this.total_time - this.marked_time);
+		this.evictions += times * (this.evictions - this.marked_evictions);
+		if (this.classifier != null)
+			this.classifier.extrapolateCounters(times);
+		this.next_level.extrapolateCounters(times);
+	}
+
+	@Override
+	public long getTotalMisses() {
 		return this.misses;
 	}
 	@Override
-	public int getTotalReferences() {
+	public long getTotalReferences() {
 		return this.references;
 	}
 	@Override
-	public int getTotalHits() {
+	public long getTotalHits() {
 		return this.references - this.misses;
 	}
 	@Override
 	public float getAverageAccessTime() {
 		if (this.references == 0)
 			return 0;
-		return this.total_time/this.references;
+		return (float) ((double) this.total_time/this.references);
 	}
+	/**
+	 * Gets the local miss rate of the cache: its misses over the accesses that reached it (see
+	 * HierarchyStats for the global one).
+	 */
 	@Override
 	public float getMissRate() {
 		if (this.references == 0)
 			return 0;
-		return this.misses/this.references;
+		return (float) ((double) this.misses/this.references);
+	}
+	
+	/**
+	 * Gets the sum of the access times of every access to the cache (including the time of the next
+	 * levels on misses).
+	 */
+	public long getTotalTime() {
+		return this.total_time;
+	}
+	
+	/**
+	 * Gets the number of valid blocks that were replaced by a missing one (misses that found their set
+	 * full).
+	 */
+	public long getTotalEvictions() {
+		return this.evictions;
+	}
+	
+	/**
+	 * Gets the number of blocks brought into the cache. Every miss allocates its block, so these are
+	 * the misses, of which 'getTotalEvictions()' replaced a valid block and the rest filled an empty entry.
+	 */
+	public long getTotalFills() {
+		return this.misses;
 	}
 	
 	// Auxiliary method to clean counters, should be called any time the cache is flushed.
@@ -117,6 +322,42 @@ public abstract class Cache implements MemorySystem, CacheDescriptor {
 		this.references = 0;
 		this.misses = 0;
 		this.total_time = 0;
+		this.evictions = 0;
+		if (this.classifier != null)
+			this.classifier.clean();
+	}
+	
+	
+	/**
+	 * Starts classifying the misses of the cache as compulsory, capacity or conflict misses (see
+	 * MissClassifier). The type of each miss is then given in its MemoryResults, and the counters of each
+	 * type by the classifier. Nothing happens if the misses are already classified.
+	 * 
+	 * @return The classifier of the cache
+	 */
+	public MissClassifier enableMissClassification() {
+		if (this.classifier == null) {
+			MissClassifier classifier = new MissClassifier();
+			this.attach(classifier);
+			this.classifier = classifier;
+		}
+		return this.classifier;
+	}
+	
+	/**
+	 * Stops classifying the misses of the cache.
+	 */
+	public void disableMissClassification() {
+		if (this.classifier != null)
+			this.detach(this.classifier);
+		this.classifier = null;
+	}
+	
+	/**
+	 * Gets the classifier of the misses of the cache, or null if they are not classified.
+	 */
+	public MissClassifier getMissClassifier() {
+		return this.classifier;
 	}
 	
 	
@@ -130,6 +371,13 @@ public abstract class Cache implements MemorySystem, CacheDescriptor {
 		this.next_level = level;
 	}
 	
+	/**
+	 * Gets the next level of memory of the cache.
+	 */
+	public MemorySystem getNextLevel() {
+		return this.next_level;
+	}
+	
 	
 	// Methods from CacheDescriptor
 	
@@ -149,6 +397,10 @@ public abstract class Cache implements MemorySystem, CacheDescriptor {
 	public int getHitTime(){
 		return this.info.hit_time;
 	}
+	@Override
+	public Replacement getReplacement() {
+		return this.info.replacement;
+	}
 	
 	
 	/**
@@ -3,11 +3,18 @@ package memory.cache;
 /**
  * Any class that implements this interface can be used to specify
  * a cache level by providing methods to get block and cache sizes,
- * associativity and access time on hit.
+ * associativity, access time on hit and replacement policy.
  */
 public interface CacheDescriptor {	
 	public int getBlockSize();
 	public int getCacheSize();
 	public Associativity getAssociativity();
 	public int getHitTime();	
+
+	/**
+	 * Gets the replacement policy of the cache. Descriptors that do not choose one get the classic LRU.
+	 */
+	public default Replacement getReplacement() {
+		return Replacement.LRU;
+	}
 }
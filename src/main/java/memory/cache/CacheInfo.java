@@ -9,6 +9,7 @@ public class CacheInfo implements CacheDescriptor {
 	public int cache_size;
 	public int hit_time;
 	public Associativity associativity;
+	public Replacement replacement;
 	
 	/** A constructor provided to create an instance from any CacheDescriptor
 	 * 
@@ -19,10 +20,11 @@ public class CacheInfo implements CacheDescriptor {
 		this.cache_size = cd.getCacheSize();
 		this.associativity = cd.getAssociativity();
 		this.hit_time = cd.getHitTime();
+		this.replacement = cd.getReplacement();
 	}
 	
 	/**
-	 * A constructor to create an instance by giving the four parameter separately.
+	 * A constructor to create an instance by giving the four parameter separately (with LRU replacement).
 	 * 
 	 * @param block_size Block size in bytes, must be power of 2 and smaller than cache_size
 	 * @param cache_size Cache size in bytes, must be power of 2 and greater than block_size
@@ -30,10 +32,20 @@ public class CacheInfo implements CacheDescriptor {
 	 * @param associativity The amount of associativity
 	 */
 	public CacheInfo(int block_size, int cache_size, int hit_time, Associativity assoc) {
+		this(block_size, cache_size, hit_time, assoc, Replacement.LRU);
+	}	
+	
+	/**
+	 * Same as above, but also giving the replacement policy.
+	 * 
+	 * @param replacement The replacement policy (ignored by direct mapped caches)
+	 */
+	public CacheInfo(int block_size, int cache_size, int hit_time, Associativity assoc, Replacement replacement) {
 		this.associativity = assoc;
 		this.block_size = block_size;
 		this.cache_size = cache_size;
 		this.hit_time = hit_time;
+		this.replacement = replacement;
 	}	
 	
 	// Getters (must override from CacheDescriptor even though they are public variables)
@@ -54,6 +66,10 @@ public class CacheInfo implements CacheDescriptor {
 	public int getHitTime() {
 		return this.hit_time;
 	}		
+	@Override
+	public Replacement getReplacement() {
+		return this.replacement;
+	}
 	
 		
 	// Methods to print the cache specifications on screen
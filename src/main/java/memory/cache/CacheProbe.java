@@ -0,0 +1,30 @@
+package memory.cache;
+
+/**
+ * Instrumentation that can be attached to a cache to observe every access to it (see Cache.attach()), for
+ * instance to build histograms of why the misses happen.<br><br>
+ *
+ * A probe is told of each access right after the cache handled it, with the position of the block in the
+ * cache (the same position of cacheToArray()) and the packed results, whose removed bit tells whether a valid
+ * block was evicted from that position. Probes are called on the hot path of the simulation, so they should
+ * keep their state in primitive arrays allocated in 'attached()', and never allocate afterwards. A cache with
+ * no probes only pays a null check per access.
+ */
+public interface CacheProbe {
+
+	/**
+	 * Called once, when the probe is attached to a cache, to size its state after it.
+	 *
+	 * @param cache The cache it is attached to
+	 */
+	public void attached(Cache cache);
+
+	/**
+	 * Called after every access to the cache.
+	 *
+	 * @param address The accessed address
+	 * @param position The position of the block in the cache after the access
+	 * @param results The packed results of the access
+	 */
+	public void accessed(int address, int position, long results);
+}
@@ -1,5 +1,13 @@
 package memory.cache;
 
+import memory.cache.policies.BitPLRUPolicy;
+import memory.cache.policies.FIFOPolicy;
+import memory.cache.policies.LFUPolicy;
+import memory.cache.policies.LRUListPolicy;
+import memory.cache.policies.LRUPolicy;
+import memory.cache.policies.RRIPPolicy;
+import memory.cache.policies.RandomPolicy;
+import memory.cache.policies.TreePLRUPolicy;
 import memory.cache.types.CacheDM;
 import memory.cache.types.CacheFA;
 import memory.cache.types.CacheSA;
@@ -9,6 +17,9 @@ import memory.cache.types.CacheSA;
  */
 public abstract class FactoryCache {
 
+	// Seed of the random generators of the policies, fixed so that simulations can be repeated
+	private final static long POLICY_SEED = 0x5DEECE66DL;
+
 	// Private constructor, abstract class
 	private FactoryCache(){
 	}	
@@ -16,20 +27,37 @@ public abstract class FactoryCache {
 	
 	/**
 	 * Creates a new cache from the four parameters specified.<br>
-	 * Note: any kind of replacement policy in associative caches is LRU.
+	 * Note: the replacement policy of associative caches is LRU.
+	 *  
+	 * @param block_size Block size in bytes, must be power of 2 and smaller than cache_size
+	 * @param cache_size Cache size in bytes, must be power of 2 and greater than block_size
+	 * @param hit_time Non-negative integer that represents the access time on hit of the cache (in ns)
+	 * @param associativity The amount of associativity
+	 * 
+	 * @return Returns a new cache made according to the parameters. In case of error, returns a default cache.
+	 */
+	public static Cache createCache(int block_size, int cache_size, int hit_time, Associativity associativity) {
+		return FactoryCache.createCache(block_size, cache_size, hit_time, associativity, Replacement.LRU);
+	}
+	
+	/**
+	 * Creates a new cache from the five parameters specified.
 	 *  
 	 * @param block_size Block size in bytes, must be power of 2 and smaller than cache_size
 	 * @param cache_size Cache size in bytes, must be power of 2 and greater than block_size
 	 * @param hit_time Non-negative integer that represents the access time on hit of the cache (in ns)
 	 * @param associativity The amount of associativity
+	 * @param replacement The replacement policy (ignored by direct mapped caches). If null, LRU is used.
 	 * 
 	 * @return Returns a new cache made according to the parameters. In case of error, returns a default cache.
 	 */
 	
 	// TODO Implement exception to throw on invalid parameters
-	public static Cache createCache(int block_size, int cache_size, int hit_time, Associativity associativity) {
+	public static Cache createCache(int block_size, int cache_size, int hit_time, Associativity associativity, Replacement replacement) {
 		if (!validateSizes(block_size, cache_size) || hit_time < 0)
 			return new CacheFA();
+		if (replacement == null)
+			replacement = Replacement.LRU;
 				
 		Cache newCache = null;
 		switch(associativity) {
@@ -37,19 +65,25 @@ public abstract class FactoryCache {
 			newCache = new CacheDM(block_size, cache_size, hit_time);
 			break;			
 		case FULLY_ASSOCIATIVE:
-			newCache = new CacheFA(block_size, cache_size, hit_time);
+			newCache = new CacheFA(block_size, cache_size, hit_time, replacement);
+			break;			
+		case SET_ASSOCIATIVE_64WAY:
+			newCache = new CacheSA(block_size, cache_size, hit_time, 64, replacement);
+			break;			
+		case SET_ASSOCIATIVE_32WAY:
+			newCache = new CacheSA(block_size, cache_size, hit_time, 32, replacement);
 			break;			
 		case SET_ASSOCIATIVE_16WAY:
-			newCache = new CacheSA(block_size, cache_size, hit_time, 16);
+			newCache = new CacheSA(block_size, cache_size, hit_time, 16, replacement);
 			break;			
 		case SET_ASSOCIATIVE_4WAY:
-			newCache = new CacheSA(block_size, cache_size, hit_time, 4);
+			newCache = new CacheSA(block_size, cache_size, hit_time, 4, replacement);
 			break;			
 		case SET_ASSOCIATIVE_8WAY:
-			newCache = new CacheSA(block_size, cache_size, hit_time, 8);
+			newCache = new CacheSA(block_size, cache_size, hit_time, 8, replacement);
 			break;			
 		case SET_ASSOCIATIVE_2WAY:
-			newCache = new CacheSA(block_size, cache_size, hit_time, 2);
+			newCache = new CacheSA(block_size, cache_size, hit_time, 2, replacement);
 			break;			
 		default:
 			newCache = new CacheFA();
@@ -65,10 +99,65 @@ public abstract class FactoryCache {
 	 * @return Returns a new Cache made according to the information brought by the descriptor.
 	 */
 	public static Cache createCache(CacheDescriptor descriptor) {
-		return FactoryCache.createCache(descriptor.getBlockSize(), descriptor.getCacheSize(), descriptor.getHitTime(), descriptor.getAssociativity());		
+		return FactoryCache.createCache(descriptor.getBlockSize(), descriptor.getCacheSize(), descriptor.getHitTime(), descriptor.getAssociativity(), descriptor.getReplacement());		
 	}	
 	
 	
+	/**
+	 * Creates the state and logic of a replacement policy for a cache with the given number of sets and ways
+	 * (a fully associative cache has a single set). Any number of ways can be used, but some policies need it to
+	 * be a power of 2 (as it is in every cache). Random policies always start from the same seed.
+	 * 
+	 * @param replacement Any Replacement
+	 * @param sets Number of sets
+	 * @param ways Number of ways in each set
+	 * @return Returns a new ReplacementPolicy
+	 */
+	public static ReplacementPolicy createPolicy(Replacement replacement, int sets, int ways) {
+		switch(replacement) {
+		case FIFO:
+			return new FIFOPolicy(sets, ways);
+		case RANDOM:
+			return new RandomPolicy(sets, ways, POLICY_SEED);
+		case TREE_PLRU:
+			return new TreePLRUPolicy(sets, ways);
+		case BIT_PLRU:
+			return new BitPLRUPolicy(sets, ways);
+		case SRRIP:
+			return new RRIPPolicy(sets, ways, false, POLICY_SEED);
+		case BRRIP:
+			return new RRIPPolicy(sets, ways, true, POLICY_SEED);
+		case LFU:
+			return new LFUPolicy(sets, ways);
+		case LRU:
+		default:
+			// Ranks are packed in bytes up to 64 ways, bigger sets (fully associative caches) use lists
+			if (ways <= LRUPolicy.MAX_WAYS)
+				return new LRUPolicy(sets, ways);
+			return new LRUListPolicy(sets, ways);
+		}
+	}
+	
+	
+	/**
+	 * Checks whether a descriptor describes a cache that can be created, instead of getting the default cache
+	 * from 'createCache()': sizes must be powers of 2 (the block no bigger than the cache), the hit time can
+	 * not be negative, and there must be at least as many entries as ways.
+	 *
+	 * @param descriptor Any CacheDescriptor
+	 * @return true if the cache would be created as described
+	 */
+	public static boolean isValid(CacheDescriptor descriptor) {
+		if (!validateSizes(descriptor.getBlockSize(), descriptor.getCacheSize()) || descriptor.getHitTime() < 0)
+			return false;
+		Associativity associativity = descriptor.getAssociativity();
+		if (associativity == null)
+			return false;
+		int entries = descriptor.getCacheSize() / descriptor.getBlockSize();
+		return associativity == Associativity.FULLY_ASSOCIATIVE || associativity.getNumberWays() <= entries;
+	}
+	
+	
 	// Private methods for validating data
 	
 	private static boolean validateSizes(int block_size, int cache_size) {
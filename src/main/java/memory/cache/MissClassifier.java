@@ -0,0 +1,215 @@
+package memory.cache;
+
+import java.util.Arrays;
+
+import memory.PackedResults;
+import memory.StateHash;
+
+/**
+ * Classifies the misses of a cache as compulsory, capacity or conflict misses (see MissType). Use
+ * Cache.enableMissClassification() to get the classifier of a cache.<br><br>
+ *
+ * It sees every access to the cache (it is a CacheProbe), and keeps:<br>
+ * <li> The blocks touched so far, in a bitmap of the block numbers split in pages that are allocated the first
+ * time one of their blocks is touched (so it takes memory in proportion to the footprint of the workload).
+ * <li> A shadow fully associative LRU cache with as many blocks as the cache, made of primitive arrays: a
+ * BlockMap from block number to slot, and a doubly linked list of the slots in LRU order. Each access costs
+ * a lookup and a few array writes.<br>
+ * A miss is compulsory if its block was never touched, a capacity miss if the shadow cache misses too, and a
+ * conflict miss otherwise. The counters are cleaned with the cache, and extrapolated with its counters (see
+ * MemorySystem.extrapolateCounters()).<br>
+ * Its state is part of the state hash of the cache: the blocks touched are hashed incrementally as they are
+ * touched, and the shadow cache is hashed in LRU order when the hash is asked for.
+ */
+public class MissClassifier implements CacheProbe {
+
+	// Pages of the bitmap of blocks touched, of 2^PAGE_MAG blocks each
+	private final static int PAGE_MAG = 16;
+
+	private int block_mag;
+	private long[][] touched;
+	private long touched_hash;
+
+	// Shadow LRU cache: the block in each slot, and the list of slots from the most recently used (head)
+	private int capacity;
+	private int used;
+	private int[] blocks;
+	private int[] newer;
+	private int[] older;
+	private int head;
+	private int tail;
+	private BlockMap slots;
+
+	private long[] counts = new long[MissType.values().length];
+	private long[] marked = new long[MissType.values().length];
+	private MissType last_type;
+
+	MissClassifier() {
+	}
+
+	@Override
+	public void attached(Cache cache) {
+		if (this.blocks != null)
+			throw new IllegalStateException("The classifier is already attached to a cache");
+		this.block_mag = Integer.numberOfTrailingZeros(cache.getBlockSize());
+		this.touched = new long[(int) Math.max(1, (1L << (32 - this.block_mag)) >>> PAGE_MAG)][];
+		this.capacity = cache.numberOfEntries();
+		this.blocks = new int[this.capacity];
+		this.newer = new int[this.capacity];
+		this.older = new int[this.capacity];
+		this.slots = new BlockMap(this.capacity);
+		this.clean();
+	}
+
+	@Override
+	public void accessed(int address, int position, long results) {
+		int block = address >>> this.block_mag;
+		boolean firstTouch = this.touch(block);
+		boolean shadowHit = this.accessShadow(block);
+		if (PackedResults.wasHit(results)) {
+			this.last_type = null;
+			return;
+		}
+		if (firstTouch)
+			this.last_type = MissType.COMPULSORY;
+		else if (!shadowHit)
+			this.last_type = MissType.CAPACITY;
+		else
+			this.last_type = MissType.CONFLICT;
+		this.counts[this.last_type.ordinal()]++;
+	}
+
+	/**
+	 * Marks a block as touched.
+	 *
+	 * @return Whether it is the first time it is touched
+	 */
+	private boolean touch(int block) {
+		long[] page = this.touched[block >>> PAGE_MAG];
+		if (page == null) {
+			page = new long[1 << (PAGE_MAG - 6)];
+			this.touched[block >>> PAGE_MAG] = page;
+		}
+		int bit = block & ((1 << PAGE_MAG) - 1);
+		long mask = 1L << (bit & 63);
+		if ((page[bit >>> 6] & mask) != 0)
+			return false;
+		page[bit >>> 6] |= mask;
+		// The high bit keeps block 0 from hashing to 0
+		this.touched_hash ^= StateHash.mix((1L << 32) | (block & 0xFFFFFFFFL));
+		return true;
+	}
+
+	/**
+	 * Accesses the shadow LRU cache.
+	 *
+	 * @return Whether it was a hit
+	 */
+	private boolean accessShadow(int block) {
+		int slot = this.slots.get(block);
+		if (slot != BlockMap.NOT_FOUND) {
+			if (slot != this.head) {
+				this.unlink(slot);
+				this.pushHead(slot);
+			}
+			return true;
+		}
+
+		// Empty slots are used first, and then the least recently used one is replaced
+		if (this.used < this.capacity) {
+			slot = this.used++;
+		} else {
+			slot = this.tail;
+			this.slots.remove(this.blocks[slot]);
+			this.unlink(slot);
+		}
+		this.blocks[slot] = block;
+		this.slots.put(block, slot);
+		this.pushHead(slot);
+		return false;
+	}
+
+	private void unlink(int slot) {
+		int newer = this.newer[slot];
+		int older = this.older[slot];
+		if (newer >= 0)
+			this.older[newer] = older;
+		else
+			this.head = older;
+		if (older >= 0)
+			this.newer[older] = newer;
+		else
+			this.tail = newer;
+	}
+
+	private void pushHead(int slot) {
+		this.newer[slot] = -1;
+		this.older[slot] = this.head;
+		if (this.head >= 0)
+			this.newer[this.head] = slot;
+		else
+			this.tail = slot;
+		this.head = slot;
+	}
+
+
+	/**
+	 * Forgets the blocks touched and empties the shadow cache, and cleans the counters. Called when the cache
+	 * is cleaned.
+	 */
+	void clean() {
+		// The pages are kept, so cleaning the cache between runs does not allocate them again
+		for (long[] page : this.touched) {
+			if (page != null)
+				Arrays.fill(page, 0);
+		}
+		this.touched_hash = 0;
+		this.slots.clear();
+		this.used = 0;
+		this.head = -1;
+		this.tail = -1;
+		Arrays.fill(this.counts, 0);
+		this.last_type = null;
+	}
+
+	/**
+	 * Computes a hash of the state of the classifier: the blocks touched, and those of the shadow cache in
+	 * LRU order (see MemorySystem.stateHash()).
+	 */
+	long stateHash() {
+		long hash = this.touched_hash;
+		for (int slot = this.head; slot >= 0; slot = this.older[slot])
+			hash = StateHash.combine(hash, this.blocks[slot]);
+		return hash;
+	}
+
+	void markCounters() {
+		System.arraycopy(this.counts, 0, this.marked, 0, this.counts.length);
+	}
+
+	void extrapolateCounters(int times) {
+		for (int i = 0; i < this.counts.length; i++)
+			this.counts[i] += times * (this.counts[i] - this.marked[i]);
+	}
+
+
+	// Getters!!
+	public long getCount(MissType type) {
+		return this.counts[type.ordinal()];
+	}
+	public long getCompulsory() {
+		return this.counts[MissType.COMPULSORY.ordinal()];
+	}
+	public long getCapacity() {
+		return this.counts[MissType.CAPACITY.ordinal()];
+	}
+	public long getConflict() {
+		return this.counts[MissType.CONFLICT.ordinal()];
+	}
+	/**
+	 * Gets the type of the last access if it was a miss, or null if it was a hit.
+	 */
+	public MissType getLastMissType() {
+		return this.last_type;
+	}
+}
@@ -0,0 +1,28 @@
+package memory.cache;
+
+/**
+ * Causes of a miss (the "3C" model):<br>
+ * <li> Compulsory: the first access to the block, any cache would miss.
+ * <li> Capacity: a fully associative LRU cache of the same size would miss too, the cache is too small.
+ * <li> Conflict: a fully associative LRU cache of the same size would hit, the block was evicted because
+ * of the sets (or the replacement policy).
+ *
+ * @see MissClassifier
+ */
+public enum MissType {
+	COMPULSORY ("Compulsory"),
+	CAPACITY ("Capacity"),
+	CONFLICT ("Conflict");
+
+	// Printable name of the type
+	private String str;
+
+	private MissType(String str) {
+		this.str = str;
+	}
+
+	@Override
+	public String toString() {
+		return this.str;
+	}
+}
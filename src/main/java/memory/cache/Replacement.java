@@ -0,0 +1,30 @@
+package memory.cache;
+
+/**
+ * Enumeration of all the replacement policies supported for associative caches.
+ * Direct mapped caches ignore it, as they have a single candidate for any block.
+ *
+ * @see ReplacementPolicy, FactoryCache.createPolicy()
+ */
+public enum Replacement {
+	LRU ("LRU"),
+	FIFO ("FIFO"),
+	RANDOM ("Random"),
+	TREE_PLRU ("Tree pseudo-LRU"),
+	BIT_PLRU ("Bit pseudo-LRU"),
+	SRRIP ("Static RRIP"),
+	BRRIP ("Bimodal RRIP"),
+	LFU ("LFU");
+
+	// Printable name of the policy
+	private String str;
+
+	private Replacement(String str) {
+		this.str = str;
+	}
+
+	@Override
+	public String toString() {
+		return this.str;
+	}
+}
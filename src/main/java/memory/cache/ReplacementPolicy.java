@@ -0,0 +1,83 @@
+package memory.cache;
+
+/**
+ * State and logic of a replacement policy for a cache made of sets of ways (a fully associative cache is
+ * seen as a single set, and a set associative one as many sets of a few ways).<br><br>
+ *
+ * Caches are in charge of filling the empty ways of a set first (in order), so the policy is only asked
+ * to choose a victim when the set is full. It is informed of every hit and every fill, and it must keep all
+ * its state in primitive arrays, as it is updated on every access.<br><br>
+ *
+ * Use FactoryCache.createPolicy() to get the implementation of any Replacement.
+ *
+ * @see Replacement
+ */
+public abstract class ReplacementPolicy implements Cloneable {
+
+	protected final int sets;
+	protected final int ways;
+
+	protected ReplacementPolicy(int sets, int ways) {
+		this.sets = sets;
+		this.ways = ways;
+	}
+
+
+	/**
+	 * Informs the policy that the block in the given way was accessed and found (a hit).
+	 *
+	 * @param set Index of the set
+	 * @param way Number of the way
+	 */
+	public abstract void onHit(int set, int way);
+
+	/**
+	 * Informs the policy that a new block was placed in the given way, either in an empty way or over the
+	 * victim chosen by 'victim()'.
+	 *
+	 * @param set Index of the set
+	 * @param way Number of the way
+	 */
+	public abstract void onFill(int set, int way);
+
+	/**
+	 * Chooses the way whose block will be replaced. It is only called when all the ways of the set hold a
+	 * valid block, and it is always followed by 'onFill()' on the chosen way.
+	 *
+	 * @param set Index of the set
+	 * @return The number of the way to replace
+	 */
+	public abstract int victim(int set);
+
+	/**
+	 * Restarts the policy, as if all the ways of every set were empty.
+	 */
+	public abstract void clean();
+
+	/**
+	 * Creates an independent copy of the policy, in the same state. Policies must override it to copy
+	 * their arrays (this one only makes a shallow copy).
+	 */
+	public ReplacementPolicy copy() {
+		try {
+			return (ReplacementPolicy) super.clone();
+		} catch (CloneNotSupportedException e) {
+			throw new AssertionError(e);
+		}
+	}
+
+	/**
+	 * Computes a hash of all the information of the policy (see StateHash). Two policies in the same state
+	 * must give the same hash, as it is used to find out when a simulation has become periodic.
+	 */
+	public abstract long stateHash();
+
+
+	// Getters!!
+	public int getSets() {
+		return this.sets;
+	}
+	public int getWays() {
+		return this.ways;
+	}
+}
@@ -0,0 +1,80 @@
+package memory.cache.policies;
+
+import java.util.Arrays;
+
+import memory.StateHash;
+import memory.cache.ReplacementPolicy;
+
+/**
+ * Bit pseudo-LRU replacement (also known as MRU bits or not-recently-used).<br><br>
+ *
+ * Each way has a bit that is set when it is accessed. When the last clear bit of a set gets set, all
+ * the other bits of the set are cleared. The victim is the first way whose bit is clear.
+ */
+public class BitPLRUPolicy extends ReplacementPolicy {
+
+	private long[] mru_bits;
+	private int[] count;
+	private int words;
+
+	public BitPLRUPolicy(int sets, int ways) {
+		super(sets, ways);
+		this.words = (ways + 63) >>> 6;
+		this.mru_bits = new long[sets * this.words];
+		this.count = new int[sets];
+	}
+
+	private void touch(int set, int way) {
+		int word = set * this.words + (way >>> 6);
+		long bit = 1L << way;
+		if ((this.mru_bits[word] & bit) != 0)
+			return;
+		this.mru_bits[word] |= bit;
+		if (++this.count[set] == this.ways) {
+			// All the ways were recently used, only the last one is kept
+			Arrays.fill(this.mru_bits, set * this.words, (set + 1) * this.words, 0);
+			this.mru_bits[word] = bit;
+			this.count[set] = 1;
+		}
+	}
+
+	@Override
+	public void onHit(int set, int way) {
+		this.touch(set, way);
+	}
+
+	@Override
+	public void onFill(int set, int way) {
+		this.touch(set, way);
+	}
+
+	@Override
+	public int victim(int set) {
+		int base = set * this.words;
+		for (int w = 0; w < this.words; w++) {
+			long clear = ~this.mru_bits[base + w];
+			if (clear != 0)
+				return (w << 6) + Long.numberOfTrailingZeros(clear);
+		}
+		return 0;
+	}
+
+	@Override
+	public void clean() {
+		Arrays.fill(this.mru_bits, 0);
+		Arrays.fill(this.count, 0);
+	}
+
+	@Override
+	public BitPLRUPolicy copy() {
+		BitPLRUPolicy copy = (BitPLRUPolicy) super.copy();
+		copy.mru_bits = this.mru_bits.clone();
+		copy.count = this.count.clone();
+		return copy;
+	}
+
+	@Override
+	public long stateHash() {
+		return StateHash.combine(0, this.mru_bits);
+	}
+}
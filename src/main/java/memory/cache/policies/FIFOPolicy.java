@@ -0,0 +1,55 @@
+package memory.cache.policies;
+
+import java.util.Arrays;
+
+import memory.StateHash;
+import memory.cache.ReplacementPolicy;
+
+/**
+ * FIFO replacement: the block that has been in the set for more time is replaced, no matter how many
+ * times it was accessed. As empty ways are filled in order, it is enough to keep a round-robin pointer
+ * per set.
+ */
+public class FIFOPolicy extends ReplacementPolicy {
+
+	// Next way to replace in each set
+	private int[] next_out;
+
+	public FIFOPolicy(int sets, int ways) {
+		super(sets, ways);
+		this.next_out = new int[sets];
+	}
+
+	@Override
+	public void onHit(int set, int way) {
+		// Hits do not change the order of arrival
+	}
+
+	@Override
+	public void onFill(int set, int way) {
+		if (this.next_out[set] == way)
+			this.next_out[set] = (way + 1 == this.ways) ? 0 : way + 1;
+	}
+
+	@Override
+	public int victim(int set) {
+		return this.next_out[set];
+	}
+
+	@Override
+	public void clean() {
+		Arrays.fill(this.next_out, 0);
+	}
+
+	@Override
+	public FIFOPolicy copy() {
+		FIFOPolicy copy = (FIFOPolicy) super.copy();
+		copy.next_out = this.next_out.clone();
+		return copy;
+	}
+
+	@Override
+	public long stateHash() {
+		return StateHash.combine(0, this.next_out);
+	}
+}
@@ -0,0 +1,64 @@
+package memory.cache.policies;
+
+import java.util.Arrays;
+
+import memory.StateHash;
+import memory.cache.ReplacementPolicy;
+
+/**
+ * LFU replacement: the way with less accesses since it was filled is replaced (the first one on a tie).
+ * Finding the victim visits every way of the set, so it is meant for set associative caches rather
+ * than big fully associative ones.
+ */
+public class LFUPolicy extends ReplacementPolicy {
+
+	private int[] counts;
+
+	public LFUPolicy(int sets, int ways) {
+		super(sets, ways);
+		this.counts = new int[sets * ways];
+	}
+
+	@Override
+	public void onHit(int set, int way) {
+		int entry = set * this.ways + way;
+		if (this.counts[entry] != Integer.MAX_VALUE)
+			this.counts[entry]++;
+	}
+
+	@Override
+	public void onFill(int set, int way) {
+		this.counts[set * this.ways + way] = 1;
+	}
+
+	@Override
+	public int victim(int set) {
+		int first = set * this.ways;
+		int min = Integer.MAX_VALUE;
+		int victim = 0;
+		for (int i = 0; i < this.ways; i++) {
+			if (this.counts[first + i] < min) {
+				min = this.counts[first + i];
+				victim = i;
+			}
+		}
+		return victim;
+	}
+
+	@Override
+	public void clean() {
+		Arrays.fill(this.counts, 0);
+	}
+
+	@Override
+	public LFUPolicy copy() {
+		LFUPolicy copy = (LFUPolicy) super.copy();
+		copy.counts = this.counts.clone();
+		return copy;
+	}
+
+	@Override
+	public long stateHash() {
+		return StateHash.combine(0, this.counts);
+	}
+}
@@ -0,0 +1,109 @@
+package memory.cache.policies;
+
+import java.util.Arrays;
+
+import memory.StateHash;
+import memory.cache.ReplacementPolicy;
+
+/**
+ * LRU replacement for sets of any number of ways (e.g. big fully associative caches).<br><br>
+ *
+ * The ways of each set form an intrusive doubly linked list, from the most recently used (head)
+ * to the least recently used (tail), held in arrays indexed by (set * ways + way). Moving a way
+ * to the head takes constant time no matter how many ways there are.
+ */
+public class LRUListPolicy extends ReplacementPolicy {
+
+	// End of a list, and mark of the ways that are not in the list (empty ways)
+	private final static int NONE = -1;
+	private final static int UNLINKED = -2;
+
+	private int[] prev;
+	private int[] next;
+	private int[] head;
+	private int[] tail;
+
+	public LRUListPolicy(int sets, int ways) {
+		super(sets, ways);
+		this.prev = new int[sets * ways];
+		this.next = new int[sets * ways];
+		this.head = new int[sets];
+		this.tail = new int[sets];
+		this.clean();
+	}
+
+	/**
+	 * Takes the entry out of the list of its set.
+	 */
+	private void unlink(int set, int entry) {
+		int p = this.prev[entry];
+		int n = this.next[entry];
+		if (p == NONE)
+			this.head[set] = n;
+		else
+			this.next[p] = n;
+		if (n == NONE)
+			this.tail[set] = p;
+		else
+			this.prev[n] = p;
+	}
+
+	/**
+	 * Puts the entry (which must not be in the list) as the most recently used of its set.
+	 */
+	private void linkFirst(int set, int entry) {
+		int h = this.head[set];
+		this.prev[entry] = NONE;
+		this.next[entry] = h;
+		if (h == NONE)
+			this.tail[set] = entry;
+		else
+			this.prev[h] = entry;
+		this.head[set] = entry;
+	}
+
+
+	@Override
+	public void onHit(int set, int way) {
+		int entry = set * this.ways + way;
+		if (this.head[set] == entry)
+			return;
+		this.unlink(set, entry);
+		this.linkFirst(set, entry);
+	}
+
+	@Override
+	public void onFill(int set, int way) {
+		int entry = set * this.ways + way;
+		if (this.prev[entry] != UNLINKED)
+			this.unlink(set, entry);
+		this.linkFirst(set, entry);
+	}
+
+	@Override
+	public int victim(int set) {
+		return this.tail[set] - set * this.ways;
+	}
+
+	@Override
+	public void clean() {
+		Arrays.fill(this.prev, UNLINKED);
+		Arrays.fill(this.head, NONE);
+		Arrays.fill(this.tail, NONE);
+	}
+
+	@Override
+	public LRUListPolicy copy() {
+		LRUListPolicy copy = (LRUListPolicy) super.copy();
+		copy.prev = this.prev.clone();
+		copy.next = this.next.clone();
+		copy.head = this.head.clone();
+		copy.tail = this.tail.clone();
+		return copy;
+	}
+
+	@Override
+	public long stateHash() {
+		return StateHash.combine(StateHash.combine(StateHash.combine(0, this.prev), this.next), this.head);
+	}
+}
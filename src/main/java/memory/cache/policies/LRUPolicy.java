@@ -0,0 +1,117 @@
+package memory.cache.policies;
+
+import java.util.Arrays;
+
+import memory.StateHash;
+import memory.cache.ReplacementPolicy;
+
+/**
+ * LRU replacement for sets of up to 64 ways.<br><br>
+ *
+ * Each way has a rank, packed as one byte per way (eight per long, way 0 of set 0 in the lowest byte of
+ * the first long): the most recently used way of a set has rank 0 and the LRU has rank (ways-1). Empty
+ * ways hold EMPTY, which is higher than any rank. When a way is accessed, all the ways with a lower rank get
+ * one rank older; this is done with word-parallel operations over the longs, eight ways at a time, so the
+ * cost of an access does not depend on which way was accessed.
+ */
+public class LRUPolicy extends ReplacementPolicy {
+
+	// Biggest number of ways supported (ranks must fit in 7 bits)
+	public final static int MAX_WAYS = 64;
+
+	// LANES has the lowest bit of each byte set, and HIGH_BITS the highest one
+	private final static long LANES = 0x0101010101010101L;
+	private final static long HIGH_BITS = 0x8080808080808080L;
+	private final static int EMPTY = 0x7F;
+
+	private long[] ranks;
+	private long lanes_mask;
+
+	public LRUPolicy(int sets, int ways) {
+		super(sets, ways);
+		this.ranks = new long[(sets * ways + 7) >>> 3];
+		// Lowest bit of the bytes of one set (sets of less than 8 ways share a long)
+		this.lanes_mask = (ways >= 8) ? LANES : LANES & ((1L << (ways << 3)) - 1);
+		this.clean();
+	}
+
+	/**
+	 * Gets the lanes of a long of ranks that belong to the set whose first way is 'first', as a mask
+	 * with the lowest bit of each of those bytes.
+	 */
+	private long setLanes(int first) {
+		if (this.ways >= 8)
+			return LANES;
+		return this.lanes_mask << ((first & 7) << 3);
+	}
+
+	private int rank(int entry) {
+		return (int) (this.ranks[entry >>> 3] >>> ((entry & 7) << 3)) & 0xFF;
+	}
+
+	private void setRank(int entry, int rank) {
+		int shift = (entry & 7) << 3;
+		long word = this.ranks[entry >>> 3] & ~(0xFFL << shift);
+		this.ranks[entry >>> 3] = word | ((long) rank << shift);
+	}
+
+
+	@Override
+	public void onHit(int set, int way) {
+		int first = set * this.ways;
+		int rank = this.rank(first + way);
+		if (rank == 0)
+			return;
+
+		// (0x80 + rank - 1) - r has the highest bit of the lane set if r < rank, so only the
+		// more recent ways (and never the empty ones) get older
+		long lanes = this.setLanes(first);
+		long limit = ((rank - 1) * LANES) | HIGH_BITS;
+		int lastWord = (first + this.ways - 1) >>> 3;
+		for (int w = first >>> 3; w <= lastWord; w++) {
+			long r = this.ranks[w];
+			this.ranks[w] = r + ((((limit - r) & HIGH_BITS) >>> 7) & lanes);
+		}
+		this.setRank(first + way, 0);
+	}
+
+	@Override
+	public void onFill(int set, int way) {
+		// The filled way was either empty or the LRU, so every other valid way gets older
+		// exactly as in a hit
+		this.onHit(set, way);
+	}
+
+	@Override
+	public int victim(int set) {
+		// The LRU is the only lane whose rank is (ways-1)
+		int first = set * this.ways;
+		long lanes = this.setLanes(first);
+		long target = (this.ways - 1) * LANES;
+		int lastWord = (first + this.ways - 1) >>> 3;
+		for (int w = first >>> 3; w <= lastWord; w++) {
+			long diff = this.ranks[w] ^ target;
+			long equal = ~(((diff & ~HIGH_BITS) + ~HIGH_BITS) | diff) & (lanes << 7);
+			if (equal != 0)
+				return (w << 3) + (Long.numberOfTrailingZeros(equal) >>> 3) - first;
+		}
+		return 0;
+	}
+
+	@Override
+	public void clean() {
+		Arrays.fill(this.ranks, EMPTY * LANES);
+	}
+
+	@Override
+	public LRUPolicy copy() {
+		LRUPolicy copy = (LRUPolicy) super.copy();
+		copy.ranks = this.ranks.clone();
+		return copy;
+	}
+
+	@Override
+	public long stateHash() {
+		return StateHash.combine(0, this.ranks);
+	}
+}
@@ -0,0 +1,108 @@
+package memory.cache.policies;
+
+import java.util.Arrays;
+
+import memory.StateHash;
+import memory.cache.ReplacementPolicy;
+
+/**
+ * Re-reference interval prediction (RRIP) replacement, with 2-bit prediction values.<br><br>
+ *
+ * Each way holds a re-reference prediction value (RRPV): 0 means the block is expected to be used again
+ * soon, and DISTANT that it is not. A hit sets the RRPV to 0, and the victim is the first way predicted
+ * DISTANT (if there is none, all the ways of the set get older until one is).<br>
+ * New blocks are inserted with a 'long' prediction (DISTANT - 1) by the static version (SRRIP). The bimodal
+ * version (BRRIP) inserts them as DISTANT, except for one out of BIMODAL_THROTTLE fills (chosen at random
+ * with a fixed seed), which makes it resistant to scans and thrashing loops.
+ */
+public class RRIPPolicy extends ReplacementPolicy {
+
+	private final static int DISTANT = 3;
+	private final static int BIMODAL_THROTTLE = 32;
+
+	private byte[] rrpv;
+	private boolean bimodal;
+	private long seed;
+	private long state;
+
+	/**
+	 * Creates a static RRIP policy.
+	 */
+	public RRIPPolicy(int sets, int ways) {
+		this(sets, ways, false, 1);
+	}
+
+	/**
+	 * Creates a static or bimodal RRIP policy.
+	 *
+	 * @param bimodal true for BRRIP, false for SRRIP
+	 * @param seed Seed of the generator used by BRRIP to choose the long insertions
+	 */
+	public RRIPPolicy(int sets, int ways, boolean bimodal, long seed) {
+		super(sets, ways);
+		this.rrpv = new byte[sets * ways];
+		this.bimodal = bimodal;
+		this.seed = (seed == 0) ? 0x9E3779B97F4A7C15L : seed;
+		this.clean();
+	}
+
+	private int insertion() {
+		if (!this.bimodal)
+			return DISTANT - 1;
+		long x = this.state;
+		x ^= x << 13;
+		x ^= x >>> 7;
+		x ^= x << 17;
+		this.state = x;
+		return ((x >>> 1) % BIMODAL_THROTTLE == 0) ? DISTANT - 1 : DISTANT;
+	}
+
+	@Override
+	public void onHit(int set, int way) {
+		this.rrpv[set * this.ways + way] = 0;
+	}
+
+	@Override
+	public void onFill(int set, int way) {
+		this.rrpv[set * this.ways + way] = (byte) this.insertion();
+	}
+
+	@Override
+	public int victim(int set) {
+		// Finds the first way with the highest RRPV, and ages the set as many times as needed
+		// for it to become DISTANT
+		int first = set * this.ways;
+		int max = -1;
+		int victim = 0;
+		for (int i = 0; i < this.ways; i++) {
+			if (this.rrpv[first + i] > max) {
+				max = this.rrpv[first + i];
+				victim = i;
+			}
+		}
+		if (max < DISTANT) {
+			int aging = DISTANT - max;
+			for (int i = 0; i < this.ways; i++)
+				this.rrpv[first + i] += aging;
+		}
+		return victim;
+	}
+
+	@Override
+	public void clean() {
+		Arrays.fill(this.rrpv, (byte) DISTANT);
+		this.state = this.seed;
+	}
+
+	@Override
+	public RRIPPolicy copy() {
+		RRIPPolicy copy = (RRIPPolicy) super.copy();
+		copy.rrpv = this.rrpv.clone();
+		return copy;
+	}
+
+	@Override
+	public long stateHash() {
+		return StateHash.combine(this.state, this.rrpv);
+	}
+}
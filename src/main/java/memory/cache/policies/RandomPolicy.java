@@ -0,0 +1,55 @@
+package memory.cache.policies;
+
+import memory.StateHash;
+import memory.cache.ReplacementPolicy;
+
+/**
+ * Random replacement. The victims are taken from a xorshift generator whose seed is given on creation,
+ * so that the same sequence of accesses always gives the same results (also after a clean()).
+ */
+public class RandomPolicy extends ReplacementPolicy {
+
+	private long seed;
+	private long state;
+
+	public RandomPolicy(int sets, int ways, long seed) {
+		super(sets, ways);
+		// The state of a xorshift generator can not be 0
+		this.seed = (seed == 0) ? 0x9E3779B97F4A7C15L : seed;
+		this.state = this.seed;
+	}
+
+	@Override
+	public void onHit(int set, int way) {
+	}
+
+	@Override
+	public void onFill(int set, int way) {
+	}
+
+	@Override
+	public int victim(int set) {
+		long x = this.state;
+		x ^= x << 13;
+		x ^= x >>> 7;
+		x ^= x << 17;
+		this.state = x;
+		return (int) ((x >>> 1) % this.ways);
+	}
+
+	@Override
+	public void clean() {
+		this.state = this.seed;
+	}
+
+	@Override
+	public RandomPolicy copy() {
+		// Only primitive fields
+		return (RandomPolicy) super.copy();
+	}
+
+	@Override
+	public long stateHash() {
+		return StateHash.mix(this.state);
+	}
+}
@@ -0,0 +1,81 @@
+package memory.cache.policies;
+
+import java.util.Arrays;
+
+import memory.StateHash;
+import memory.cache.ReplacementPolicy;
+
+/**
+ * Tree pseudo-LRU replacement (the number of ways must be a power of 2).<br><br>
+ *
+ * The ways of a set are the leaves of a binary tree, and each of the (ways-1) inner nodes holds a bit
+ * telling on which half the victim should be looked for (1 meaning the upper half). Nodes are numbered
+ * as in a heap (root is 1, and the children of n are 2n and 2n+1), so the leaf of way w is (ways + w).
+ * An access makes every node on the path to its leaf point away from it, and the victim is found by
+ * following the bits from the root.
+ */
+public class TreePLRUPolicy extends ReplacementPolicy {
+
+	private long[] tree;
+	private int words;
+	private int levels;
+
+	public TreePLRUPolicy(int sets, int ways) {
+		super(sets, ways);
+		this.words = (ways + 63) >>> 6;
+		this.levels = Integer.numberOfTrailingZeros(ways);
+		this.tree = new long[sets * this.words];
+	}
+
+	private void touch(int set, int way) {
+		int base = set * this.words;
+		int node = 1;
+		for (int level = this.levels - 1; level >= 0; level--) {
+			int upper = (way >>> level) & 1;
+			int word = base + (node >>> 6);
+			if (upper == 0)
+				this.tree[word] |= 1L << node;
+			else
+				this.tree[word] &= ~(1L << node);
+			node = (node << 1) | upper;
+		}
+	}
+
+	@Override
+	public void onHit(int set, int way) {
+		this.touch(set, way);
+	}
+
+	@Override
+	public void onFill(int set, int way) {
+		this.touch(set, way);
+	}
+
+	@Override
+	public int victim(int set) {
+		int base = set * this.words;
+		int node = 1;
+		for (int level = 0; level < this.levels; level++) {
+			int upper = (int) (this.tree[base + (node >>> 6)] >>> node) & 1;
+			node = (node << 1) | upper;
+		}
+		return node - this.ways;
+	}
+
+	@Override
+	public void clean() {
+		Arrays.fill(this.tree, 0);
+	}
+
+	@Override
+	public TreePLRUPolicy copy() {
+		TreePLRUPolicy copy = (TreePLRUPolicy) super.copy();
+		copy.tree = this.tree.clone();
+		return copy;
+	}
+
+	@Override
+	public long stateHash() {
+		return StateHash.combine(0, this.tree);
+	}
+}
@@ -1,8 +1,12 @@
 package memory.cache.types;
 
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
 import memory.MainMemory;
-import memory.MemoryResults;
 import memory.MemorySystem;
+import memory.PackedResults;
+import memory.StateHash;
 import memory.cache.Associativity;
 import memory.cache.Cache;
 import memory.cache.CacheEntry;
@@ -12,10 +16,12 @@ import memory.cache.CacheEntry;
  */
 public class CacheDM extends Cache implements MemorySystem {
 	
-	// It uses a simple array, as it is an indexed cache
-	private CacheEntry[] cache_table;
+	// It uses simple arrays, as it is an indexed cache: the block address and valid bit of each entry
+	private int[] tags;
+	private boolean[] valid;
 	private int entries;
 	private char entries_mag;
+	private int index_mask;
 	
 	// Default values for default constructor
 	private final static int BLOCK_SIZE_DEF = 64;		// 16 words
@@ -32,12 +38,9 @@ public class CacheDM extends Cache implements MemorySystem {
 		
 		this.entries = this.info.cache_size/this.info.block_size;
 		this.entries_mag = compute_mag(entries);
-		this.cache_table = new CacheEntry[entries];
-		for (int i = 0; i < this.entries; i++) {
-			this.cache_table[i] = new CacheEntry();
-			this.cache_table[i].valid = false;
-		}
-		
+		this.index_mask = entries - 1;
+		this.tags = new int[entries];
+		this.valid = new boolean[entries];
 	}
 	public CacheDM(int block_size, int cache_size, int hit_time) {
 		super(block_size, cache_size, hit_time);
@@ -47,11 +50,9 @@ public class CacheDM extends Cache implements MemorySystem {
 		
 		this.entries = cache_size/block_size;
 		this.entries_mag = compute_mag(entries);
-		this.cache_table = new CacheEntry[entries];
-		for (int i = 0; i < this.entries; i++) {
-			this.cache_table[i] = new CacheEntry();
-			this.cache_table[i].valid = false;
-		}
+		this.index_mask = entries - 1;
+		this.tags = new int[entries];
+		this.valid = new boolean[entries];
 	}			
 	
 	/**
@@ -61,24 +62,16 @@ public class CacheDM extends Cache implements MemorySystem {
 	 * @return The index of the address in the cache.
 	 */
 	private int computeIndex(int address) {
-		address = address >> block_mag;
-		int mask = 0;
-		int i = entries_mag;
-		while (i > 0) {
-			mask = mask << 1;
-			mask |= 0x1;
-			i--;
-		}
-		return address & mask;
+		// The mask is computed once in the constructor
+		return (address >>> block_mag) & this.index_mask;
 	}
 
 	
 	// Clean and inMemory methods	
 	@Override
 	public void clean() {
-		for (int i = 0; i < this.entries; i++) {
-			this.cache_table[i].valid = false;
-		}
+		Arrays.fill(this.valid, false);
+		this.content_hash = 0;
 		super.cleanCounters();
 	}
 	@Override
@@ -87,49 +80,81 @@ public class CacheDM extends Cache implements MemorySystem {
 		int index = this.computeIndex(address);
 		// A block is in the cache if the entry in the respective index is valid
 		// and the block addresses match
-		CacheEntry block = this.cache_table[index];
-		return (block.valid && block.block_address == blockAddress);
+		return (this.valid[index] && this.tags[index] == blockAddress);
 	}
 	
 	// Access method	
 	@Override
-	public MemoryResults access(Integer address) {
+	public long accessPacked(int address) {
 		this.references++;
+		this.erasedBlock = false;
 		
 		// Get index and block address
 		int blockAddress = this.findBlockAddress(address);
 		int index = this.computeIndex(address);
-		MemoryResults result = null;
 		
-		// Get the entry which is at the same index
-		CacheEntry block = this.cache_table[index];
+		// If the entry at the same index is valid, report a hit directly (the block position is the index here)
+		if (this.valid[index] && this.tags[index] == blockAddress)
+			return this.recordAccess(address, index, PackedResults.hit(this.info.hit_time));
 		
-		// If the entry is valid...
-		if (block.valid && block.block_address == blockAddress) {
-			// Report valid and generate results directly (the block position is the index here)
-			result = new MemoryResults(true, this.info.hit_time, address);
-			result.setBlockPosition(index);
+		// Otherwise, an access to the next level is required
+		long nextLvl = this.next_level.accessPacked(address);
+		this.misses++;
+		
+		// Before storing the missing block in the cache, we check if the previous entry was valid
+		// if so, we record the removed block
+		if (this.valid[index]) {
+			this.evictions++;
+			this.erasedBlock = true;
+			this.erasedBlockAddress = this.tags[index];
+			this.content_hash ^= StateHash.entry(index, this.erasedBlockAddress);
 		} else {
-			// Otherwise, an access to the next level is required
-			MemoryResults nextLvl = this.next_level.access(address);
-			result = new MemoryResults(false, this.info.hit_time + nextLvl.getAccessTime(), address);
-			this.misses++;
-			
-			// Before storing the missing block in the cache, we check if the previous entry was valid
-			// if so, we record the removed block
-			if (block.valid)
-				result.setRemovedBlock(block.block_address);
-			else
-				block.valid = true;
-			
-			// Overwriting the missing block
-			block.block_address = blockAddress;
+			this.valid[index] = true;
+		}
+		
+		// Overwriting the missing block
+		this.tags[index] = blockAddress;
+		this.content_hash ^= StateHash.entry(index, blockAddress);
 		
-			// and updating return results
-			result.setNextLevelResult(nextLvl);
-			result.setBlockPosition(index);
+		return this.recordAccess(address, index, PackedResults.miss(this.info.hit_time, nextLvl, this.erasedBlock));
+	}
+	
+	
+	// Batch access methods. They are implemented in every type of cache (instead of once in Cache)
+	// so that the loop calls a single implementation of 'accessPacked()' and can be fully optimized.
+	@Override
+	public long accessBatch(int[] addresses, int offset, int length, long[] results) {
+		long time = 0;
+		int end = offset + length;
+		for (int i = offset; i < end; i++) {
+			long packed = this.accessPacked(addresses[i]);
+			if (results != null)
+				results[i] = packed;
+			time += PackedResults.getAccessTime(packed);
 		}
-		return result;
+		return time;
+	}
+	@Override
+	public long accessBatch(IntBuffer addresses, long[] results) {
+		long time = 0;
+		int start = addresses.position();
+		int length = addresses.remaining();
+		for (int i = 0; i < length; i++) {
+			long packed = this.accessPacked(addresses.get(start + i));
+			if (results != null)
+				results[i] = packed;
+			time += PackedResults.getAccessTime(packed);
+		}
+		addresses.position(start + length);
+		return time;
+	}
+	
+	
+	// Copy of the arrays (see Cache.copy())
+	@Override
+	protected void copyContents() {
+		this.tags = this.tags.clone();
+		this.valid = this.valid.clone();
 	}
 	
 	
@@ -140,8 +165,8 @@ public class CacheDM extends Cache implements MemorySystem {
 		
 		for (int i = 0; i < this.entries; i++) {
 			array[i] = new CacheEntry();
-			array[i].valid = this.cache_table[i].valid;
-			array[i].block_address = this.cache_table[i].block_address;
+			array[i].valid = this.valid[i];
+			array[i].block_address = this.tags[i];
 		}
 		
 		return array;
@@ -1,194 +1,180 @@
 package memory.cache.types;
-import java.util.Iterator;
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.nio.IntBuffer;
 
 import memory.MainMemory;
-import memory.MemoryResults;
 import memory.MemorySystem;
+import memory.PackedResults;
+import memory.StateHash;
 import memory.cache.Associativity;
+import memory.cache.BlockMap;
 import memory.cache.Cache;
 import memory.cache.CacheEntry;
+import memory.cache.FactoryCache;
+import memory.cache.Replacement;
+import memory.cache.ReplacementPolicy;
 
 /**
- * Fully associative cache implementation (with LRU replacement policy)
+ * Fully associative cache implementation (with LRU replacement policy by default, see Replacement)
  */
 public class CacheFA extends Cache implements MemorySystem {
-	
-	/* As the implementation will use an extension of LinkedHashMap to easily keep
-	 * track of LRU information; we need a way to keep track of the initial ordering
-	 * of the entries. This is because the LinkedHashMap will reorder the entries according
-	 * to the LRU status, and we wish to keep the entries enumerated.
-	 */ 
-	
-	// Nested class with extended entry information (position or number of the entry)
-	private class CacheEntryFA extends CacheEntry {
-		public int position;
-		
-		public CacheEntryFA() {
-			super();
-			this.position = 0;
-		}
-	}
-		
-	// Nested class, a custom extension of LinkedHashMap to make LRU replacement when
-	// number of entries get above the capacity
-	private class CacheLRUTable<K, V> extends LinkedHashMap<K, V> {
-		private static final long serialVersionUID = 1L;
-		
-		// Maximum number of entries allowed in the cache
-		private int max_size;
-		
-		// These variables will track and keep information of any replacements made
-		private V blockToRemove;
-		private boolean blockRemoved;
-		
-		/**
-		 * Creates a new CacheLRUTable() and set the upper bound to the number of entries it will
-		 * be able to hold.
-		 *  
-		 * @param max_size The maximum amount of entries.
-		 */
-		public CacheLRUTable(int max_size) {
-			// The last parameter of the LinkedHashMap set to true means
-			// the LRU information will be updated not only when we call put(), but also when we call get()
-			super(max_size, 1.0f, true);
-			this.max_size = max_size;
-			this.blockRemoved = false;
-		}
-		
-		/* This method will be called by LinkedHashMap every time we add a new entry (after the put has ended). If it returns true,
-		 * the LRU entry (the parameter eldest) will be deleted. We use this method to check whether the new
-		 * insertion has over-flown the cache size, and if so; we mark the eldest entry for deletion and return true.
-		 * This keeps the size of the cache fixed and allows us to later get access to the removed block.
-		 */
-		 @Override
-		 protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
-			 this.blockRemoved = false;
-			 // If the last insertion has made the collection bigger than the maximum size, the about to be removed block
-			 // gets saved in the auxiliary variables and true is returned.
-			 boolean mustRemove = this.size() > max_size;
-			 if (mustRemove) {
-				 this.blockRemoved = true;
-				 this.blockToRemove = eldest.getValue();
-			 }
-			 return mustRemove;
-		 }
-		 
-		 // These methods allow to check if any block was removed, and in that case, to get access to its address.
-		 public boolean wasRemoved() {
-			 return this.blockRemoved;
-		 }		 
-		 public V getRemovedBlock() {
-			 return this.blockToRemove;
-		 }		 
-	}
-		
+
+	/* The entries of the cache are enumerated by their position (the index they have in the
+	 * array returned by 'cacheToArray()'). A new block takes the first unused position while the
+	 * cache is not full, and afterwards the position of the block it replaces.
+	 *
+	 * All the information is held in primitive arrays indexed by position:
+	 * - tags: the block address of each entry (only the first 'used' entries are valid).
+	 * - block_table: a BlockMap from block address to the position of the block, to find
+	 *   blocks without boxing nor scanning.
+	 *
+	 * The replacement policy sees the cache as a single set whose ways are the positions. With LRU (an
+	 * intrusive list for big caches), both a lookup and the update on every access take constant time
+	 * and create no objects.
+	 */
+
 	// Default constants
 
 	private final static int BLOCK_SIZE_DEF = 0x40;		// 16 words
 	private final static int CACHE_SIZE_DEF = 0x800;	// 2kb
 	private final static int HIT_TIME_DEF = 10;
-	
+
 	// The actual structure of the cache
-	private CacheLRUTable<Integer, CacheEntryFA> cache_table;
+	private BlockMap block_table;
+	private int[] tags;
+	private ReplacementPolicy policy;
+	private int used;
 	private int entries;
-	
+
 	// Default and specific constructors
 	public CacheFA() {
-		super(BLOCK_SIZE_DEF, CACHE_SIZE_DEF, HIT_TIME_DEF);
-		
-		this.info.associativity = Associativity.FULLY_ASSOCIATIVE;
-		this.next_level = new MainMemory();
-		
-		this.entries = this.info.cache_size/this.info.block_size;
-		this.cache_table = new CacheLRUTable<Integer, CacheEntryFA>(entries);
-	}	
+		this(BLOCK_SIZE_DEF, CACHE_SIZE_DEF, HIT_TIME_DEF);
+	}
 	public CacheFA(int block_size, int cache_size, int hit_time) {
+		this(block_size, cache_size, hit_time, Replacement.LRU);
+	}
+	public CacheFA(int block_size, int cache_size, int hit_time, Replacement replacement) {
 		super(block_size, cache_size, hit_time);
-		
+
 		this.info.associativity = Associativity.FULLY_ASSOCIATIVE;
 		this.next_level = new MainMemory();
-		
+
 		this.entries = this.info.cache_size/this.info.block_size;
-		this.cache_table = new CacheLRUTable<Integer, CacheEntryFA>(entries);
-	}		
+		this.block_table = new BlockMap(entries);
+		this.tags = new int[entries];
+		this.info.replacement = replacement;
+		this.policy = FactoryCache.createPolicy(replacement, 1, entries);
+		this.used = 0;
+	}
 
-	
-	
+
+	@Override
+	protected long replacementHash() {
+		return this.policy.stateHash();
+	}
 	@Override
 	public void clean() {
-		this.cache_table.clear();		
+		this.block_table.clear();
+		this.policy.clean();
+		this.content_hash = 0;
+		this.used = 0;
 		super.cleanCounters();
 	}
 	@Override
 	public boolean inMemory(Integer address) {
 		int blockAddress = this.findBlockAddress(address);
-		// Note that 'containsKey()' does not count as an access, so it does not update LRU info
-		return this.cache_table.containsKey(blockAddress);
+		// Note that looking into the table does not count as an access, so it does not update the policy
+		return this.block_table.get(blockAddress) != BlockMap.NOT_FOUND;
 	}
-	
+
 	// Access method!
 	@Override
-	public MemoryResults access(Integer address) {
+	public long accessPacked(int address) {
 		this.references++;
+		this.erasedBlock = false;
 		int blockAddress = this.findBlockAddress(address);
-		MemoryResults result = null;
-		
-		// Check if the address is in the CacheLRUTable
-		if (this.cache_table.containsKey(blockAddress)) {
-			
-			// As the block is in cache, we use the 'get' method to obtain its information
-			// this not only allows us to inform the position but also updates the LRU information
-			CacheEntryFA act = this.cache_table.get(blockAddress);
-			result = new MemoryResults(true, this.info.hit_time, address);
-			result.setBlockPosition(act.position);
+
+		// If the block is in cache, the policy is informed (with LRU, it becomes the most recently used)
+		int position = this.block_table.get(blockAddress);
+		if (position != BlockMap.NOT_FOUND) {
+			this.policy.onHit(0, position);
+			return this.recordAccess(address, position, PackedResults.hit(this.info.hit_time));
+		}
+
+		long nextLvl = this.next_level.accessPacked(address);
+		this.misses++;
+
+		// The block is not in the cache... if the cache is not full yet, the block takes the first
+		// unused position. No block replacement is needed here. Otherwise, the block overwrites
+		// the entry chosen by the policy (the LRU one by default), and takes its position.
+		if (this.used < this.entries) {
+			position = this.used++;
 		} else {
-			MemoryResults nextLvl = this.next_level.access(address);
-			result = new MemoryResults(false, this.info.hit_time + nextLvl.getAccessTime(), address);
-			result.setNextLevelResult(nextLvl);
-			this.misses++;
-						
-			// The block is not in the cache... if the size of our CacheLRUTable has not yet reach
-			// its maximum, we simply create a new entry and store it in the cache. No block replacement is
-			// needed here. Otherwise, the block overwrite some previous entry, in which case the position
-			// info of the new entry gets updated.
-
-			CacheEntryFA newEntry = new CacheEntryFA();
-			newEntry.block_address = blockAddress;
-			newEntry.position = this.cache_table.size();
-			this.cache_table.put(blockAddress, newEntry);
-			
-			if (this.cache_table.wasRemoved()) {
-				newEntry.position = this.cache_table.getRemovedBlock().position;
-				result.setRemovedBlock(this.cache_table.getRemovedBlock().block_address);
-			}
-			
-			result.setBlockPosition(newEntry.position);
+			position = this.policy.victim(0);
+			this.evictions++;
+			this.erasedBlock = true;
+			this.erasedBlockAddress = this.tags[position];
+			this.block_table.remove(this.erasedBlockAddress);
+			this.content_hash ^= StateHash.entry(position, this.erasedBlockAddress);
 		}
-		return result;
+		this.tags[position] = blockAddress;
+		this.content_hash ^= StateHash.entry(position, blockAddress);
+		this.block_table.put(blockAddress, position);
+		this.policy.onFill(0, position);
+
+		return this.recordAccess(address, position, PackedResults.miss(this.info.hit_time, nextLvl, this.erasedBlock));
+	}
+
+
+	// Batch access methods (see CacheDM)
+	@Override
+	public long accessBatch(int[] addresses, int offset, int length, long[] results) {
+		long time = 0;
+		int end = offset + length;
+		for (int i = offset; i < end; i++) {
+			long packed = this.accessPacked(addresses[i]);
+			if (results != null)
+				results[i] = packed;
+			time += PackedResults.getAccessTime(packed);
+		}
+		return time;
+	}
+	@Override
+	public long accessBatch(IntBuffer addresses, long[] results) {
+		long time = 0;
+		int start = addresses.position();
+		int length = addresses.remaining();
+		for (int i = 0; i < length; i++) {
+			long packed = this.accessPacked(addresses.get(start + i));
+			if (results != null)
+				results[i] = packed;
+			time += PackedResults.getAccessTime(packed);
+		}
+		addresses.position(start + length);
+		return time;
+	}
+
+
+	// Copy of the arrays (see Cache.copy())
+	@Override
+	protected void copyContents() {
+		this.block_table = this.block_table.copy();
+		this.tags = this.tags.clone();
+		this.policy = this.policy.copy();
 	}
 	
 	
-	
-
 	// cacheToArray() and numberOfEntries() methods
 	@Override
 	public CacheEntry[] cacheToArray() {
 		CacheEntry[] array = new CacheEntry[this.entries];
-		
+
+		// Only the used positions hold valid blocks
 		for (int i = 0; i < this.entries; i++) {
 			array[i] = new CacheEntry();
-			array[i].valid = false;
+			array[i].valid = i < this.used;
+			array[i].block_address = this.tags[i];
 		}
-		
-		Iterator<CacheEntryFA> iter = this.cache_table.values().iterator();
-		while (iter.hasNext()) {
-			CacheEntryFA act = iter.next();
-			array[act.position].valid = true;
-			array[act.position].block_address = act.block_address;
-		}		
-		
+
 		return array;
 	}
 	@Override
@@ -196,5 +182,5 @@ public class CacheFA extends Cache implements MemorySystem {
 		return this.info.cache_size/this.info.block_size;
 	}
 
-	
+
 }
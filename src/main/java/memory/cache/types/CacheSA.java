@@ -1,170 +1,65 @@
 package memory.cache.types;
 
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
 import memory.MainMemory;
-import memory.MemoryResults;
 import memory.MemorySystem;
+import memory.PackedResults;
+import memory.StateHash;
 import memory.cache.Associativity;
 import memory.cache.Cache;
 import memory.cache.CacheEntry;
+import memory.cache.FactoryCache;
+import memory.cache.Replacement;
+import memory.cache.ReplacementPolicy;
 
 /**
- * Set associative cache implementation (with LRU replacement policy)
+ * Set associative cache implementation (with LRU replacement policy by default, see Replacement)
  */
 public class CacheSA extends Cache implements MemorySystem {
-	
-	// This type of cache will be represented as array of sets. Each set will have
-	// as many entries as the number of ways, and will keep track of its own LRU information
-	
-	/**
-	 * Nested class that represents a set of cache entries
+
+	/* This type of cache is stored in flat arrays instead of one object per set and entry, so that
+	 * big caches (e.g. a last level cache with millions of entries) take little memory and a lookup does
+	 * not need to chase references. Every entry has a number, which is the position of the block in
+	 * the cache:
+	 * 				entry = set * ways + way
+	 *
+	 * - tags: holds the block address of each entry (useless if the entry is not valid).
+	 * - valid: bitmap with the valid bit of each entry (bit 'entry % 64' of the long 'entry / 64'). As
+	 *   the number of ways is a power of 2 and at most 64, all the bits of a set are in the same long.
+	 *
+	 * Empty ways of a set are always filled first (the first one of them). Once the set is full, the
+	 * replacement policy chooses the victim; it keeps its own information (e.g. the LRU ranks) and is
+	 * informed of every hit and fill.
 	 */
-	private class CacheSet {
-		/* Each set will be an array of blocks, all together another array of integers, which
-		 * will represent the LRU information. The index of both arrays is the number of way
-		 * the entry is in. The LRU array holds numbers from 0 to (total_ways-1), and the way
-		 * whose correspondent LRU info integer is higher will be the LRU (following that, the
-		 * one with a 0 is the one that has been accessed last time).
-		 */
-		public CacheEntry[] blocks_in_set;
-		public int[] lru_info;
-		
-		// Total number of ways of the set. Also, the size of both arrays.
-		private int capacity;
-		
-		// Initialization of the structure
-		public CacheSet(int number_of_ways) {
-			this.capacity = number_of_ways;
-			this.blocks_in_set = new CacheEntry[number_of_ways];
-			this.lru_info = new int[number_of_ways];
-			for (int i = 0; i < number_of_ways; i++) {
-				this.blocks_in_set[i] = new CacheEntry();
-				this.blocks_in_set[i].valid = false;
-				this.lru_info[i] = 0;
-			}
-		}
-		
-		/**
-		 * Method that selects and return the index of the LRU entry in the set. If there is any invalid (empty)
-		 * entry in the set, the method will return its index instead (if there were multiple empty entries, the
-		 * first one found is returned). <br>
-		 * This method will always find the most suitable place for any block to be put in the set (an empty entry or
-		 * over the LRU entry).
-		 * 
-		 * @return The most suitable way to insert a new block. If the entry in the returned way is valid, that means
-		 * the set is full, and that the returned entry is the LRU.
-		 */
-		private int findLRU() {
-			int min_LRU = -1;
-			int buffer = 0;
-			for (int i = 0; i < this.capacity; i++) {
-				if (!this.blocks_in_set[i].valid) {
-					return i;
-				} else {
-					if (this.lru_info[i] > min_LRU) {
-						min_LRU = this.lru_info[i];
-						buffer = i;
-					}
-				}
-			}
-			return buffer;
-		}
-		
-		/**
-		 * Check if the block address exists in the set, and if it does it return the number of the way where it
-		 * is placed. If there is no match, -1 is returned.
-		 * 
-		 * @param blockAddress The address of the first word of the block in search
-		 * @return Returns the number of the way where the block is placed, if it does not exists in the set it returns -1.
-		 */
-		public int findWay(int blockAddress) {
-			for (int i = 0; i < this.capacity; i++) {
-				if (this.blocks_in_set[i].valid && this.blocks_in_set[i].block_address == blockAddress)
-					return i;
-			}
-			return -1;
-		}
-		
-		/**
-		 * Cleans the set (set valid bit of each entry to false) and restart LRU information.
-		 */
-		public void clean() {
-			for (int i = 0; i < capacity; i++) {
-				this.blocks_in_set[i].valid = false;
-				this.lru_info[i] = 0;
-			}
-		}
-		
-		
-		/**
-		 * Simulates an access to the specified way in the set. Use this method to update LRU status
-		 * for a particular block (may be useful to find the way the block is in by calling 'findWay()' before).
-		 * 
-		 * @param wayNumber The number of the way to update.
-		 * @see findWay(blockAddress)
-		 */
-		public void updateLRUInfo(int wayNumber) {
-			int last_LRU_value = this.lru_info[wayNumber];
-			for (int i = 0; i < this.capacity; i++) {
-				if (this.lru_info[i] <= last_LRU_value && this.blocks_in_set[i].valid)
-					this.lru_info[i]++;
-			}
-			this.lru_info[wayNumber] = 0;
-		}
-				
-		
-		/**
-		 * Searches for a particular block in the set, and returns true if it is found.
-		 * This method DOES NOT update any LRU information, nor it changes the state of the set.
-		 * 
-		 * @param blockAddress The block address to search for.
-		 * @return Returns true if the block exists in the set (and its entry is valid); otherwise it returns false.
-		 */
-		public boolean inMemory(int blockAddress) {
-			for (int i = 0; i < this.capacity; i++) {
-				if (this.blocks_in_set[i].valid && this.blocks_in_set[i].block_address == blockAddress) {
-					return true;
-				}
-			}
-			return false;
-		}	
-		
-	}
-	
-	// CacheSA class starts here
-	
-	// The set associative cache is implemented as an array of sets
-	private CacheSet[] cache_table;
+	private int[] tags;
+	private long[] valid;
+	private ReplacementPolicy policy;
+
 	private int sets;
 	private char sets_mag;
-	private char ways;
+	private int index_mask;
+	private int ways;
+	private long ways_mask;
 	
 	// Default values
 	private final static int NUM_WAYS_DEF = 2;
 	private final static int BLOCK_SIZE_DEF = 64;		// 16 words
 	private final static int CACHE_SIZE_DEF = 0x800;	// 2kb
 	private final static int HIT_TIME_DEF = 10;
-	
+
 
 	// Default and specific constructors
 	public CacheSA() {
-		super(BLOCK_SIZE_DEF, CACHE_SIZE_DEF, HIT_TIME_DEF);
-		
-		this.ways = NUM_WAYS_DEF;
-		this.info.associativity = Associativity.SET_ASSOCIATIVE_2WAY;
-		this.next_level = new MainMemory();
-		
-		this.sets = this.info.cache_size/(this.info.block_size*ways);
-		this.sets_mag = compute_mag(sets);
-		
-		this.cache_table = new CacheSet[sets];
-		for (int i = 0; i < this.sets; i++) {
-			this.cache_table[i] = new CacheSet(ways);
-		}
+		this(BLOCK_SIZE_DEF, CACHE_SIZE_DEF, HIT_TIME_DEF, NUM_WAYS_DEF);
 	}
 	public CacheSA(int block_size, int cache_size, int hit_time, int ways) {
+		this(block_size, cache_size, hit_time, ways, Replacement.LRU);
+	}
+	public CacheSA(int block_size, int cache_size, int hit_time, int ways, Replacement replacement) {
 		super(block_size, cache_size, hit_time);
 
-		this.ways = NUM_WAYS_DEF;
 		if (ways==2)
 			this.info.associativity = Associativity.SET_ASSOCIATIVE_2WAY;
 		else if(ways == 4)
@@ -173,120 +68,189 @@ public class CacheSA extends Cache implements MemorySystem {
 			this.info.associativity = Associativity.SET_ASSOCIATIVE_8WAY;
 		else if(ways == 16)
 			this.info.associativity = Associativity.SET_ASSOCIATIVE_16WAY;
+		else if(ways == 32)
+			this.info.associativity = Associativity.SET_ASSOCIATIVE_32WAY;
+		else if(ways == 64)
+			this.info.associativity = Associativity.SET_ASSOCIATIVE_64WAY;
 		else {
-			ways = 2;
+			ways = NUM_WAYS_DEF;
 			this.info.associativity = Associativity.SET_ASSOCIATIVE_2WAY;
 		}
+		this.ways = ways;
+		this.ways_mask = (ways == 64) ? -1L : (1L << ways) - 1;
 		this.next_level = new MainMemory();
-		
-		this.sets = cache_size/(block_size*ways);
+
+		this.sets = this.info.cache_size/(this.info.block_size*ways);
 		this.sets_mag = compute_mag(sets);
-		
-		this.cache_table = new CacheSet[sets];
-		for (int i = 0; i < this.sets; i++) {
-			this.cache_table[i] = new CacheSet(ways);
-		}
-	}		
-	
+		this.index_mask = sets - 1;
+
+		int entries = this.sets * ways;
+		this.tags = new int[entries];
+		this.valid = new long[(entries + 63) >>> 6];
+		this.info.replacement = replacement;
+		this.policy = FactoryCache.createPolicy(replacement, this.sets, ways);
+	}
+
 	/**
 	 * Computes the index of any address, which will be used to find the set the block should be placed in
 	 * @param address The address
 	 * @return The index of the set the address belongs.
 	 */
 	private int computeIndex(int address) {
-		address = address >> block_mag;
-		int mask = 0;
-		int i = sets_mag;
-		while (i > 0) {
-			mask = mask << 1;
-			mask |= 0x1;
-			i--;
+		// The mask is computed once in the constructor
+		return (address >>> block_mag) & this.index_mask;
+	}
+
+
+	// Auxiliary methods to handle the flat arrays. All of them take the number of entry of the
+	// first way of the set (set * ways), so that it is computed only once per access.
+
+	/**
+	 * Gets the valid bits of a whole set, being bit 0 the valid bit of way0.
+	 */
+	private long validBits(int first) {
+		return (this.valid[first >>> 6] >>> (first & 63)) & this.ways_mask;
+	}
+
+	/**
+	 * Check if the block address exists in the set, and if it does it return the number of the way where it
+	 * is placed. If there is no match, -1 is returned.
+	 *
+	 * @param first The number of entry of the first way of the set
+	 * @param blockAddress The address of the first word of the block in search
+	 * @return Returns the number of the way where the block is placed, if it does not exists in the set it returns -1.
+	 */
+	private int findWay(int first, int blockAddress) {
+		long validBits = this.validBits(first);
+		for (int i = 0; i < this.ways; i++) {
+			if (this.tags[first + i] == blockAddress && ((validBits >>> i) & 1) != 0)
+				return i;
 		}
-		return address & mask;
+		return -1;
+	}
+
+
+	@Override
+	protected long replacementHash() {
+		return this.policy.stateHash();
 	}
-	
-	
 	@Override
 	public void clean() {
-		for (int i = 0; i < this.sets; i++) {
-			this.cache_table[i].clean();
-		}
+		Arrays.fill(this.valid, 0);
+		this.policy.clean();
+		this.content_hash = 0;
 		super.cleanCounters();
 	}
 
 	// Access method
 	@Override
-	public MemoryResults access(Integer address) {
+	public long accessPacked(int address) {
 		this.references++;
-		// Obtain index and set from address
+		this.erasedBlock = false;
+		// Obtain index and first entry of the set from address
 		int blockAddress = this.findBlockAddress(address);
 		int index = this.computeIndex(blockAddress);
-		CacheSet actSet = this.cache_table[index];
-		
-		int blockWay = actSet.findWay(blockAddress);		
-		MemoryResults result = null;
-		
+		int first = index * this.ways;
+
 		// findWay method is used to check if the block is actually in the cache.
+		int blockWay = this.findWay(first, blockAddress);
 		if (blockWay >= 0) {
 			// If the block already exists in cache
-									
-			result = new MemoryResults(true, this.info.hit_time, address);
-			result.setBlockPosition(index * this.ways + blockWay);
-			actSet.updateLRUInfo(blockWay);
-			
+			this.policy.onHit(index, blockWay);
+			return this.recordAccess(address, first + blockWay, PackedResults.hit(this.info.hit_time));
+		}
+
+		// Otherwise, we find if there is any free way. If the set is full, the
+		// replacement policy chooses the way to overwrite.
+		// As it is a miss, a call to the next level is needed.
+		long nextLvl = this.next_level.accessPacked(address);
+		this.misses++;
+
+		long validBits = this.validBits(first);
+		int entry;
+		if (validBits != this.ways_mask) {
+			// This is executed if there is any free entry in the set (the first one is taken)
+			blockWay = Long.numberOfTrailingZeros(~validBits);
+			entry = first + blockWay;
+			this.valid[entry >>> 6] |= 1L << (entry & 63);
 		} else {
-			// Otherwise, we find if there is any free way. If the set is full, the 
-			// way of the LRU entry in the set is obtained.
-			// As it is a miss, a call to the next level is needed.
-			MemoryResults nextLvl = this.next_level.access(address);
-			result = new MemoryResults(false, this.info.hit_time + nextLvl.getAccessTime(), address);
-			result.setNextLevelResult(nextLvl);
-			this.misses++;
-						
-			blockWay = actSet.findLRU();
-			if (!actSet.blocks_in_set[blockWay].valid) {
-				// This is executed if there is any free entry in the set
-				actSet.blocks_in_set[blockWay].valid = true;
-				actSet.blocks_in_set[blockWay].block_address = blockAddress;
-			} else {
-				// This is called if the new block will overwrite some other entry
-				result.setRemovedBlock(actSet.blocks_in_set[blockWay].block_address);
-				actSet.blocks_in_set[blockWay].block_address = blockAddress;
-			}
-			actSet.updateLRUInfo(blockWay);
-			result.setBlockPosition(index * this.ways + blockWay);
+			// This is called if the new block will overwrite some other entry
+			blockWay = this.policy.victim(index);
+			entry = first + blockWay;
+			this.evictions++;
+			this.erasedBlock = true;
+			this.erasedBlockAddress = this.tags[entry];
+			this.content_hash ^= StateHash.entry(entry, this.erasedBlockAddress);
 		}
-		return result;
+		this.tags[entry] = blockAddress;
+		this.content_hash ^= StateHash.entry(entry, blockAddress);
+		this.policy.onFill(index, blockWay);
+
+		return this.recordAccess(address, entry, PackedResults.miss(this.info.hit_time, nextLvl, this.erasedBlock));
 	}
 	@Override
 	public boolean inMemory(Integer address) {
 		int blockAddress = this.findBlockAddress(address);
 		int index = this.computeIndex(blockAddress);
-		return this.cache_table[index].inMemory(blockAddress);
-	}	
+		return this.findWay(index * this.ways, blockAddress) >= 0;
+	}
+
+
+	// Batch access methods, looping over the 'accessPacked()' of this type of cache
+	@Override
+	public long accessBatch(int[] addresses, int offset, int length, long[] results) {
+		long time = 0;
+		int end = offset + length;
+		for (int i = offset; i < end; i++) {
+			long packed = this.accessPacked(addresses[i]);
+			if (results != null)
+				results[i] = packed;
+			time += PackedResults.getAccessTime(packed);
+		}
+		return time;
+	}
+	@Override
+	public long accessBatch(IntBuffer addresses, long[] results) {
+		long time = 0;
+		int start = addresses.position();
+		int length = addresses.remaining();
+		for (int i = 0; i < length; i++) {
+			long packed = this.accessPacked(addresses.get(start + i));
+			if (results != null)
+				results[i] = packed;
+			time += PackedResults.getAccessTime(packed);
+		}
+		addresses.position(start + length);
+		return time;
+	}
+
+
+	// Copy of the arrays (see Cache.copy())
+	@Override
+	protected void copyContents() {
+		this.tags = this.tags.clone();
+		this.valid = this.valid.clone();
+		this.policy = this.policy.copy();
+	}
 	
 	
 	// cacheToArray() and numberOfEntries() methods
 	@Override
 	public CacheEntry[] cacheToArray() {
-
-		int entries = this.info.cache_size/(this.info.block_size);
+		// The entries are already numbered by position, so the array is a copy of the flat arrays
+		int entries = this.numberOfEntries();
 		CacheEntry[] array = new CacheEntry[entries];
-				
-		for (int i = 0; i < this.sets; i++) {
-			CacheSet actSet = this.cache_table[i];
-			for (int j = 0; j < this.ways; j++) {
-				array[i * this.ways + j] = new CacheEntry();
-				array[i * this.ways + j].valid = actSet.blocks_in_set[j].valid;
-				array[i * this.ways + j].block_address = actSet.blocks_in_set[j].block_address;
-			}
+		for (int i = 0; i < entries; i++) {
+			array[i] = new CacheEntry();
+			array[i].valid = ((this.valid[i >>> 6] >>> (i & 63)) & 1) != 0;
+			array[i].block_address = this.tags[i];
 		}
 		return array;
 	}
 	@Override
 	public int numberOfEntries() {
-		return this.info.cache_size/(this.info.block_size);
+		return this.sets * this.ways;
 	}
 
-	
+
 }
@@ -0,0 +1,90 @@
+package memory.explore;
+
+import memory.MemoryHierarchy;
+import memory.cache.CacheInfo;
+
+/**
+ * A hierarchy of the design space (its caches, from L1 down, and the access time of the main memory), and
+ * its average access time once it has been evaluated.
+ */
+public class DesignPoint {
+
+	public final CacheInfo[] levels;
+	public final int main_memory_time;
+
+	// Results of the evaluation
+	float average_access_time = Float.NaN;
+	boolean simulated;
+
+	DesignPoint(CacheInfo[] levels, int main_memory_time) {
+		this.levels = levels;
+		this.main_memory_time = main_memory_time;
+	}
+
+	/**
+	 * Creates an empty hierarchy with this configuration.
+	 */
+	public MemoryHierarchy createHierarchy() {
+		switch (this.levels.length) {
+		case 1:
+			return new MemoryHierarchy(this.levels[0], this.main_memory_time);
+		case 2:
+			return new MemoryHierarchy(this.levels[0], this.levels[1], this.main_memory_time);
+		default:
+			return new MemoryHierarchy(this.levels[0], this.levels[1], this.levels[2], this.main_memory_time);
+		}
+	}
+
+	/**
+	 * Describes the configuration, as it is kept in a ResultStore.
+	 */
+	public String describe() {
+		return ResultStore.describe(this.levels, this.main_memory_time);
+	}
+
+	/**
+	 * Gets the total capacity of the caches (in bytes).
+	 */
+	public long getCapacity() {
+		long capacity = 0;
+		for (CacheInfo level : this.levels)
+			capacity += level.cache_size;
+		return capacity;
+	}
+
+	/**
+	 * Gets the average access time of the workload on the hierarchy (NaN if it was not evaluated).
+	 */
+	public float getAverageAccessTime() {
+		return this.average_access_time;
+	}
+
+	/**
+	 * Tells whether the hierarchy was simulated by the exploration, or its results were computed (from
+	 * stack distances, for example) or taken from a store.
+	 */
+	public boolean isSimulated() {
+		return this.simulated;
+	}
+
+	/**
+	 * Tells whether this point dominates another one: it has no more capacity and no higher average access
+	 * time, and it is better in one of them.
+	 */
+	public boolean dominates(DesignPoint other) {
+		long capacity = this.getCapacity();
+		long otherCapacity = other.getCapacity();
+		return capacity <= otherCapacity && this.average_access_time <= other.average_access_time
+				&& (capacity < otherCapacity || this.average_access_time < other.average_access_time);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder s = new StringBuilder();
+		for (int i = 0; i < this.levels.length; i++)
+			s.append("L").append(i + 1).append(": ").append(this.levels[i]).append(" ");
+		s.append("Capacity: ").append(this.getCapacity()).append(" bytes. Average access time: ")
+				.append(this.average_access_time).append(" ns.");
+		return s.toString();
+	}
+}
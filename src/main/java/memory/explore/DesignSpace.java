@@ -0,0 +1,64 @@
+package memory.explore;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import memory.cache.CacheInfo;
+
+/**
+ * The set of hierarchies to explore: one LevelRange per level of cache (from 1 to 3 levels), and the
+ * access time of the main memory.<br><br>
+ *
+ * Besides each cache being valid on its own, a hierarchy is only valid if every level is bigger than the one
+ * above it, and its blocks are not smaller.
+ */
+public class DesignSpace {
+
+	private int main_memory_time;
+	private LevelRange[] levels;
+
+	public DesignSpace(int main_memory_time, LevelRange... levels) {
+		if (levels.length < 1 || levels.length > 3)
+			throw new IllegalArgumentException("Hierarchies have from 1 to 3 levels of cache");
+		this.main_memory_time = main_memory_time;
+		this.levels = levels.clone();
+	}
+
+
+	/**
+	 * Enumerates every valid hierarchy of the space.
+	 */
+	public List<DesignPoint> enumerate() {
+		List<List<CacheInfo>> candidates = new ArrayList<List<CacheInfo>>();
+		for (LevelRange level : this.levels)
+			candidates.add(level.candidates());
+		List<DesignPoint> points = new ArrayList<DesignPoint>();
+		this.enumerate(candidates, new CacheInfo[this.levels.length], 0, points);
+		return points;
+	}
+
+	private void enumerate(List<List<CacheInfo>> candidates, CacheInfo[] chosen, int level, List<DesignPoint> points) {
+		if (level == chosen.length) {
+			points.add(new DesignPoint(chosen.clone(), this.main_memory_time));
+			return;
+		}
+		for (CacheInfo cache : candidates.get(level)) {
+			if (level > 0) {
+				CacheInfo above = chosen[level - 1];
+				if (cache.cache_size <= above.cache_size || cache.block_size < above.block_size)
+					continue;
+			}
+			chosen[level] = cache;
+			this.enumerate(candidates, chosen, level + 1, points);
+		}
+	}
+
+
+	// Getters!!
+	public int getMainMemoryTime() {
+		return this.main_memory_time;
+	}
+	public int getDepth() {
+		return this.levels.length;
+	}
+}
@@ -0,0 +1,82 @@
+package memory.explore;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import memory.cache.Associativity;
+import memory.cache.CacheInfo;
+import memory.cache.FactoryCache;
+import memory.cache.Replacement;
+
+/**
+ * The caches to try at one level of the hierarchies: every power-of-2 block size and cache size between the
+ * limits, with each of the associativities and hit times given.
+ */
+public class LevelRange {
+
+	private int min_block;
+	private int max_block;
+	private int min_size;
+	private int max_size;
+	private Associativity[] associativities;
+	private Replacement replacement;
+	private int[] hit_times;
+
+	/**
+	 * Creates the range of a level of LRU caches.
+	 *
+	 * @param min_block Smallest block size in bytes
+	 * @param max_block Biggest block size in bytes
+	 * @param min_size Smallest cache size in bytes
+	 * @param max_size Biggest cache size in bytes
+	 * @param associativities The associativities to try
+	 * @param hit_times The hit times to try (in ns)
+	 */
+	public LevelRange(int min_block, int max_block, int min_size, int max_size, Associativity[] associativities, int... hit_times) {
+		this(min_block, max_block, min_size, max_size, associativities, Replacement.LRU, hit_times);
+	}
+
+	/**
+	 * Same as above, but also giving the replacement policy of the caches.
+	 */
+	public LevelRange(int min_block, int max_block, int min_size, int max_size, Associativity[] associativities,
+			Replacement replacement, int... hit_times) {
+		if (min_block <= 0 || min_size <= 0 || max_block < min_block || max_size < min_size)
+			throw new IllegalArgumentException("Empty range of sizes");
+		if (associativities.length == 0 || hit_times.length == 0)
+			throw new IllegalArgumentException("At least one associativity and hit time are needed");
+		this.min_block = min_block;
+		this.max_block = max_block;
+		this.min_size = min_size;
+		this.max_size = max_size;
+		this.associativities = associativities.clone();
+		this.replacement = replacement;
+		this.hit_times = hit_times.clone();
+	}
+
+
+	/**
+	 * Enumerates the caches of the range that FactoryCache can create (see FactoryCache.isValid()).
+	 *
+	 * @return The descriptors of the caches, by block size, cache size, associativity and hit time
+	 */
+	public List<CacheInfo> candidates() {
+		List<CacheInfo> caches = new ArrayList<CacheInfo>();
+		for (long block = Integer.highestOneBit(this.min_block); block <= this.max_block; block <<= 1) {
+			if (block < this.min_block)
+				continue;
+			for (long size = Integer.highestOneBit(this.min_size); size <= this.max_size; size <<= 1) {
+				if (size < this.min_size)
+					continue;
+				for (Associativity associativity : this.associativities) {
+					for (int hit_time : this.hit_times) {
+						CacheInfo cache = new CacheInfo((int) block, (int) size, hit_time, associativity, this.replacement);
+						if (FactoryCache.isValid(cache))
+							caches.add(cache);
+					}
+				}
+			}
+		}
+		return caches;
+	}
+}
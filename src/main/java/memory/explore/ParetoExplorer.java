@@ -0,0 +1,470 @@
+package memory.explore;
+
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.jfree.data.category.CategoryDataset;
+
+import memory.AllAssociativitySimulator;
+import memory.MemoryHierarchy;
+import memory.StackDistanceAnalyzer;
+import memory.cache.Associativity;
+import memory.cache.CacheInfo;
+import memory.cache.Replacement;
+import memory.trace.FanOutSimulator;
+import memory.trace.TraceSource;
+import processor.Processor;
+
+/**
+ * Finds the Pareto optimal hierarchies of a design space, by average access time versus total capacity of
+ * the caches, for a trace or for the loop test of the Processor.<br><br>
+ *
+ * The hierarchies are evaluated from the smallest capacity up, in batches that run in parallel. Before a
+ * hierarchy is simulated, a lower bound of its average access time is computed (every reference takes at
+ * least the hit time of L1, and for traces, the misses of L1 and the cold misses of the next levels are
+ * known from a single pass of stack distance analysis). If the bound is not better than a hierarchy with
+ * less capacity already has, the hierarchy is dominated, and it is not simulated at all.<br>
+ * Single level LRU hierarchies are never simulated with traces: their exact misses come from the same pass
+ * (see AllAssociativitySimulator and StackDistanceAnalyzer).<br><br>
+ *
+ * With a ResultStore, the hierarchies already evaluated with the same workload are taken from it, and every
+ * hierarchy evaluated (simulated or computed) is put in it, so an interrupted exploration goes on where it
+ * stopped. The lower bound of the pruned hierarchies is put too, so that exploring a trace again does not
+ * even need the pass that computes the bounds.
+ */
+public class ParetoExplorer {
+
+	// Minimum number of hierarchies simulated together
+	private final static int MIN_BATCH = 8;
+
+	// Average access time, as kept in the stores
+	private final static String AVERAGE = "average_access_time";
+
+	// Lower bound of the average access time of a pruned hierarchy, as kept in the stores
+	private final static String LOWER_BOUND = "lower_bound";
+
+	private DesignSpace space;
+	private int threads;
+	private ResultStore store;
+
+	// What was done with the hierarchies of the last exploration
+	private int simulated;
+	private int computed;
+	private int pruned;
+	private int stored;
+
+	/**
+	 * Creates an explorer of a design space.
+	 *
+	 * @param space The hierarchies to explore
+	 * @param threads Number of hierarchies evaluated at the same time
+	 */
+	public ParetoExplorer(DesignSpace space, int threads) {
+		this.space = space;
+		this.threads = Math.max(1, threads);
+	}
+
+
+	/**
+	 * Sets the store where the results of the explorations are kept (null for none).
+	 */
+	public void setStore(ResultStore store) {
+		this.store = store;
+	}
+
+
+	/**
+	 * Evaluates a group of hierarchies, setting their average access time.
+	 */
+	private interface BatchEvaluator {
+		public void evaluate(List<DesignPoint> batch) throws IOException;
+	}
+
+	/**
+	 * Explores the space with a trace (which is read from the beginning several times), without using the
+	 * store.
+	 *
+	 * @return The Pareto optimal hierarchies, by capacity
+	 */
+	public List<DesignPoint> exploreTrace(TraceSource trace) throws IOException {
+		return this.exploreTrace(trace, null);
+	}
+
+	/**
+	 * Explores the space with a trace (which is read from the beginning several times).
+	 *
+	 * @param name Name of the trace in the store (null to not use the store)
+	 * @return The Pareto optimal hierarchies, by capacity
+	 */
+	public List<DesignPoint> exploreTrace(final TraceSource trace, String name) throws IOException {
+		List<DesignPoint> points = this.space.enumerate();
+		String workload = (name == null) ? null : "trace:" + name;
+		int size = points.size();
+		float[] exact = new float[size];
+		float[] lower = new float[size];
+		Arrays.fill(exact, Float.NaN);
+
+		// The pass over the trace is only needed if some hierarchy is not in the store (the bounds of the pruned
+		// ones are there too)
+		if (this.storedResults(points, workload) < size) {
+			trace.rewind();
+			TraceBounds bounds = new TraceBounds(points, trace);
+			for (int i = 0; i < size; i++) {
+				exact[i] = bounds.exact(points.get(i));
+				lower[i] = bounds.lowerBound(points.get(i));
+			}
+		}
+
+		return this.explore(points, workload, exact, lower, new BatchEvaluator() {
+			@Override
+			public void evaluate(List<DesignPoint> batch) throws IOException {
+				// The trace is read once for the whole batch
+				List<MemoryHierarchy> hierarchies = new ArrayList<MemoryHierarchy>();
+				for (DesignPoint point : batch)
+					hierarchies.add(point.createHierarchy());
+				trace.rewind();
+				List<FanOutSimulator.Row> table = new FanOutSimulator(hierarchies, ParetoExplorer.this.threads).run(trace);
+				for (int i = 0; i < batch.size(); i++) {
+					batch.get(i).average_access_time = table.get(i).getAverageAccessTime();
+					batch.get(i).simulated = true;
+				}
+			}
+		});
+	}
+
+	/**
+	 * Explores the space with the especulated loop test of the Processor, taking the loops from the analytic
+	 * model when it covers them (see Processor.runAnalyticLoopTest()). The average access time of a hierarchy
+	 * is the mean of those of all the loops. Hierarchies whose loops were all computed by the model count as
+	 * computed, not simulated.
+	 *
+	 * @return The Pareto optimal hierarchies, by capacity
+	 */
+	public List<DesignPoint> exploreLoops(final int max_size) throws IOException {
+		List<DesignPoint> points = this.space.enumerate();
+		int size = points.size();
+		float[] exact = new float[size];
+		float[] lower = new float[size];
+		for (int i = 0; i < size; i++) {
+			// No reference is faster than a hit in L1
+			exact[i] = Float.NaN;
+			lower[i] = points.get(i).levels[0].hit_time;
+		}
+
+		final ForkJoinPool pool = new ForkJoinPool(this.threads);
+		try {
+			return this.explore(points, "loops:" + max_size, exact, lower, new BatchEvaluator() {
+				@Override
+				public void evaluate(List<DesignPoint> batch) {
+					List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+					for (final DesignPoint point : batch) {
+						tasks.add(new Callable<Void>() {
+							@Override
+							public Void call() {
+								Processor processor = new Processor(point.createHierarchy());
+								point.average_access_time = mean(processor.runAnalyticLoopTest(max_size));
+								point.simulated = processor.getSimulatedLoops() > 0;
+								return null;
+							}
+						});
+					}
+					for (Future<Void> future : pool.invokeAll(tasks)) {
+						try {
+							future.get();
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+							throw new IllegalStateException("Exploration interrupted", e);
+						} catch (ExecutionException e) {
+							throw new IllegalStateException("Evaluation failed", e.getCause());
+						}
+					}
+				}
+			});
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	private static float mean(CategoryDataset dataset) {
+		double sum = 0;
+		int count = 0;
+		for (int row = 0; row < dataset.getRowCount(); row++) {
+			for (int column = 0; column < dataset.getColumnCount(); column++) {
+				Number value = dataset.getValue(row, column);
+				if (value != null) {
+					sum += value.doubleValue();
+					count++;
+				}
+			}
+		}
+		return (count == 0) ? 0 : (float) (sum / count);
+	}
+
+
+	/**
+	 * Counts the hierarchies whose results (or lower bounds) for a workload are in the store.
+	 */
+	private int storedResults(List<DesignPoint> points, String workload) {
+		if (this.store == null || workload == null)
+			return 0;
+		int count = 0;
+		for (DesignPoint point : points) {
+			if (this.store.contains(point.describe(), workload))
+				count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Evaluates the hierarchies from the smallest capacity up, skipping the ones whose lower bound can not
+	 * beat a smaller hierarchy.
+	 *
+	 * @param workload Name of the workload in the store (null to not use the store)
+	 * @param exact The average access time of each point if it is known without simulating it, NaN if not
+	 * @param lower A lower bound of the average access time of each point (the one in the store is used too)
+	 */
+	private List<DesignPoint> explore(List<DesignPoint> points, String workload, float[] exact, float[] lower,
+			BatchEvaluator evaluator) throws IOException {
+		this.simulated = 0;
+		this.computed = 0;
+		this.pruned = 0;
+		this.stored = 0;
+		ResultStore store = (workload == null) ? null : this.store;
+
+		final Map<DesignPoint, Integer> index = new HashMap<DesignPoint, Integer>();
+		for (int i = 0; i < points.size(); i++)
+			index.put(points.get(i), i);
+		List<DesignPoint> sorted = new ArrayList<DesignPoint>(points);
+		Collections.sort(sorted, CAPACITY_ORDER);
+
+		// Best time of the hierarchies evaluated with less capacity than the current one
+		float best = Float.POSITIVE_INFINITY;
+		float bestOfGroup = Float.POSITIVE_INFINITY;
+		long groupCapacity = -1;
+		List<DesignPoint> batch = new ArrayList<DesignPoint>();
+		List<DesignPoint> evaluated = new ArrayList<DesignPoint>();
+		int batchSize = Math.max(MIN_BATCH, 2 * this.threads);
+
+		for (int s = 0; s <= sorted.size(); s++) {
+			DesignPoint point = (s < sorted.size()) ? sorted.get(s) : null;
+			boolean newGroup = point == null || point.getCapacity() != groupCapacity;
+			if (newGroup) {
+				// The batch is run once it is big enough, and only between groups
+				if (batch.size() >= batchSize || (point == null && !batch.isEmpty())) {
+					evaluator.evaluate(batch);
+					for (DesignPoint done : batch) {
+						if (done.simulated)
+							this.simulated++;
+						else
+							this.computed++;
+						bestOfGroup = Math.min(bestOfGroup, done.average_access_time);
+						if (store != null)
+							store.put(done.describe(), workload, Collections.singletonMap(AVERAGE, done.average_access_time));
+					}
+					evaluated.addAll(batch);
+					batch.clear();
+				}
+				best = Math.min(best, bestOfGroup);
+				bestOfGroup = Float.POSITIVE_INFINITY;
+				if (point == null)
+					break;
+				groupCapacity = point.getCapacity();
+			}
+
+			int i = index.get(point);
+			Map<String, Float> result = (store == null) ? null : store.get(point.describe(), workload);
+			float bound = lower[i];
+			if (result != null && result.containsKey(LOWER_BOUND))
+				bound = Math.max(bound, result.get(LOWER_BOUND));
+			if (result != null && result.containsKey(AVERAGE)) {
+				point.average_access_time = result.get(AVERAGE);
+				point.simulated = false;
+				this.stored++;
+				bestOfGroup = Math.min(bestOfGroup, point.average_access_time);
+				evaluated.add(point);
+			} else if (!Float.isNaN(exact[i])) {
+				point.average_access_time = exact[i];
+				point.simulated = false;
+				this.computed++;
+				bestOfGroup = Math.min(bestOfGroup, exact[i]);
+				evaluated.add(point);
+				if (store != null)
+					store.put(point.describe(), workload, Collections.singletonMap(AVERAGE, exact[i]));
+			} else if (bound >= best) {
+				this.pruned++;
+				if (store != null && result == null)
+					store.put(point.describe(), workload, Collections.singletonMap(LOWER_BOUND, bound));
+			} else {
+				batch.add(point);
+			}
+		}
+		return paretoFront(evaluated);
+	}
+
+	private final static Comparator<DesignPoint> CAPACITY_ORDER = new Comparator<DesignPoint>() {
+		@Override
+		public int compare(DesignPoint a, DesignPoint b) {
+			int byCapacity = Long.compare(a.getCapacity(), b.getCapacity());
+			if (byCapacity != 0)
+				return byCapacity;
+			return Float.compare(a.average_access_time, b.average_access_time);
+		}
+	};
+
+	/**
+	 * Gets the points of a group that no other point dominates.
+	 *
+	 * @return The Pareto front, by capacity
+	 */
+	public static List<DesignPoint> paretoFront(List<DesignPoint> points) {
+		List<DesignPoint> sorted = new ArrayList<DesignPoint>(points);
+		Collections.sort(sorted, CAPACITY_ORDER);
+		List<DesignPoint> front = new ArrayList<DesignPoint>();
+		float best = Float.POSITIVE_INFINITY;
+		for (int i = 0; i < sorted.size(); ) {
+			// Within a capacity, only the fastest points (first after sorting) can be in the front
+			long capacity = sorted.get(i).getCapacity();
+			float fastest = sorted.get(i).average_access_time;
+			for (; i < sorted.size() && sorted.get(i).getCapacity() == capacity; i++) {
+				DesignPoint point = sorted.get(i);
+				if (point.average_access_time == fastest && fastest < best)
+					front.add(point);
+			}
+			best = Math.min(best, fastest);
+		}
+		return front;
+	}
+
+
+	/**
+	 * What a single pass over a trace tells of every hierarchy: the exact misses of L1 when it is LRU (or
+	 * direct mapped), and the cold misses of every block size.
+	 */
+	private static class TraceBounds {
+		private StackDistanceAnalyzer distances;
+		private Map<Integer, AllAssociativitySimulator> simulators = new HashMap<Integer, AllAssociativitySimulator>();
+		private long references;
+
+		TraceBounds(List<DesignPoint> points, TraceSource trace) throws IOException {
+			// Every block size of any level, and the biggest L1 to simulate with each block size
+			List<Integer> blockSizes = new ArrayList<Integer>();
+			Map<Integer, int[]> limits = new HashMap<Integer, int[]>();
+			for (DesignPoint point : points) {
+				for (CacheInfo level : point.levels) {
+					if (!blockSizes.contains(level.block_size))
+						blockSizes.add(level.block_size);
+				}
+				CacheInfo L1 = point.levels[0];
+				if (coveredBySimulator(L1)) {
+					int[] limit = limits.get(L1.block_size);
+					if (limit == null)
+						limits.put(L1.block_size, limit = new int[2]);
+					limit[0] = Math.max(limit[0], sets(L1));
+					limit[1] = Math.max(limit[1], ways(L1));
+				}
+			}
+			int[] sizes = new int[blockSizes.size()];
+			for (int i = 0; i < sizes.length; i++)
+				sizes[i] = blockSizes.get(i);
+			this.distances = new StackDistanceAnalyzer(sizes);
+			for (Map.Entry<Integer, int[]> limit : limits.entrySet())
+				this.simulators.put(limit.getKey(), new AllAssociativitySimulator(limit.getKey(), limit.getValue()[0], limit.getValue()[1]));
+
+			IntBuffer block;
+			while ((block = trace.next()) != null) {
+				int start = block.position();
+				this.references += block.remaining();
+				this.distances.accessBatch(block);
+				for (AllAssociativitySimulator simulator : this.simulators.values()) {
+					block.position(start);
+					simulator.accessBatch(block);
+				}
+			}
+		}
+
+		private static int ways(CacheInfo cache) {
+			if (cache.associativity == Associativity.FULLY_ASSOCIATIVE)
+				return cache.cache_size / cache.block_size;
+			return cache.associativity.getNumberWays();
+		}
+		private static int sets(CacheInfo cache) {
+			return cache.cache_size / cache.block_size / ways(cache);
+		}
+		private static boolean isLRU(CacheInfo cache) {
+			return cache.associativity == Associativity.DIRECT_MAPPED || cache.replacement == null
+					|| cache.replacement == Replacement.LRU;
+		}
+		private static boolean coveredBySimulator(CacheInfo cache) {
+			return isLRU(cache) && ways(cache) <= AllAssociativitySimulator.MAX_WAYS;
+		}
+
+		/**
+		 * Gets the exact misses of a cache as the first level, or -1 if they are not known.
+		 */
+		private long misses(CacheInfo cache) {
+			if (coveredBySimulator(cache))
+				return this.simulators.get(cache.block_size).getMisses(sets(cache), ways(cache));
+			if (isLRU(cache) && cache.associativity == Associativity.FULLY_ASSOCIATIVE)
+				return this.distances.getMisses(cache.block_size, cache.cache_size);
+			return -1;
+		}
+
+		/**
+		 * Gets the exact average access time of a hierarchy, or NaN if it has to be simulated.
+		 */
+		float exact(DesignPoint point) {
+			long misses = this.misses(point.levels[0]);
+			if (point.levels.length > 1 || misses < 0 || this.references == 0)
+				return Float.NaN;
+			return (float) (this.references * (double) point.levels[0].hit_time + misses * (double) point.main_memory_time)
+					/ this.references;
+		}
+
+		/**
+		 * Gets a lower bound of the average access time of a hierarchy: the misses of L1 (or its cold misses),
+		 * and the cold misses of the next levels (the first reference to a block of a level is also the first
+		 * to its smaller blocks of the levels above, so it misses in all of them).
+		 */
+		float lowerBound(DesignPoint point) {
+			if (this.references == 0)
+				return 0;
+			CacheInfo[] levels = point.levels;
+			long reaching = this.misses(levels[0]);
+			if (reaching < 0)
+				reaching = this.distances.getColdMisses(levels[0].block_size);
+			double time = this.references * (double) levels[0].hit_time;
+			for (int i = 1; i < levels.length; i++) {
+				time += reaching * (double) levels[i].hit_time;
+				reaching = this.distances.getColdMisses(levels[i].block_size);
+			}
+			time += reaching * (double) point.main_memory_time;
+			return (float) (time / this.references);
+		}
+	}
+
+
+	// Getters!! (counts of the last exploration)
+	public int getSimulated() {
+		return this.simulated;
+	}
+	public int getComputed() {
+		return this.computed;
+	}
+	public int getPruned() {
+		return this.pruned;
+	}
+	public int getStored() {
+		return this.stored;
+	}
+}
@@ -0,0 +1,285 @@
+package memory.explore;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.jfree.data.category.CategoryDataset;
+import org.jfree.data.category.DefaultCategoryDataset;
+
+import memory.MainMemory;
+import memory.MemoryHierarchy;
+import memory.MemorySystem;
+import memory.cache.Associativity;
+import memory.cache.Cache;
+import memory.cache.CacheDescriptor;
+
+/**
+ * Results of simulations kept on disk, so that long sweeps can be resumed, and queries already answered are
+ * not simulated again.<br><br>
+ *
+ * A result is a group of named values (the average access time of a hierarchy, or every point of a loop
+ * test) obtained by running a workload on a configuration. Both are described by strings (see 'describe()'
+ * for configurations), and the result is found by a stable 64-bit hash of them. The strings are kept with the
+ * result and compared too, so a result is never returned for another configuration or workload with the same
+ * hash (if two of them collide, the last one put replaces the other).<br>
+ * The file is a CSV that only grows: one line per result, written and flushed as soon as the result is put,
+ * with the hash (in hex), the workload, the configuration and the values ("name=value" separated by ';').
+ * If the last line was left half written (the sweep was killed while writing it), it is dropped when the
+ * store is opened again. If the same result is put twice, the last one is kept.
+ */
+public class ResultStore implements Closeable {
+
+	private File file;
+	private Writer writer;
+	private Map<Long, Result> results = new HashMap<Long, Result>();
+
+	/**
+	 * A result, with the configuration and the workload it was obtained from.
+	 */
+	private static class Result {
+		private String configuration;
+		private String workload;
+		private Map<String, Float> values;
+
+		Result(String configuration, String workload, Map<String, Float> values) {
+			this.configuration = configuration;
+			this.workload = workload;
+			this.values = values;
+		}
+	}
+
+	/**
+	 * Opens a store (creating its file if it does not exist), and loads its results.
+	 */
+	public ResultStore(File file) throws IOException {
+		this.file = file;
+		if (file.exists())
+			this.load();
+		this.writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+				StandardOpenOption.APPEND);
+	}
+
+	private void load() throws IOException {
+		byte[] bytes = Files.readAllBytes(this.file.toPath());
+		String text = new String(bytes, StandardCharsets.UTF_8);
+		int start = 0;
+		int end;
+		while ((end = text.indexOf('\n', start)) >= 0) {
+			this.parse(text.substring(start, end));
+			start = end + 1;
+		}
+
+		// A line with no line break was not completely written
+		int valid = text.substring(0, start).getBytes(StandardCharsets.UTF_8).length;
+		if (valid < bytes.length) {
+			try (FileChannel channel = FileChannel.open(this.file.toPath(), StandardOpenOption.WRITE)) {
+				channel.truncate(valid);
+			}
+		}
+	}
+
+	private void parse(String line) {
+		String[] fields = line.split(",", 4);
+		if (fields.length != 4)
+			return;
+		long key;
+		try {
+			key = Long.parseUnsignedLong(fields[0], 16);
+		} catch (NumberFormatException e) {
+			return;
+		}
+		if (key != key(fields[2], fields[1]))
+			return;
+
+		Map<String, Float> values = new LinkedHashMap<String, Float>();
+		if (!fields[3].isEmpty()) {
+			for (String pair : fields[3].split(";")) {
+				int equals = pair.lastIndexOf('=');
+				if (equals < 0)
+					return;
+				try {
+					values.put(pair.substring(0, equals), Float.parseFloat(pair.substring(equals + 1)));
+				} catch (NumberFormatException e) {
+					return;
+				}
+			}
+		}
+		this.results.put(key, new Result(fields[2], fields[1], values));
+	}
+
+
+	/**
+	 * Computes the key of a result: the 64-bit FNV-1a hash of the configuration and the workload (in UTF-8),
+	 * which is the same in every run.
+	 */
+	public static long key(String configuration, String workload) {
+		long hash = 0xCBF29CE484222325L;
+		byte[] bytes = (configuration + "\n" + workload).getBytes(StandardCharsets.UTF_8);
+		for (byte b : bytes) {
+			hash ^= b & 0xFF;
+			hash *= 0x100000001B3L;
+		}
+		return hash;
+	}
+
+	/**
+	 * Describes a hierarchy, as a configuration of the store: each cache as
+	 * "block_size:cache_size:ways:hit_time:replacement" (0 ways if fully associative), from L1 down, and
+	 * "MM" and the access time of the main memory, separated by '|'.
+	 */
+	public static String describe(CacheDescriptor[] levels, int main_memory_time) {
+		StringBuilder s = new StringBuilder();
+		for (CacheDescriptor level : levels)
+			appendLevel(s, level);
+		return s.append("MM").append(main_memory_time).toString();
+	}
+
+	/**
+	 * Describes a memory system in the same way, if it is a MainMemory, a Cache or a MemoryHierarchy whose
+	 * levels end in a MainMemory.
+	 *
+	 * @return The description, or null if the memory system can not be described
+	 */
+	public static String describe(MemorySystem memory) {
+		if (memory instanceof MemoryHierarchy)
+			memory = ((MemoryHierarchy) memory).getL1Cache();
+		StringBuilder s = new StringBuilder();
+		while (memory instanceof Cache) {
+			appendLevel(s, (Cache) memory);
+			memory = ((Cache) memory).getNextLevel();
+		}
+		if (!(memory instanceof MainMemory))
+			return null;
+		return s.append("MM").append(((MainMemory) memory).getAccessTime()).toString();
+	}
+
+	private static void appendLevel(StringBuilder s, CacheDescriptor level) {
+		int ways = (level.getAssociativity() == Associativity.FULLY_ASSOCIATIVE) ? 0 : level.getAssociativity().getNumberWays();
+		s.append(level.getBlockSize()).append(':').append(level.getCacheSize()).append(':').append(ways).append(':')
+				.append(level.getHitTime()).append(':').append(level.getReplacement()).append('|');
+	}
+
+
+	// Results
+
+	/**
+	 * Finds the values of a result, checking that the result found by the hash is the one asked for.
+	 */
+	private Map<String, Float> find(String configuration, String workload) {
+		Result result = this.results.get(key(configuration, workload));
+		if (result == null || !result.configuration.equals(configuration) || !result.workload.equals(workload))
+			return null;
+		return result.values;
+	}
+
+	public boolean contains(String configuration, String workload) {
+		return this.find(configuration, workload) != null;
+	}
+
+	/**
+	 * Gets a result.
+	 *
+	 * @return The values of the result, in the order they were put (not modifiable), or null if the store
+	 * does not have it
+	 */
+	public Map<String, Float> get(String configuration, String workload) {
+		Map<String, Float> values = this.find(configuration, workload);
+		return (values == null) ? null : Collections.unmodifiableMap(values);
+	}
+
+	/**
+	 * Adds a result, and writes it to the file right away.
+	 *
+	 * @param values The values of the result. Their names can not have ',', ';' or line breaks.
+	 */
+	public void put(String configuration, String workload, Map<String, Float> values) throws IOException {
+		checkText(configuration);
+		checkText(workload);
+		long key = key(configuration, workload);
+		StringBuilder line = new StringBuilder();
+		line.append(Long.toHexString(key)).append(',').append(workload).append(',').append(configuration).append(',');
+		boolean first = true;
+		for (Map.Entry<String, Float> value : values.entrySet()) {
+			checkText(value.getKey());
+			if (value.getKey().indexOf(';') >= 0)
+				throw new IllegalArgumentException("Invalid name of value: " + value.getKey());
+			if (!first)
+				line.append(';');
+			line.append(value.getKey()).append('=').append(value.getValue());
+			first = false;
+		}
+		this.writer.write(line.append('\n').toString());
+		this.writer.flush();
+		this.results.put(key, new Result(configuration, workload, new LinkedHashMap<String, Float>(values)));
+	}
+
+	private static void checkText(String text) {
+		if (text.indexOf(',') >= 0 || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0)
+			throw new IllegalArgumentException("Text not allowed in the store: " + text);
+	}
+
+	/**
+	 * Gets a result that was put as a dataset (see 'putDataset()').
+	 *
+	 * @return The dataset, or null if the store does not have it
+	 */
+	public CategoryDataset getDataset(String configuration, String workload) {
+		Map<String, Float> values = this.find(configuration, workload);
+		if (values == null)
+			return null;
+		DefaultCategoryDataset dataset = new DefaultCategoryDataset();
+		for (Map.Entry<String, Float> value : values.entrySet()) {
+			int slash = value.getKey().indexOf('/');
+			dataset.addValue(value.getValue(), value.getKey().substring(0, slash), value.getKey().substring(slash + 1));
+		}
+		return dataset;
+	}
+
+	/**
+	 * Adds the values of a dataset (such as those of the loop tests) as a result, each one named
+	 * "row/column". Row keys can not have '/'.
+	 */
+	public void putDataset(String configuration, String workload, CategoryDataset dataset) throws IOException {
+		Map<String, Float> values = new LinkedHashMap<String, Float>();
+		for (int row = 0; row < dataset.getRowCount(); row++) {
+			for (int column = 0; column < dataset.getColumnCount(); column++) {
+				Number value = dataset.getValue(row, column);
+				if (value != null) {
+					String rowKey = dataset.getRowKey(row).toString();
+					if (rowKey.indexOf('/') >= 0)
+						throw new IllegalArgumentException("Invalid row of dataset: " + rowKey);
+					values.put(rowKey + "/" + dataset.getColumnKey(column), value.floatValue());
+				}
+			}
+		}
+		this.put(configuration, workload, values);
+	}
+
+	/**
+	 * Gets the number of results in the store.
+	 */
+	public int size() {
+		return this.results.size();
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.writer.close();
+	}
+
+
+	// Getters!!
+	public File getFile() {
+		return this.file;
+	}
+}
@@ -0,0 +1,65 @@
+package memory.stats;
+
+import java.io.IOException;
+
+import memory.PackedResults;
+import memory.cache.Cache;
+import memory.cache.CacheProbe;
+
+/**
+ * Histograms of the age of the blocks evicted from a cache, in accesses to the cache: their lifetime (since
+ * they were brought in) and their idle time (since they were last used). Blocks evicted with a long idle time
+ * were dead long before leaving, while short lifetimes mean the cache thrashes.
+ */
+public class EvictionAgeProbe implements CacheProbe {
+
+	// Time (access number) of the fill and of the last use of the block at each position
+	private long[] filled;
+	private long[] used;
+	private long now;
+	private final LogHistogram lifetimes = new LogHistogram();
+	private final LogHistogram idle_times = new LogHistogram();
+
+	@Override
+	public void attached(Cache cache) {
+		if (this.filled != null)
+			throw new IllegalStateException("The probe is already attached to a cache");
+		this.filled = new long[cache.numberOfEntries()];
+		this.used = new long[cache.numberOfEntries()];
+	}
+
+	@Override
+	public void accessed(int address, int position, long results) {
+		long now = ++this.now;
+		if (!PackedResults.wasHit(results)) {
+			if (PackedResults.blockWasRemoved(results)) {
+				this.lifetimes.add(now - this.filled[position]);
+				this.idle_times.add(now - this.used[position]);
+			}
+			this.filled[position] = now;
+		}
+		this.used[position] = now;
+	}
+
+	/**
+	 * Writes both histograms as CSV: the bounds of each bucket, and the evictions with a lifetime and with
+	 * an idle time in it.
+	 */
+	public void writeCsv(Appendable out) throws IOException {
+		out.append("from,to,lifetime,idle\n");
+		int used = Math.max(this.lifetimes.getUsedBuckets(), this.idle_times.getUsedBuckets());
+		for (int i = 0; i < used; i++) {
+			out.append(LogHistogram.lowerBound(i) + "," + LogHistogram.upperBound(i) + "," + this.lifetimes.getCount(i)
+					+ "," + this.idle_times.getCount(i) + "\n");
+		}
+	}
+
+
+	// Getters!!
+	public LogHistogram getLifetimes() {
+		return this.lifetimes;
+	}
+	public LogHistogram getIdleTimes() {
+		return this.idle_times;
+	}
+}
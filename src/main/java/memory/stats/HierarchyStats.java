@@ -0,0 +1,178 @@
+package memory.stats;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import memory.MainMemory;
+import memory.MemoryHierarchy;
+import memory.MemorySystem;
+import memory.cache.Cache;
+import memory.cache.MissClassifier;
+
+/**
+ * Statistics of every level of a memory system at some moment: the counters of each cache, its local and
+ * global miss rates, and the average memory access time (AMAT) of the whole system.<br><br>
+ *
+ * The statistics are a copy of the counters the caches already keep, made when 'of()' is called, so taking
+ * them costs nothing during the simulation. The AMAT is computed from the levels, as usual:<br>
+ * <p style='text-align: center'> AMAT = hit_time(L1) + local_miss_rate(L1) * (hit_time(L2) + local_miss_rate(L2) * (... + main_memory_time)) </p>
+ * which is the same as the average access time measured on the L1 (the sum of the times of every access
+ * over the references).
+ */
+public class HierarchyStats {
+
+	/**
+	 * Counters of a level of cache. The global miss rate is over the references to the first level. If the
+	 * misses of the cache are classified (see Cache.enableMissClassification()), the misses of each type
+	 * are given too.
+	 */
+	public static class Level {
+		public final String name;
+		public final int hit_time;
+		public final long references;
+		public final long hits;
+		public final long misses;
+		public final long evictions;
+		public final long fills;
+		public final long total_time;
+		public final float local_miss_rate;
+		public final float global_miss_rate;
+		public final boolean classified;
+		public final long compulsory;
+		public final long capacity;
+		public final long conflict;
+
+		private Level(String name, Cache cache, long first_references) {
+			this.name = name;
+			this.hit_time = cache.getHitTime();
+			this.references = cache.getTotalReferences();
+			this.misses = cache.getTotalMisses();
+			this.hits = this.references - this.misses;
+			this.evictions = cache.getTotalEvictions();
+			this.fills = cache.getTotalFills();
+			this.total_time = cache.getTotalTime();
+			this.local_miss_rate = rate(this.misses, this.references);
+			this.global_miss_rate = rate(this.misses, first_references);
+			MissClassifier classifier = cache.getMissClassifier();
+			this.classified = classifier != null;
+			this.compulsory = this.classified ? classifier.getCompulsory() : 0;
+			this.capacity = this.classified ? classifier.getCapacity() : 0;
+			this.conflict = this.classified ? classifier.getConflict() : 0;
+		}
+
+		/**
+		 * Gets the average access time of the accesses that reached this level (including the next levels).
+		 */
+		public float getAverageAccessTime() {
+			return rate(this.total_time, this.references);
+		}
+	}
+
+	private List<Level> levels;
+	private long main_memory_references;
+	private int main_memory_time;
+
+	private HierarchyStats() {
+		this.levels = new ArrayList<Level>();
+	}
+
+	private static float rate(long count, long total) {
+		if (total == 0)
+			return 0;
+		return (float) ((double) count / total);
+	}
+
+	/**
+	 * Takes the statistics of a memory system: a MemoryHierarchy, a Cache (and the levels below it), or a
+	 * MainMemory. Levels of other types end the report.
+	 */
+	public static HierarchyStats of(MemorySystem memory) {
+		HierarchyStats stats = new HierarchyStats();
+		if (memory instanceof MemoryHierarchy)
+			memory = ((MemoryHierarchy) memory).getL1Cache();
+		long first = memory.getTotalReferences();
+		while (memory instanceof Cache) {
+			Cache cache = (Cache) memory;
+			stats.levels.add(new Level("L" + (stats.levels.size() + 1), cache, first));
+			memory = cache.getNextLevel();
+		}
+		if (memory instanceof MainMemory) {
+			stats.main_memory_references = memory.getTotalReferences();
+			stats.main_memory_time = ((MainMemory) memory).getAccessTime();
+		}
+		return stats;
+	}
+
+
+	/**
+	 * Computes the AMAT from the hit times and local miss rates of the levels, and the access time of the
+	 * main memory. The miss rates are computed again from the counters, in double precision (the float rates
+	 * of the levels are only meant to be shown).
+	 */
+	public double getAMAT() {
+		double amat = this.main_memory_time;
+		for (int i = this.levels.size() - 1; i >= 0; i--) {
+			Level level = this.levels.get(i);
+			double miss_rate = (level.references == 0) ? 0 : (double) level.misses / level.references;
+			amat = level.hit_time + miss_rate * amat;
+		}
+		return amat;
+	}
+
+	/**
+	 * Gets the average access time measured on the first level (the same as its getAverageAccessTime()).
+	 */
+	public float getMeasuredAccessTime() {
+		if (this.levels.isEmpty())
+			return this.main_memory_time;
+		return this.levels.get(0).getAverageAccessTime();
+	}
+
+
+	// Getters!!
+	public List<Level> getLevels() {
+		return Collections.unmodifiableList(this.levels);
+	}
+	public Level getLevel(int level) {
+		return this.levels.get(level);
+	}
+	public int getDepth() {
+		return this.levels.size();
+	}
+	public long getMainMemoryReferences() {
+		return this.main_memory_references;
+	}
+	public int getMainMemoryTime() {
+		return this.main_memory_time;
+	}
+
+	/**
+	 * A table with a row per level, and the AMAT. The misses of each type are added if any level classifies
+	 * them.
+	 */
+	@Override
+	public String toString() {
+		boolean classified = false;
+		for (Level level : this.levels)
+			classified |= level.classified;
+
+		StringBuilder report = new StringBuilder();
+		report.append(String.format("%-6s%16s%16s%16s%16s%12s%12s%12s", "Level", "References", "Hits", "Misses",
+				"Evictions", "Local MR", "Global MR", "Avg time"));
+		if (classified)
+			report.append(String.format("%16s%16s%16s", "Compulsory", "Capacity", "Conflict"));
+		report.append(String.format("%n"));
+		for (Level level : this.levels) {
+			report.append(String.format("%-6s%16d%16d%16d%16d%12.4f%12.4f%12.2f", level.name, level.references,
+					level.hits, level.misses, level.evictions, level.local_miss_rate, level.global_miss_rate,
+					level.getAverageAccessTime()));
+			if (level.classified)
+				report.append(String.format("%16d%16d%16d", level.compulsory, level.capacity, level.conflict));
+			report.append(String.format("%n"));
+		}
+		report.append(String.format("%-6s%16d%n", "MM", this.main_memory_references));
+		report.append(String.format("AMAT: %.2f ns", this.getAMAT()));
+		return report.toString();
+	}
+}
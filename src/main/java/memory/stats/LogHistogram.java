@@ -0,0 +1,84 @@
+package memory.stats;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Histogram of non negative values in power-of-2 buckets: bucket 0 holds the value 0, and bucket k the values
+ * from 2^(k-1) to 2^k - 1 (the same buckets StackDistanceAnalyzer uses). Adding a value is a couple of
+ * instructions and never allocates.
+ */
+public class LogHistogram {
+
+	// Values are longs, so bucket 63 is the last one
+	public final static int BUCKETS = 64;
+
+	private final long[] counts = new long[BUCKETS];
+	private long total;
+
+	/**
+	 * Gets the bucket of a value (negative values go to bucket 0).
+	 */
+	public static int bucket(long value) {
+		return (value <= 0) ? 0 : 64 - Long.numberOfLeadingZeros(value);
+	}
+
+	/**
+	 * Gets the lowest value of a bucket.
+	 */
+	public static long lowerBound(int bucket) {
+		return (bucket == 0) ? 0 : 1L << (bucket - 1);
+	}
+
+	/**
+	 * Gets the highest value of a bucket.
+	 */
+	public static long upperBound(int bucket) {
+		return (bucket == 0) ? 0 : (1L << (bucket - 1)) + ((1L << (bucket - 1)) - 1);
+	}
+
+	public void add(long value) {
+		this.counts[bucket(value)]++;
+		this.total++;
+	}
+
+	public void clear() {
+		Arrays.fill(this.counts, 0);
+		this.total = 0;
+	}
+
+	/**
+	 * Gets the number of buckets up to the last one that is not empty.
+	 */
+	public int getUsedBuckets() {
+		int used = BUCKETS;
+		while (used > 0 && this.counts[used - 1] == 0)
+			used--;
+		return used;
+	}
+
+	/**
+	 * Writes the histogram as CSV: a header, and a line per bucket (up to the last one that is not empty)
+	 * with its bounds and count.
+	 *
+	 * @param column Name of the column of the counts
+	 */
+	public void writeCsv(Appendable out, String column) throws IOException {
+		out.append("from,to,").append(column).append('\n');
+		int used = this.getUsedBuckets();
+		for (int i = 0; i < used; i++)
+			out.append(lowerBound(i) + "," + upperBound(i) + "," + this.counts[i] + "\n");
+	}
+
+
+	// Getters!!
+	public long getCount(int bucket) {
+		return this.counts[bucket];
+	}
+	public long[] getCounts() {
+		return this.counts.clone();
+	}
+	public long getTotal() {
+		return this.total;
+	}
+}
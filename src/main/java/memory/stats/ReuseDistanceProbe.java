@@ -0,0 +1,102 @@
+package memory.stats;
+
+import java.io.IOException;
+
+import memory.PackedResults;
+import memory.cache.Cache;
+import memory.cache.CacheProbe;
+
+/**
+ * Histogram of the reuse distance of the accesses to a cache: the number of accesses to the cache made since
+ * the last access to the same block. Hits and misses are kept apart, so misses with short reuse distances
+ * (blocks evicted soon after being used, i.e. conflicts) stand out.<br><br>
+ *
+ * The last access to each block is kept in a fixed table of tagged slots indexed by a hash of the block number,
+ * so nothing is allocated while the cache runs. A block whose slot was taken by another block since its last
+ * access is counted as a first access (as well as the real first accesses), so the table should have several
+ * times more slots than the blocks the workload reuses. For exact LRU stack distances (distinct blocks instead
+ * of accesses) over a whole trace use StackDistanceAnalyzer.
+ */
+public class ReuseDistanceProbe implements CacheProbe {
+
+	public final static int DEFAULT_SLOTS = 1 << 20;
+
+	private final int slot_mag;
+	private final int[] blocks;
+	private final long[] times;
+	private int block_mag;
+	private long now;
+	private long first_accesses;
+	private final LogHistogram hits = new LogHistogram();
+	private final LogHistogram misses = new LogHistogram();
+	private boolean attached;
+
+	public ReuseDistanceProbe() {
+		this(DEFAULT_SLOTS);
+	}
+
+	/**
+	 * @param slots Number of blocks whose last access is remembered, it is rounded up to a power of 2
+	 */
+	public ReuseDistanceProbe(int slots) {
+		this.slot_mag = 32 - Integer.numberOfLeadingZeros(Math.max(slots, 2) - 1);
+		this.blocks = new int[1 << this.slot_mag];
+		this.times = new long[1 << this.slot_mag];
+	}
+
+	@Override
+	public void attached(Cache cache) {
+		if (this.attached)
+			throw new IllegalStateException("The probe is already attached to a cache");
+		this.attached = true;
+		this.block_mag = Integer.numberOfTrailingZeros(cache.getBlockSize());
+	}
+
+	@Override
+	public void accessed(int address, int position, long results) {
+		int block = address >>> this.block_mag;
+		int slot = (block * 0x9E3779B9) >>> (32 - this.slot_mag);
+		long now = ++this.now;
+
+		// Times start at 1, so an empty slot (time 0) never matches
+		long last = this.times[slot];
+		if (last != 0 && this.blocks[slot] == block) {
+			if (PackedResults.wasHit(results))
+				this.hits.add(now - last - 1);
+			else
+				this.misses.add(now - last - 1);
+		} else {
+			this.first_accesses++;
+		}
+		this.blocks[slot] = block;
+		this.times[slot] = now;
+	}
+
+	/**
+	 * Writes both histograms as CSV: the bounds of each bucket, and the hits and misses in it. The first
+	 * accesses are not included (see getFirstAccesses()).
+	 */
+	public void writeCsv(Appendable out) throws IOException {
+		out.append("from,to,hits,misses\n");
+		int used = Math.max(this.hits.getUsedBuckets(), this.misses.getUsedBuckets());
+		for (int i = 0; i < used; i++) {
+			out.append(LogHistogram.lowerBound(i) + "," + LogHistogram.upperBound(i) + "," + this.hits.getCount(i)
+					+ "," + this.misses.getCount(i) + "\n");
+		}
+	}
+
+
+	// Getters!!
+	public LogHistogram getHits() {
+		return this.hits;
+	}
+	public LogHistogram getMisses() {
+		return this.misses;
+	}
+	public long getFirstAccesses() {
+		return this.first_accesses;
+	}
+	public long getAccesses() {
+		return this.now;
+	}
+}
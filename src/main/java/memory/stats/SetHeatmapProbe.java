@@ -0,0 +1,70 @@
+package memory.stats;
+
+import java.io.IOException;
+
+import memory.PackedResults;
+import memory.cache.Associativity;
+import memory.cache.Cache;
+import memory.cache.CacheProbe;
+
+/**
+ * Accesses, misses and evictions of each set of a cache, to find the sets that are hot spots (a few sets
+ * with most of the misses mean the addresses of the workload conflict, and a different layout or more ways
+ * would help). The set is found from the position of the block, so it works for direct mapped and set
+ * associative caches (and a fully associative one is a single set).
+ */
+public class SetHeatmapProbe implements CacheProbe {
+
+	private int ways;
+	private long[] accesses;
+	private long[] misses;
+	private long[] evictions;
+
+	@Override
+	public void attached(Cache cache) {
+		if (this.accesses != null)
+			throw new IllegalStateException("The probe is already attached to a cache");
+		int entries = cache.numberOfEntries();
+		this.ways = (cache.getAssociativity() == Associativity.FULLY_ASSOCIATIVE) ? entries
+				: cache.getAssociativity().getNumberWays();
+		int sets = entries / this.ways;
+		this.accesses = new long[sets];
+		this.misses = new long[sets];
+		this.evictions = new long[sets];
+	}
+
+	@Override
+	public void accessed(int address, int position, long results) {
+		int set = position / this.ways;
+		this.accesses[set]++;
+		if (!PackedResults.wasHit(results)) {
+			this.misses[set]++;
+			if (PackedResults.blockWasRemoved(results))
+				this.evictions[set]++;
+		}
+	}
+
+	/**
+	 * Writes the heatmap as CSV, a line per set.
+	 */
+	public void writeCsv(Appendable out) throws IOException {
+		out.append("set,accesses,misses,evictions\n");
+		for (int i = 0; i < this.accesses.length; i++)
+			out.append(i + "," + this.accesses[i] + "," + this.misses[i] + "," + this.evictions[i] + "\n");
+	}
+
+
+	// Getters!! (the arrays are the live counters, one element per set)
+	public int getSets() {
+		return this.accesses.length;
+	}
+	public long[] getAccesses() {
+		return this.accesses;
+	}
+	public long[] getMisses() {
+		return this.misses;
+	}
+	public long[] getEvictions() {
+		return this.evictions;
+	}
+}
@@ -0,0 +1,330 @@
+package memory.stats;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import memory.MemoryHierarchy;
+import memory.MemorySystem;
+import memory.cache.Cache;
+
+/**
+ * Live metrics of a running simulation, published as a JMX MBean: how fast it is going, the counters of
+ * every level of cache, and how much of the current trace or loop grid is done.<br><br>
+ *
+ * Nothing is added to the access path of the caches. The runners (TraceReplay, ParallelLoopRunner) report
+ * the references they simulate and the work they finish once per block of addresses or per loop, into
+ * LongAdders, so many threads can report at once without contending. The counters of each level are read
+ * from the caches themselves ('watch()'), only when the MBean is sampled: they are written by the simulating
+ * thread without any synchronization, so a sample may be slightly behind, but it never slows the simulation
+ * down. Caches simulated by several threads (e.g. the shards of a ShardedCacheSimulator) can be watched as
+ * stripes of the same level, and their counters are added up.<br><br>
+ *
+ * The rates are computed from the difference between two samples, at least a second apart, so any number of
+ * JMX clients can poll it.
+ */
+public class SimulatorMetrics implements SimulatorMetricsMBean {
+
+	public final static String DOMAIN = "memory.stats";
+	private final static long MIN_INTERVAL = 1000000000L;
+
+	private final String name;
+	private ObjectName object_name;
+
+	private final LongAdder references = new LongAdder();
+	private final LongAdder total_time = new LongAdder();
+	private final LongAdder work_done = new LongAdder();
+	private volatile long work_total;
+	private volatile long start;
+
+	// The caches of each level (one list per level, with a cache per stripe)
+	private final List<List<Cache>> levels = new CopyOnWriteArrayList<List<Cache>>();
+
+	// The last two samples of (time, references), for the current rate
+	private long sample_time;
+	private long sample_references;
+	private long previous_time;
+	private long previous_references;
+
+	/**
+	 * Creates the metrics of a simulation.
+	 *
+	 * @param name Name of the simulation, it is the 'name' key of the MBean
+	 */
+	public SimulatorMetrics(String name) {
+		this.name = name;
+		this.reset();
+	}
+
+
+	// Registration
+
+	/**
+	 * Publishes the metrics in the platform MBean server, as memory.stats:type=SimulatorMetrics,name=...
+	 * If there already are metrics with the same name, they are replaced.
+	 */
+	public synchronized void register() {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			ObjectName objectName = new ObjectName(DOMAIN + ":type=SimulatorMetrics,name=" + ObjectName.quote(this.name));
+			try {
+				server.registerMBean(this, objectName);
+			} catch (InstanceAlreadyExistsException e) {
+				server.unregisterMBean(objectName);
+				server.registerMBean(this, objectName);
+			}
+			this.object_name = objectName;
+		} catch (JMException e) {
+			throw new IllegalStateException("Could not register the metrics of " + this.name, e);
+		}
+	}
+
+	/**
+	 * Removes the metrics from the platform MBean server, if they were registered.
+	 */
+	public synchronized void unregister() {
+		if (this.object_name == null)
+			return;
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(this.object_name);
+		} catch (InstanceNotFoundException e) {
+			// Already removed by someone else
+		} catch (JMException e) {
+			throw new IllegalStateException("Could not unregister the metrics of " + this.name, e);
+		}
+		this.object_name = null;
+	}
+
+	public synchronized ObjectName getObjectName() {
+		return this.object_name;
+	}
+
+
+	// Sources of the metrics
+
+	/**
+	 * Watches the caches of a memory system: the levels of a MemoryHierarchy, or a Cache and the caches
+	 * below it. The first cache is added as a stripe of level 0, the next one of level 1, and so on.
+	 */
+	public void watch(MemorySystem memory) {
+		if (memory instanceof MemoryHierarchy)
+			memory = ((MemoryHierarchy) memory).getL1Cache();
+		int level = 0;
+		while (memory instanceof Cache) {
+			this.watch(level++, (Cache) memory);
+			memory = ((Cache) memory).getNextLevel();
+		}
+	}
+
+	/**
+	 * Watches a single cache, as a stripe of a level.
+	 */
+	public synchronized void watch(int level, Cache cache) {
+		while (this.levels.size() <= level)
+			this.levels.add(new CopyOnWriteArrayList<Cache>());
+		this.levels.get(level).add(cache);
+	}
+
+	/**
+	 * Stops watching every cache.
+	 */
+	public synchronized void unwatch() {
+		this.levels.clear();
+	}
+
+	/**
+	 * Reports references simulated, and the sum of their access times. Runners call this once per block of
+	 * addresses, from any thread.
+	 */
+	public void record(long references, long time) {
+		this.references.add(references);
+		this.total_time.add(time);
+	}
+
+	/**
+	 * Starts a new piece of work (a trace, a loop grid...): sets its size, in whatever units the runner
+	 * reports with 'advance()', and sets the work done to 0. A size of 0 means it is unknown.
+	 */
+	public void begin(long total) {
+		this.work_done.reset();
+		this.work_total = total;
+	}
+
+	/**
+	 * Reports some of the current work as done, from any thread.
+	 */
+	public void advance(long done) {
+		this.work_done.add(done);
+	}
+
+	/**
+	 * Sets every counter to 0 and starts measuring the time again. Watched caches are kept (their counters
+	 * are their own).
+	 */
+	@Override
+	public synchronized void reset() {
+		this.references.reset();
+		this.total_time.reset();
+		this.work_done.reset();
+		this.work_total = 0;
+		this.start = System.nanoTime();
+		this.sample_time = this.previous_time = this.start;
+		this.sample_references = this.previous_references = 0;
+	}
+
+
+	// Throughput
+
+	@Override
+	public String getName() {
+		return this.name;
+	}
+	@Override
+	public long getReferences() {
+		return this.references.sum();
+	}
+	@Override
+	public double getElapsedSeconds() {
+		return (System.nanoTime() - this.start) / 1e9;
+	}
+
+	/**
+	 * Takes a new sample if the last one is old enough, and gives the references and nanoseconds between
+	 * the last two samples.
+	 */
+	private synchronized long[] sample() {
+		long now = System.nanoTime();
+		if (now - this.sample_time >= MIN_INTERVAL) {
+			this.previous_time = this.sample_time;
+			this.previous_references = this.sample_references;
+			this.sample_time = now;
+			this.sample_references = this.references.sum();
+		}
+		// Until there are two samples, the rate is the one since the start
+		if (this.previous_time == this.sample_time)
+			return new long[] {this.references.sum(), now - this.start};
+		return new long[] {this.sample_references - this.previous_references, this.sample_time - this.previous_time};
+	}
+
+	/**
+	 * Gets the references simulated per second, over the last second (or so).
+	 */
+	@Override
+	public double getReferencesPerSecond() {
+		long[] delta = this.sample();
+		if (delta[1] == 0)
+			return 0;
+		return delta[0] * 1e9 / delta[1];
+	}
+
+	/**
+	 * Gets the references simulated per second since the start (or the last reset).
+	 */
+	@Override
+	public double getAverageReferencesPerSecond() {
+		long elapsed = System.nanoTime() - this.start;
+		if (elapsed == 0)
+			return 0;
+		return this.references.sum() * 1e9 / elapsed;
+	}
+
+	/**
+	 * Gets the real time (in ns) the simulation of each reference takes, over the last second (or so).
+	 */
+	@Override
+	public double getNanosPerAccess() {
+		long[] delta = this.sample();
+		if (delta[0] == 0)
+			return 0;
+		return (double) delta[1] / delta[0];
+	}
+
+	/**
+	 * Gets the simulated average access time (in ns) of the references reported.
+	 */
+	@Override
+	public float getAverageAccessTime() {
+		long references = this.references.sum();
+		if (references == 0)
+			return 0;
+		return (float) this.total_time.sum() / references;
+	}
+
+
+	// Counters of the levels
+
+	@Override
+	public int getLevels() {
+		return this.levels.size();
+	}
+
+	// Counters of each level, added up over its stripes
+	private final static int REFERENCES = 0, MISSES = 1, EVICTIONS = 2;
+
+	private long[] levelCounters(int counter) {
+		List<List<Cache>> levels = this.levels;
+		long[] counters = new long[levels.size()];
+		for (int i = 0; i < counters.length; i++) {
+			for (Cache cache : levels.get(i)) {
+				if (counter == REFERENCES)
+					counters[i] += cache.getTotalReferences();
+				else if (counter == MISSES)
+					counters[i] += cache.getTotalMisses();
+				else
+					counters[i] += cache.getTotalEvictions();
+			}
+		}
+		return counters;
+	}
+
+	@Override
+	public long[] getLevelReferences() {
+		return this.levelCounters(REFERENCES);
+	}
+	@Override
+	public long[] getLevelHits() {
+		long[] hits = this.levelCounters(REFERENCES);
+		long[] misses = this.levelCounters(MISSES);
+		for (int i = 0; i < hits.length && i < misses.length; i++)
+			hits[i] -= misses[i];
+		return hits;
+	}
+	@Override
+	public long[] getLevelMisses() {
+		return this.levelCounters(MISSES);
+	}
+	@Override
+	public long[] getLevelEvictions() {
+		return this.levelCounters(EVICTIONS);
+	}
+
+
+	// Progress
+
+	@Override
+	public long getWorkDone() {
+		return this.work_done.sum();
+	}
+	@Override
+	public long getWorkTotal() {
+		return this.work_total;
+	}
+
+	/**
+	 * Gets the fraction of the current work done (between 0 and 1), or -1 if its size is unknown.
+	 */
+	@Override
+	public double getProgress() {
+		long total = this.work_total;
+		if (total <= 0)
+			return -1;
+		return Math.min(1.0, (double) this.work_done.sum() / total);
+	}
+}
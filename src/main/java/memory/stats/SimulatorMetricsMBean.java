@@ -0,0 +1,32 @@
+package memory.stats;
+
+/**
+ * Management interface of SimulatorMetrics, as seen through JMX (e.g. in JConsole or VisualVM). The level
+ * arrays have one element per level of cache, being 0 the L1.
+ */
+public interface SimulatorMetricsMBean {
+
+	public String getName();
+
+	// Throughput of the simulation
+	public long getReferences();
+	public double getElapsedSeconds();
+	public double getReferencesPerSecond();
+	public double getAverageReferencesPerSecond();
+	public double getNanosPerAccess();
+	public float getAverageAccessTime();
+
+	// Counters of the watched caches
+	public int getLevels();
+	public long[] getLevelReferences();
+	public long[] getLevelHits();
+	public long[] getLevelMisses();
+	public long[] getLevelEvictions();
+
+	// Progress through the current trace or loop grid
+	public long getWorkDone();
+	public long getWorkTotal();
+	public double getProgress();
+
+	public void reset();
+}
@@ -0,0 +1,153 @@
+package memory.trace;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reader of compressed traces (see TraceFormat). Each call to 'next()' reads, inflates and decodes one block
+ * into buffers that are reused all the time, and gives its addresses as an IntBuffer. Thanks to the index, the
+ * reading can start at any reference with 'seek()'.
+ */
+public class CompressedTraceReader implements TraceSource {
+
+	private FileChannel channel;
+	private int block_size;
+	private long[] offsets;
+	private long references;
+	private Inflater inflater;
+
+	// Next block to read, and addresses of the first one to skip (after a seek)
+	private int current;
+	private int skip;
+
+	private ByteBuffer header;
+	private byte[] payload;
+	private byte[] encoded;
+	private int[] addresses;
+	private IntBuffer block;
+
+	/**
+	 * Opens a trace, and reads its index.
+	 */
+	public CompressedTraceReader(File file) throws IOException {
+		this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try {
+			ByteBuffer start = this.read(0, TraceFormat.HEADER_SIZE);
+			if (start.getInt() != TraceFormat.MAGIC || start.getInt() != TraceFormat.VERSION)
+				throw new IOException("Not a compressed trace: " + file);
+			this.block_size = start.getInt();
+
+			ByteBuffer footer = this.read(this.channel.size() - TraceFormat.FOOTER_SIZE, TraceFormat.FOOTER_SIZE);
+			long indexOffset = footer.getLong();
+			int blocks = footer.getInt();
+			this.references = footer.getLong();
+			if (footer.getInt() != TraceFormat.INDEX_MAGIC)
+				throw new IOException("The trace has no index (it was not closed): " + file);
+			ByteBuffer index = this.read(indexOffset, blocks * 8);
+			this.offsets = new long[blocks];
+			for (int i = 0; i < blocks; i++)
+				this.offsets[i] = index.getLong();
+		} catch (IOException e) {
+			this.channel.close();
+			throw e;
+		}
+
+		this.inflater = new Inflater();
+		this.header = ByteBuffer.allocate(TraceFormat.BLOCK_HEADER_SIZE);
+		this.payload = new byte[this.block_size * TraceFormat.MAX_VARINT];
+		this.encoded = new byte[this.block_size * TraceFormat.MAX_VARINT];
+		this.addresses = new int[this.block_size];
+		this.block = IntBuffer.wrap(this.addresses);
+	}
+
+	private ByteBuffer read(long position, int length) throws IOException {
+		ByteBuffer bytes = ByteBuffer.allocate(length);
+		this.readFully(bytes, position);
+		bytes.flip();
+		return bytes;
+	}
+
+	private void readFully(ByteBuffer bytes, long position) throws IOException {
+		while (bytes.hasRemaining()) {
+			int read = this.channel.read(bytes, position);
+			if (read < 0)
+				throw new IOException("Unexpected end of the trace");
+			position += read;
+		}
+	}
+
+
+	@Override
+	public IntBuffer next() throws IOException {
+		if (this.current >= this.offsets.length)
+			return null;
+		long offset = this.offsets[this.current++];
+		this.header.clear();
+		this.readFully(this.header, offset);
+		this.header.flip();
+		int count = this.header.getInt();
+		byte flags = this.header.get();
+		int length = this.header.getInt();
+		this.readFully(ByteBuffer.wrap(this.payload, 0, length), offset + TraceFormat.BLOCK_HEADER_SIZE);
+
+		byte[] varints = this.payload;
+		if ((flags & TraceFormat.FLAG_DEFLATED) != 0) {
+			this.inflater.reset();
+			this.inflater.setInput(this.payload, 0, length);
+			try {
+				this.inflater.inflate(this.encoded);
+			} catch (DataFormatException e) {
+				throw new IOException("Corrupted block " + (this.current - 1), e);
+			}
+			varints = this.encoded;
+		}
+		TraceFormat.decode(varints, this.addresses, count);
+
+		this.block.clear();
+		this.block.limit(count);
+		this.block.position(this.skip);
+		this.skip = 0;
+		return this.block;
+	}
+
+	/**
+	 * Goes to a reference of the trace, so that the next block starts with it.
+	 *
+	 * @param reference Number of the reference, from 0 to the number of references
+	 */
+	public void seek(long reference) {
+		if (reference < 0 || reference > this.references)
+			throw new IllegalArgumentException("Reference out of the trace: " + reference);
+		this.current = (int) (reference / this.block_size);
+		this.skip = (int) (reference % this.block_size);
+	}
+
+	@Override
+	public void rewind() {
+		this.seek(0);
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.channel.close();
+		this.inflater.end();
+	}
+
+
+	// Getters!!
+	public long getReferences() {
+		return this.references;
+	}
+	public int getBlockSize() {
+		return this.block_size;
+	}
+	public int getBlocks() {
+		return this.offsets.length;
+	}
+}
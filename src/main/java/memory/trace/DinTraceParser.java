@@ -0,0 +1,39 @@
+package memory.trace;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Parser of Dinero traces ('din' format): each line is a label and a hex address, as in "0 408ed4". The
+ * labels are 0 (read), 1 (write), 2 (instruction fetch), 3 (escape) and 4 (cache flush); lines with the last
+ * two have no reference and are skipped. Anything after the address is ignored.
+ */
+public class DinTraceParser extends TextTraceParser {
+
+	public DinTraceParser(ReadableByteChannel channel) {
+		super(channel);
+	}
+
+	public DinTraceParser(File file) throws IOException {
+		super(FileChannel.open(file.toPath(), StandardOpenOption.READ));
+	}
+
+	@Override
+	protected void parseLine(byte[] line, int from, int to) throws IOException {
+		int i = skipSpaces(line, from, to);
+		if (i == to)
+			return;
+		int label = line[i] - '0';
+		if (label < 0 || label > 4 || (i + 1 < to && line[i + 1] != ' ' && line[i + 1] != '\t'))
+			throw this.malformed();
+		if (label > 2)
+			return;
+
+		// Labels 0, 1 and 2 are the same as READ, WRITE and INSTRUCTION
+		int address = this.parseHex(line, skipSpaces(line, i + 1, to), to);
+		this.emit(address, (byte) label);
+	}
+}
@@ -0,0 +1,212 @@
+package memory.trace;
+
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+
+import memory.MemorySystem;
+
+/**
+ * Replays a trace in many memory systems at once, reading (and decoding) it only once.<br><br>
+ *
+ * The trace is copied a chunk at a time into one of two shared buffers. While the worker threads run the
+ * chunk of one buffer on their memory systems (each worker owns a fixed subset of them, so no system is ever
+ * accessed by two threads), the calling thread reads the next chunk into the other buffer. A barrier
+ * separates the chunks, so every system sees the whole trace in order, exactly as if it were replayed on its
+ * own.
+ */
+public class FanOutSimulator {
+
+	// Number of addresses of each chunk
+	private final static int CHUNK = 1 << 16;
+
+	private List<MemorySystem> systems;
+	private int threads;
+
+	/**
+	 * Creates a simulator for a group of memory systems.
+	 *
+	 * @param systems The memory systems, all of them different objects
+	 * @param threads Number of worker threads (at most one per memory system is used)
+	 */
+	public FanOutSimulator(List<? extends MemorySystem> systems, int threads) {
+		if (systems.isEmpty())
+			throw new IllegalArgumentException("At least one memory system is needed");
+		this.systems = new ArrayList<MemorySystem>(systems);
+		this.threads = Math.max(1, Math.min(threads, systems.size()));
+	}
+
+
+	/**
+	 * Replays the trace (from where the source is now to its end) in every memory system.
+	 *
+	 * @return The results of each memory system, in the same order they were given
+	 */
+	public List<Row> run(TraceSource trace) throws IOException {
+		final int[][] buffers = {new int[CHUNK], new int[CHUNK]};
+		final int[] lengths = new int[2];
+		final long[] references = new long[this.systems.size()];
+		final long[] times = new long[this.systems.size()];
+		final Throwable[] errors = new Throwable[this.threads];
+		final CyclicBarrier barrier = new CyclicBarrier(this.threads + 1);
+
+		long start = System.nanoTime();
+		for (int i = 0; i < this.threads; i++) {
+			final int worker = i;
+			Thread thread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					// The barrier publishes the chunk (and its length) written by the reader, and an empty chunk
+					// means the end of the trace
+					int phase = 0;
+					try {
+						while (true) {
+							barrier.await();
+							int length = lengths[phase & 1];
+							if (length == 0)
+								return;
+							if (errors[worker] == null) {
+								try {
+									FanOutSimulator.this.simulate(worker, buffers[phase & 1], length, references, times);
+								} catch (Throwable e) {
+									errors[worker] = e;
+								}
+							}
+							phase++;
+						}
+					} catch (InterruptedException e) {
+						errors[worker] = e;
+					} catch (BrokenBarrierException e) {
+						errors[worker] = e;
+					}
+				}
+			}, "fan-out-" + i);
+			thread.setDaemon(true);
+			thread.start();
+		}
+
+		Chunker chunker = new Chunker(trace);
+		int phase = 0;
+		try {
+			lengths[0] = chunker.fill(buffers[0]);
+			while (lengths[phase & 1] > 0) {
+				this.await(barrier);
+				phase++;
+				lengths[phase & 1] = chunker.fill(buffers[phase & 1]);
+			}
+		} finally {
+			// The workers always get an empty chunk at the end, even if the trace could not be read
+			lengths[phase & 1] = 0;
+			this.await(barrier);
+		}
+		long elapsed = System.nanoTime() - start;
+
+		for (int i = 0; i < this.threads; i++) {
+			if (errors[i] != null)
+				throw new IllegalStateException("Simulation of worker " + i + " failed", errors[i]);
+		}
+		List<Row> table = new ArrayList<Row>();
+		for (int i = 0; i < this.systems.size(); i++)
+			table.add(new Row(this.systems.get(i), references[i], times[i], elapsed));
+		return table;
+	}
+
+	/**
+	 * Runs a chunk on the memory systems of a worker (those whose index modulo the number of threads is
+	 * the number of the worker).
+	 */
+	private void simulate(int worker, int[] chunk, int length, long[] references, long[] times) {
+		for (int i = worker; i < this.systems.size(); i += this.threads) {
+			times[i] += this.systems.get(i).accessBatch(chunk, 0, length, null);
+			references[i] += length;
+		}
+	}
+
+	private void await(CyclicBarrier barrier) {
+		try {
+			barrier.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Simulation interrupted", e);
+		} catch (BrokenBarrierException e) {
+			throw new IllegalStateException("Simulation interrupted", e);
+		}
+	}
+
+
+	/**
+	 * Cuts the blocks of a trace source (which may be of any size) into chunks.
+	 */
+	private static class Chunker {
+		private TraceSource trace;
+		private IntBuffer block;
+
+		Chunker(TraceSource trace) {
+			this.trace = trace;
+		}
+
+		/**
+		 * Copies the next addresses into the chunk.
+		 *
+		 * @return The number of addresses copied, 0 if the trace has ended
+		 */
+		int fill(int[] chunk) throws IOException {
+			int length = 0;
+			while (length < chunk.length) {
+				if (this.block == null || !this.block.hasRemaining()) {
+					this.block = this.trace.next();
+					if (this.block == null)
+						break;
+					continue;
+				}
+				int n = Math.min(chunk.length - length, this.block.remaining());
+				this.block.get(chunk, length, n);
+				length += n;
+			}
+			return length;
+		}
+	}
+
+
+	/**
+	 * A row of the results table: a memory system, and what the trace did on it.
+	 */
+	public static class Row {
+		public final MemorySystem memory;
+		public final long references;
+		public final long total_time;
+		public final long elapsed_nanos;
+
+		private Row(MemorySystem memory, long references, long total_time, long elapsed_nanos) {
+			this.memory = memory;
+			this.references = references;
+			this.total_time = total_time;
+			this.elapsed_nanos = elapsed_nanos;
+		}
+
+		public float getAverageAccessTime() {
+			if (this.references == 0)
+				return 0;
+			return (float) this.total_time / this.references;
+		}
+
+		/**
+		 * Gets the miss rate of the first level of the memory system (it was expected to be clean before
+		 * the run, as its counters are not cleaned).
+		 */
+		public float getMissRate() {
+			if (this.references == 0)
+				return 0;
+			return (float) this.memory.getTotalMisses() / this.references;
+		}
+
+		@Override
+		public String toString() {
+			return this.references + " references. Average access time: " + this.getAverageAccessTime()
+					+ " ns. Miss rate: " + this.getMissRate() + ".";
+		}
+	}
+}
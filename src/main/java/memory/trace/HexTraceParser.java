@@ -0,0 +1,30 @@
+package memory.trace;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Parser of plain dumps of addresses: one hex address per line (with or without '0x'), taken as reads.
+ * Empty lines and lines starting with '#' are skipped, and anything after the address is ignored.
+ */
+public class HexTraceParser extends TextTraceParser {
+
+	public HexTraceParser(ReadableByteChannel channel) {
+		super(channel);
+	}
+
+	public HexTraceParser(File file) throws IOException {
+		super(FileChannel.open(file.toPath(), StandardOpenOption.READ));
+	}
+
+	@Override
+	protected void parseLine(byte[] line, int from, int to) throws IOException {
+		int i = skipSpaces(line, from, to);
+		if (i == to || line[i] == '#')
+			return;
+		this.emit(this.parseHex(line, i, to), READ);
+	}
+}
@@ -0,0 +1,50 @@
+package memory.trace;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Parser of the traces of the Lackey tool of Valgrind ('--trace-mem=yes'): each line is an operation and a
+ * hex address with its size, as in "I  04222cac,3" or " L 7ff0001f8,8". The operations are I (instruction
+ * fetch), L (load), S (store) and M (modify, a load and a store to the same address, given as one reference).
+ * The messages of Valgrind (lines starting with "==") are skipped, and so are the sizes.
+ */
+public class LackeyTraceParser extends TextTraceParser {
+
+	public LackeyTraceParser(ReadableByteChannel channel) {
+		super(channel);
+	}
+
+	public LackeyTraceParser(File file) throws IOException {
+		super(FileChannel.open(file.toPath(), StandardOpenOption.READ));
+	}
+
+	@Override
+	protected void parseLine(byte[] line, int from, int to) throws IOException {
+		int i = skipSpaces(line, from, to);
+		if (i == to || line[i] == '=')
+			return;
+		byte operation;
+		switch (line[i]) {
+		case 'I':
+			operation = INSTRUCTION;
+			break;
+		case 'L':
+			operation = READ;
+			break;
+		case 'S':
+			operation = WRITE;
+			break;
+		case 'M':
+			operation = MODIFY;
+			break;
+		default:
+			throw this.malformed();
+		}
+		int address = this.parseHex(line, skipSpaces(line, i + 1, to), to);
+		this.emit(address, operation);
+	}
+}
@@ -0,0 +1,84 @@
+package memory.trace;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reader of raw binary traces: files that are just the addresses, one after another, as 32-bit little endian
+ * ints (any trailing bytes that do not make a whole address are ignored).<br><br>
+ *
+ * The file is memory mapped with 'FileChannel.map()', and each block given by 'next()' is an IntBuffer view of
+ * the mapped bytes, so the addresses are never copied. A single mapping can not be larger than 2 GB, so
+ * larger files are mapped in windows, one window per block.
+ */
+public class MappedTraceReader implements TraceSource {
+
+	// Default size of the windows (in bytes)
+	public final static int DEFAULT_WINDOW = 1 << 28;
+
+	private FileChannel channel;
+	private long size;
+	private long position;
+	private int window;
+
+	/**
+	 * Opens a trace, to be mapped in windows of the default size.
+	 */
+	public MappedTraceReader(File file) throws IOException {
+		this(file, DEFAULT_WINDOW);
+	}
+
+	/**
+	 * Opens a trace, to be mapped in windows of the given size.
+	 *
+	 * @param file The trace file
+	 * @param window Size of the windows in bytes, it is rounded down to a whole number of addresses
+	 */
+	public MappedTraceReader(File file, int window) throws IOException {
+		if (window < 4)
+			throw new IllegalArgumentException("Windows must hold at least one address");
+		this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		this.size = this.channel.size() & ~3L;
+		this.window = window & ~3;
+		this.position = 0;
+	}
+
+	@Override
+	public IntBuffer next() throws IOException {
+		if (this.position >= this.size)
+			return null;
+		long length = Math.min(this.window, this.size - this.position);
+		MappedByteBuffer mapped = this.channel.map(FileChannel.MapMode.READ_ONLY, this.position, length);
+		this.position += length;
+		mapped.order(ByteOrder.LITTLE_ENDIAN);
+		return mapped.asIntBuffer();
+	}
+
+	@Override
+	public void rewind() {
+		this.position = 0;
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.channel.close();
+	}
+
+
+	// Getters!!
+
+	/**
+	 * Gets the number of addresses in the trace.
+	 */
+	public long getReferences() {
+		return this.size >>> 2;
+	}
+	public int getWindow() {
+		return this.window;
+	}
+}
@@ -0,0 +1,146 @@
+package memory.trace;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.IntBuffer;
+
+import memory.MemoryResults;
+import memory.MemorySystem;
+import memory.StateHash;
+
+/**
+ * Memory system that writes every address accessed to a trace, and then accesses another memory system with
+ * it. A Processor (or anything else) run over it leaves in the trace the exact stream of references it
+ * made.<br><br>
+ *
+ * Every access must reach the trace, so the state hash of a recording never repeats (iterations in a periodic
+ * state are run, not extrapolated). Errors writing the trace are thrown as UncheckedIOException, as the
+ * access methods can not throw IOException.
+ */
+public class RecordingMemorySystem implements MemorySystem {
+
+	private MemorySystem memory;
+	private TraceWriter writer;
+
+	/**
+	 * Creates the recording of the accesses to a memory system.
+	 *
+	 * @param memory The memory system that is accessed
+	 * @param writer The trace where the addresses are written. It is not closed by the recording.
+	 */
+	public RecordingMemorySystem(MemorySystem memory, TraceWriter writer) {
+		this.memory = memory;
+		this.writer = writer;
+	}
+
+	private void record(int address) {
+		try {
+			this.writer.write(address);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void record(int[] addresses, int offset, int length) {
+		try {
+			this.writer.write(addresses, offset, length);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+
+	// Access methods, recorded
+	@Override
+	public MemoryResults access(Integer address) {
+		this.record(address);
+		return this.memory.access(address);
+	}
+	@Override
+	public long accessPacked(int address) {
+		this.record(address);
+		return this.memory.accessPacked(address);
+	}
+	@Override
+	public long accessBatch(int[] addresses, int offset, int length, long[] results) {
+		this.record(addresses, offset, length);
+		return this.memory.accessBatch(addresses, offset, length, results);
+	}
+	@Override
+	public long accessBatch(IntBuffer addresses, long[] results) {
+		int start = addresses.position();
+		while (addresses.hasRemaining())
+			this.record(addresses.get());
+		addresses.position(start);
+		return this.memory.accessBatch(addresses, results);
+	}
+
+	@Override
+	public long stateHash() {
+		// The number of references recorded makes every state different
+		return StateHash.combine(this.memory.stateHash(), this.writer.getReferences());
+	}
+
+	/**
+	 * Copies are copies of the memory system that is recorded, and they are not recorded.
+	 */
+	@Override
+	public MemorySystem emptyCopy() {
+		return this.memory.emptyCopy();
+	}
+	@Override
+	public MemorySystem copy() {
+		return this.memory.copy();
+	}
+
+
+	// Everything else is the memory system's
+	@Override
+	public MemoryResults lastAccessResults() {
+		return this.memory.lastAccessResults();
+	}
+	@Override
+	public void clean() {
+		this.memory.clean();
+	}
+	@Override
+	public boolean inMemory(Integer address) {
+		return this.memory.inMemory(address);
+	}
+	@Override
+	public void markCounters() {
+		this.memory.markCounters();
+	}
+	@Override
+	public void extrapolateCounters(int times) {
+		this.memory.extrapolateCounters(times);
+	}
+	@Override
+	public long getTotalReferences() {
+		return this.memory.getTotalReferences();
+	}
+	@Override
+	public long getTotalMisses() {
+		return this.memory.getTotalMisses();
+	}
+	@Override
+	public long getTotalHits() {
+		return this.memory.getTotalHits();
+	}
+	@Override
+	public float getAverageAccessTime() {
+		return this.memory.getAverageAccessTime();
+	}
+	@Override
+	public float getMissRate() {
+		return this.memory.getMissRate();
+	}
+
+	// Getters!!
+	public MemorySystem getMemory() {
+		return this.memory;
+	}
+	public TraceWriter getWriter() {
+		return this.writer;
+	}
+}
@@ -0,0 +1,225 @@
+package memory.trace;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.util.Arrays;
+
+/**
+ * Base of the parsers of text traces (one reference per line). The bytes are read from a channel into a
+ * buffer that is reused all the time, and the lines are parsed right from the bytes (no String is built), so
+ * parsing keeps up with the simulation.<br><br>
+ *
+ * Each type of trace only has to parse a line, and call 'emit()' with the address and the type of operation
+ * of its reference (if the line has one). Addresses are truncated to their lowest 32 bits. The operations of
+ * the last block given by 'next()' are in 'getOperations()', in the same order as the addresses.
+ */
+public abstract class TextTraceParser implements TraceSource {
+
+	// Types of operation
+	public final static byte READ = 0;
+	public final static byte WRITE = 1;
+	public final static byte INSTRUCTION = 2;
+	public final static byte MODIFY = 3;
+
+	// References per block, and size of the buffer of bytes (the longest line that can be parsed)
+	private final static int BLOCK = 4096;
+	private final static int BUFFER_SIZE = 1 << 16;
+
+	// Value of each hex digit, -1 for the bytes that are not
+	private final static byte[] HEX = new byte[256];
+	static {
+		Arrays.fill(HEX, (byte) -1);
+		for (int i = 0; i < 10; i++)
+			HEX['0' + i] = (byte) i;
+		for (int i = 0; i < 6; i++) {
+			HEX['a' + i] = (byte) (10 + i);
+			HEX['A' + i] = (byte) (10 + i);
+		}
+	}
+
+	private ReadableByteChannel channel;
+	private ByteBuffer bytes;
+	private byte[] data;
+	// Start of the first line not parsed yet, and end of the bytes read
+	private int start;
+	private int end;
+	private boolean eof;
+	private long line_number;
+
+	private int[] addresses;
+	private byte[] operations;
+	private int count;
+	private IntBuffer block;
+	private long references;
+
+	// Position right after the last number parsed
+	protected int cursor;
+
+	protected TextTraceParser(ReadableByteChannel channel) {
+		this.channel = channel;
+		this.data = new byte[BUFFER_SIZE];
+		this.bytes = ByteBuffer.wrap(this.data);
+		this.addresses = new int[BLOCK];
+		this.operations = new byte[BLOCK];
+		this.block = IntBuffer.wrap(this.addresses);
+	}
+
+
+	/**
+	 * Parses a line of the trace (without its line break), calling 'emit()' at most once.
+	 *
+	 * @param line The buffer where the line is
+	 * @param from Index of the first byte of the line
+	 * @param to Index right after the last byte of the line
+	 */
+	protected abstract void parseLine(byte[] line, int from, int to) throws IOException;
+
+	/**
+	 * Adds a reference to the current block.
+	 */
+	protected void emit(int address, byte operation) {
+		this.addresses[this.count] = address;
+		this.operations[this.count++] = operation;
+	}
+
+
+	@Override
+	public IntBuffer next() throws IOException {
+		this.count = 0;
+		while (this.count < BLOCK) {
+			int newline = this.findNewline();
+			if (newline < 0) {
+				if (!this.eof) {
+					this.fill();
+					continue;
+				}
+				// The last line may have no line break
+				if (this.start == this.end)
+					break;
+				newline = this.end;
+			}
+			int lineEnd = newline;
+			if (lineEnd > this.start && this.data[lineEnd - 1] == '\r')
+				lineEnd--;
+			this.line_number++;
+			this.parseLine(this.data, this.start, lineEnd);
+			this.start = Math.min(newline + 1, this.end);
+		}
+
+		if (this.count == 0)
+			return null;
+		this.references += this.count;
+		this.block.clear();
+		this.block.limit(this.count);
+		return this.block;
+	}
+
+	private int findNewline() {
+		for (int i = this.start; i < this.end; i++) {
+			if (this.data[i] == '\n')
+				return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * Moves the bytes not parsed yet to the beginning of the buffer, and reads more after them.
+	 */
+	private void fill() throws IOException {
+		System.arraycopy(this.data, this.start, this.data, 0, this.end - this.start);
+		this.end -= this.start;
+		this.start = 0;
+		if (this.end == this.data.length)
+			throw new IOException("Line " + (this.line_number + 1) + " is too long");
+		this.bytes.limit(this.data.length);
+		this.bytes.position(this.end);
+		int read = this.channel.read(this.bytes);
+		if (read < 0)
+			this.eof = true;
+		else
+			this.end += read;
+	}
+
+	/**
+	 * Goes back to the beginning of the trace.
+	 *
+	 * @throws IOException If the channel of the trace is not seekable (e.g. it was a stream)
+	 */
+	@Override
+	public void rewind() throws IOException {
+		if (!(this.channel instanceof SeekableByteChannel))
+			throw new IOException("The trace can not be rewound: its channel is not seekable");
+		((SeekableByteChannel) this.channel).position(0);
+		this.start = 0;
+		this.end = 0;
+		this.eof = false;
+		this.line_number = 0;
+		this.references = 0;
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.channel.close();
+	}
+
+
+	// Auxiliary methods to parse the lines
+
+	/**
+	 * Gets the index of the first byte from 'from' that is not a space or a tab ('to' if there is none).
+	 */
+	protected static int skipSpaces(byte[] line, int from, int to) {
+		while (from < to && (line[from] == ' ' || line[from] == '\t'))
+			from++;
+		return from;
+	}
+
+	/**
+	 * Parses a hex number (with or without '0x') that starts at 'from', and leaves 'cursor' right after it.
+	 * Only its lowest 32 bits are kept.
+	 */
+	protected int parseHex(byte[] line, int from, int to) throws IOException {
+		int i = from;
+		if (i + 1 < to && line[i] == '0' && (line[i + 1] | 0x20) == 'x')
+			i += 2;
+		int first = i;
+		int value = 0;
+		while (i < to) {
+			int digit = HEX[line[i] & 0xFF];
+			if (digit < 0)
+				break;
+			value = (value << 4) | digit;
+			i++;
+		}
+		if (i == first)
+			throw this.malformed();
+		this.cursor = i;
+		return value;
+	}
+
+	/**
+	 * Builds the exception for a line that can not be parsed.
+	 */
+	protected IOException malformed() {
+		return new IOException("Malformed trace at line " + this.line_number);
+	}
+
+
+	// Getters!!
+
+	/**
+	 * Gets the operations of the references of the last block, in the same order (the array is reused).
+	 */
+	public byte[] getOperations() {
+		return this.operations;
+	}
+	public long getReferences() {
+		return this.references;
+	}
+	public long getLineNumber() {
+		return this.line_number;
+	}
+}
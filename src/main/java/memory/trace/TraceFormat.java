@@ -0,0 +1,74 @@
+package memory.trace;
+
+/**
+ * Layout of the compressed traces written by TraceWriter and read by CompressedTraceReader.<br><br>
+ *
+ * <li> Header: MAGIC, VERSION and the number of addresses per block (ints).
+ * <li> Blocks: the number of addresses of the block (int), its flags (byte), the length of its payload (int)
+ * and the payload. The payload is the addresses as zig-zag varints of the difference with the previous
+ * address of the block (the first one with 0, so every block can be decoded on its own), deflated if
+ * FLAG_DEFLATED is set. Every block is full but the last one.
+ * <li> Index: the offset in the file of every block (longs).
+ * <li> Footer: the offset of the index (long), the number of blocks (int), the number of addresses (long)
+ * and INDEX_MAGIC (int).<br><br>
+ *
+ * All the numbers are big endian.
+ */
+final class TraceFormat {
+
+	final static int MAGIC = 0x43545243;
+	final static int INDEX_MAGIC = 0x43545249;
+	final static int VERSION = 1;
+
+	final static int HEADER_SIZE = 12;
+	final static int BLOCK_HEADER_SIZE = 9;
+	final static int FOOTER_SIZE = 24;
+	final static byte FLAG_DEFLATED = 1;
+
+	// Longest varint of an int
+	final static int MAX_VARINT = 5;
+
+	private TraceFormat() {
+	}
+
+	/**
+	 * Encodes the addresses of a block.
+	 *
+	 * @return The number of bytes written in 'out'
+	 */
+	static int encode(int[] addresses, int count, byte[] out) {
+		int p = 0;
+		int previous = 0;
+		for (int i = 0; i < count; i++) {
+			int delta = addresses[i] - previous;
+			previous = addresses[i];
+			int zigzag = (delta << 1) ^ (delta >> 31);
+			while ((zigzag & ~0x7F) != 0) {
+				out[p++] = (byte) ((zigzag & 0x7F) | 0x80);
+				zigzag >>>= 7;
+			}
+			out[p++] = (byte) zigzag;
+		}
+		return p;
+	}
+
+	/**
+	 * Decodes the addresses of a block.
+	 */
+	static void decode(byte[] in, int[] addresses, int count) {
+		int p = 0;
+		int previous = 0;
+		for (int i = 0; i < count; i++) {
+			int zigzag = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = in[p++];
+				zigzag |= (b & 0x7F) << shift;
+				shift += 7;
+			} while (b < 0);
+			previous += (zigzag >>> 1) ^ -(zigzag & 1);
+			addresses[i] = previous;
+		}
+	}
+}
@@ -0,0 +1,85 @@
+package memory.trace;
+
+import java.io.IOException;
+import java.nio.IntBuffer;
+
+import memory.MemorySystem;
+import memory.stats.SimulatorMetrics;
+
+/**
+ * Replay of a trace in a memory system, and its results: how many references were made, their total access
+ * time, and how long the replay took (the throughput of the simulation).
+ */
+public class TraceReplay {
+
+	public final long references;
+	public final long total_time;
+	public final long elapsed_nanos;
+
+	private TraceReplay(long references, long total_time, long elapsed_nanos) {
+		this.references = references;
+		this.total_time = total_time;
+		this.elapsed_nanos = elapsed_nanos;
+	}
+
+	/**
+	 * Accesses the memory system with every address of the trace (from where the source is now to its end),
+	 * in order, through the batch access methods.
+	 *
+	 * @return The results of the replay
+	 */
+	public static TraceReplay run(TraceSource trace, MemorySystem memory) throws IOException {
+		return run(trace, memory, null);
+	}
+
+	/**
+	 * Same as above, reporting the references simulated (and the progress, in references) to some metrics
+	 * after every block. The size of the work is set by the caller with 'metrics.begin()', if it is known
+	 * (e.g. MappedTraceReader.getReferences()).
+	 *
+	 * @param metrics The metrics to report to, or null for none
+	 */
+	public static TraceReplay run(TraceSource trace, MemorySystem memory, SimulatorMetrics metrics) throws IOException {
+		long start = System.nanoTime();
+		long references = 0;
+		long time = 0;
+		IntBuffer block;
+		while ((block = trace.next()) != null) {
+			int length = block.remaining();
+			long blockTime = memory.accessBatch(block, null);
+			references += length;
+			time += blockTime;
+			if (metrics != null) {
+				metrics.record(length, blockTime);
+				metrics.advance(length);
+			}
+		}
+		return new TraceReplay(references, time, System.nanoTime() - start);
+	}
+
+
+	/**
+	 * Gets the simulated average access time of the references (in ns).
+	 */
+	public float getAverageAccessTime() {
+		if (this.references == 0)
+			return 0;
+		return (float) this.total_time / this.references;
+	}
+
+	/**
+	 * Gets the speed of the replay, in references simulated per second.
+	 */
+	public double getReferencesPerSecond() {
+		if (this.elapsed_nanos == 0)
+			return 0;
+		return this.references * 1e9 / this.elapsed_nanos;
+	}
+
+	@Override
+	public String toString() {
+		return this.references + " references in " + (this.elapsed_nanos / 1000000) + " ms ("
+				+ String.format("%.1f", this.getReferencesPerSecond() / 1e6) + " M references/s). Average access time: "
+				+ this.getAverageAccessTime() + " ns.";
+	}
+}
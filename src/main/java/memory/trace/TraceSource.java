@@ -0,0 +1,30 @@
+package memory.trace;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.IntBuffer;
+
+/**
+ * Source of the addresses of a trace, read a block at a time so that they can be given straight to
+ * 'MemorySystem.accessBatch(IntBuffer, long[])'.<br><br>
+ *
+ * Sources do not create an object (or copy the addresses) per reference: each call to 'next()' gives a buffer
+ * over the next block of addresses, which is only valid until the following call.
+ *
+ * @see TraceReplay
+ */
+public interface TraceSource extends Closeable {
+
+	/**
+	 * Gets the next block of addresses of the trace.
+	 *
+	 * @return A buffer whose remaining ints are the addresses, in order, or null if the trace has ended.
+	 * It may be reused by the source in the next call.
+	 */
+	public IntBuffer next() throws IOException;
+
+	/**
+	 * Goes back to the beginning of the trace.
+	 */
+	public void rewind() throws IOException;
+}
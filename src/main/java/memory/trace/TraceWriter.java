@@ -0,0 +1,170 @@
+package memory.trace;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+/**
+ * Writer of compressed traces (see TraceFormat). Addresses are gathered in blocks, and each full block is
+ * delta encoded (and deflated, if asked for and if it gets smaller) and written. Strided loops are very
+ * regular, so their blocks take a few bytes per thousand addresses.<br><br>
+ *
+ * The trace is only complete (and readable) after 'close()', which writes the last block and the index.
+ * To record the accesses made to a memory system (by a Processor, for example), see RecordingMemorySystem.
+ */
+public class TraceWriter implements Closeable {
+
+	// Default number of addresses per block
+	public final static int DEFAULT_BLOCK = 1 << 16;
+
+	private FileChannel channel;
+	private long position;
+	private Deflater deflater;
+
+	private int[] block;
+	private int count;
+	private byte[] encoded;
+	private byte[] compressed;
+	private ByteBuffer header;
+
+	private long[] offsets;
+	private int blocks;
+	private long references;
+
+	/**
+	 * Creates a trace file (or truncates it) with blocks of the default size.
+	 *
+	 * @param file The trace file
+	 * @param deflate Whether the blocks are deflated or only delta encoded
+	 */
+	public TraceWriter(File file, boolean deflate) throws IOException {
+		this(file, deflate, DEFAULT_BLOCK);
+	}
+
+	/**
+	 * Creates a trace file (or truncates it).
+	 *
+	 * @param file The trace file
+	 * @param deflate Whether the blocks are deflated or only delta encoded
+	 * @param block_size Number of addresses per block (the unit of seeking)
+	 */
+	public TraceWriter(File file, boolean deflate, int block_size) throws IOException {
+		if (block_size <= 0)
+			throw new IllegalArgumentException("Blocks must hold at least one address");
+		this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+		this.deflater = deflate ? new Deflater(Deflater.BEST_SPEED) : null;
+		this.block = new int[block_size];
+		this.encoded = new byte[block_size * TraceFormat.MAX_VARINT];
+		this.compressed = deflate ? new byte[this.encoded.length] : null;
+		this.header = ByteBuffer.allocate(TraceFormat.HEADER_SIZE);
+		this.offsets = new long[64];
+
+		this.header.putInt(TraceFormat.MAGIC).putInt(TraceFormat.VERSION).putInt(block_size);
+		this.writeHeader();
+	}
+
+
+	/**
+	 * Adds an address to the trace.
+	 */
+	public void write(int address) throws IOException {
+		this.block[this.count++] = address;
+		this.references++;
+		if (this.count == this.block.length)
+			this.writeBlock();
+	}
+
+	/**
+	 * Adds a range of an array of addresses to the trace, in order.
+	 */
+	public void write(int[] addresses, int offset, int length) throws IOException {
+		while (length > 0) {
+			int n = Math.min(length, this.block.length - this.count);
+			System.arraycopy(addresses, offset, this.block, this.count, n);
+			this.count += n;
+			this.references += n;
+			offset += n;
+			length -= n;
+			if (this.count == this.block.length)
+				this.writeBlock();
+		}
+	}
+
+	private void writeBlock() throws IOException {
+		if (this.count == 0)
+			return;
+		if (this.blocks == this.offsets.length)
+			this.offsets = Arrays.copyOf(this.offsets, this.blocks * 2);
+		this.offsets[this.blocks++] = this.position;
+
+		byte[] payload = this.encoded;
+		int length = TraceFormat.encode(this.block, this.count, this.encoded);
+		byte flags = 0;
+		if (this.deflater != null) {
+			// The deflated payload is only kept if it is smaller
+			this.deflater.reset();
+			this.deflater.setInput(this.encoded, 0, length);
+			this.deflater.finish();
+			int deflated = this.deflater.deflate(this.compressed);
+			if (this.deflater.finished() && deflated < length) {
+				payload = this.compressed;
+				length = deflated;
+				flags = TraceFormat.FLAG_DEFLATED;
+			}
+		}
+
+		this.header.clear();
+		this.header.putInt(this.count).put(flags).putInt(length);
+		this.writeHeader();
+		this.writeFully(ByteBuffer.wrap(payload, 0, length));
+		this.count = 0;
+	}
+
+	private void writeHeader() throws IOException {
+		this.header.flip();
+		this.writeFully(this.header);
+	}
+
+	private void writeFully(ByteBuffer bytes) throws IOException {
+		while (bytes.hasRemaining())
+			this.position += this.channel.write(bytes);
+	}
+
+	/**
+	 * Writes the last block and the index, and closes the file.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (!this.channel.isOpen())
+			return;
+		try {
+			this.writeBlock();
+			long indexOffset = this.position;
+			ByteBuffer index = ByteBuffer.allocate(this.blocks * 8 + TraceFormat.FOOTER_SIZE);
+			for (int i = 0; i < this.blocks; i++)
+				index.putLong(this.offsets[i]);
+			index.putLong(indexOffset).putInt(this.blocks).putLong(this.references).putInt(TraceFormat.INDEX_MAGIC);
+			index.flip();
+			this.writeFully(index);
+		} finally {
+			this.channel.close();
+			if (this.deflater != null)
+				this.deflater.end();
+		}
+	}
+
+
+	// Getters!!
+	public long getReferences() {
+		return this.references;
+	}
+	public int getBlockSize() {
+		return this.block.length;
+	}
+}
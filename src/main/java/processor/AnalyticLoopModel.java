@@ -0,0 +1,150 @@
+package processor;
+
+import memory.MainMemory;
+import memory.MemoryHierarchy;
+import memory.MemorySystem;
+import memory.cache.Associativity;
+import memory.cache.Cache;
+import memory.cache.CacheDescriptor;
+import memory.cache.Replacement;
+
+/**
+ * Closed form model of the loops run by the Processor, for hierarchies of power-of-2 caches.<br><br>
+ *
+ * A loop of loop_size bytes with a loop_step stride touches its blocks in the same cyclic order on every
+ * iteration, and as everything is a power of 2 the blocks are spread evenly over the sets they map to. So,
+ * once the caches are warm (second iteration), each level either holds every block that reaches it (when
+ * the blocks per set fit in the ways) or misses on every one of them (a cyclic pattern always evicts the block
+ * that comes next under LRU or FIFO). Within a block, only the first access can miss.<br>
+ * The accesses that reach the next level are the first ones to each block of the previous level, in the same
+ * cyclic order, so the same reasoning is applied level by level down to the main memory.<br><br>
+ *
+ * This gives exactly the time the simulation of the second iteration would give, without accessing the
+ * caches. Configurations that are not covered (other replacement policies, or sizes that are not powers
+ * of 2) must be simulated.
+ */
+public class AnalyticLoopModel {
+
+	private int levels;
+	private int[] block_size;
+	private int[] sets;
+	private int[] ways;
+	private int[] hit_time;
+	private int main_memory_time;
+	private boolean covered;
+
+	/**
+	 * Creates the model of a hierarchy, given the description of its caches (from L1 down) and the access
+	 * time of the main memory.
+	 */
+	public AnalyticLoopModel(int main_memory_time, CacheDescriptor... levels) {
+		this.levels = levels.length;
+		this.block_size = new int[this.levels];
+		this.sets = new int[this.levels];
+		this.ways = new int[this.levels];
+		this.hit_time = new int[this.levels];
+		this.main_memory_time = main_memory_time;
+		this.covered = true;
+
+		for (int i = 0; i < this.levels; i++) {
+			CacheDescriptor level = levels[i];
+			int entries = (level.getBlockSize() > 0) ? level.getCacheSize() / level.getBlockSize() : 0;
+			this.block_size[i] = level.getBlockSize();
+			this.hit_time[i] = level.getHitTime();
+			if (level.getAssociativity() == Associativity.FULLY_ASSOCIATIVE)
+				this.ways[i] = entries;
+			else
+				this.ways[i] = level.getAssociativity().getNumberWays();
+			this.sets[i] = (this.ways[i] > 0) ? entries / this.ways[i] : 0;
+
+			// Sizes must be powers of 2, and the policy must thrash on cyclic patterns just as LRU does
+			Replacement replacement = level.getReplacement();
+			boolean policyCovered = this.ways[i] == 1 || replacement == null
+					|| replacement == Replacement.LRU || replacement == Replacement.FIFO;
+			this.covered &= policyCovered && isPowerOf2(this.block_size[i]) && isPowerOf2(this.sets[i]) && isPowerOf2(this.ways[i]);
+		}
+	}
+
+	/**
+	 * Creates the model of a memory system, if it is a MainMemory, a Cache or a MemoryHierarchy whose
+	 * levels end in a MainMemory.
+	 *
+	 * @return The model, or null if the memory system can not be described.
+	 */
+	public static AnalyticLoopModel fromMemory(MemorySystem memory) {
+		if (memory instanceof MemoryHierarchy)
+			memory = ((MemoryHierarchy) memory).getL1Cache();
+
+		int depth = 0;
+		CacheDescriptor[] levels = new CacheDescriptor[8];
+		while (memory instanceof Cache && depth < levels.length) {
+			levels[depth++] = (Cache) memory;
+			memory = ((Cache) memory).getNextLevel();
+		}
+		if (!(memory instanceof MainMemory))
+			return null;
+
+		CacheDescriptor[] caches = new CacheDescriptor[depth];
+		System.arraycopy(levels, 0, caches, 0, depth);
+		return new AnalyticLoopModel(((MainMemory) memory).getAccessTime(), caches);
+	}
+
+	private static boolean isPowerOf2(int number) {
+		return number > 0 && Integer.bitCount(number) == 1;
+	}
+
+
+	/**
+	 * Checks whether the model gives the exact results of a loop.
+	 */
+	public boolean covers(int loop_size, int loop_step) {
+		return this.covered && isPowerOf2(loop_size) && isPowerOf2(loop_step) && loop_step <= loop_size;
+	}
+
+	/**
+	 * Computes the total access time of one iteration of the loop, once the caches are warm (the same
+	 * as the second run of the loop over empty caches). Only valid if covers() is true.
+	 */
+	public long loopTime(int loop_size, int loop_step) {
+		long reaching = loop_size / loop_step;
+		int stride = loop_step;
+		long time = 0;
+
+		for (int i = 0; i < this.levels; i++) {
+			time += reaching * this.hit_time[i];
+
+			// Blocks touched, and how many of them map to each set touched (block numbers are multiples
+			// of 'block_step', so they fall in every (block_step)th set)
+			int B = this.block_size[i];
+			int blockStride = Math.max(stride, B);
+			long blocks = Math.max(1, loop_size / blockStride);
+			int block_step = blockStride / B;
+			long setsTouched = Math.min(blocks, this.sets[i] / Math.min(block_step, this.sets[i]));
+			if (blocks / setsTouched <= this.ways[i])
+				return time;
+
+			// Every block misses, and its first access goes to the next level
+			reaching = blocks;
+			stride = blockStride;
+		}
+		return time + reaching * this.main_memory_time;
+	}
+
+	/**
+	 * Computes the average access time of one iteration of the loop, once the caches are warm. Only valid
+	 * if covers() is true.
+	 */
+	public float averageAccessTime(int loop_size, int loop_step) {
+		float time = this.loopTime(loop_size, loop_step);
+		return time/(float)(loop_size / loop_step);
+	}
+
+
+	// Getters!!
+	public int getDepth() {
+		return this.levels;
+	}
+	public boolean isCovered() {
+		return this.covered;
+	}
+}
@@ -0,0 +1,212 @@
+package processor;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.jfree.data.category.CategoryDataset;
+import org.jfree.data.category.DefaultCategoryDataset;
+
+import memory.MemorySystem;
+import memory.explore.ResultStore;
+import memory.stats.SimulatorMetrics;
+
+/**
+ * Runs the loop tests of the Processor with all the loops (every loop_size and loop_step) in parallel.<br><br>
+ *
+ * The loops are independent of each other (the memory system is cleaned between them), so they are spread
+ * over the threads of a ForkJoinPool. Each loop runs on an empty copy of the memory system (see
+ * MemorySystem.emptyCopy()) that no other loop is using; the copies are made for each test and reused by its
+ * loops, so none of them outlives the test. The loops with more references are started first so that the long
+ * ones do not end up running alone at the end. The results are put in the dataset in the same order the Processor
+ * uses, so the datasets of both are equal.<br><br>
+ *
+ * With a ResultStore, tests already run on the same configuration are loaded from it instead of run again,
+ * and the tests run are put in it. With SimulatorMetrics, the progress through the grid (in loops) and the
+ * references of every loop are reported as the loops end.
+ */
+public class ParallelLoopRunner {
+
+	private MemorySystem prototype;
+	private ForkJoinPool pool;
+	private ResultStore store;
+	private SimulatorMetrics metrics;
+
+	/**
+	 * Creates a runner over the common ForkJoinPool (one thread per core).
+	 *
+	 * @param prototype Memory system to run the loops on. It is never accessed, only copied.
+	 */
+	public ParallelLoopRunner(MemorySystem prototype) {
+		this(prototype, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Creates a runner over a specific pool.
+	 *
+	 * @param prototype Memory system to run the loops on. It is never accessed, only copied.
+	 * @param pool The pool where the loops are run
+	 */
+	public ParallelLoopRunner(MemorySystem prototype, ForkJoinPool pool) {
+		this.prototype = prototype;
+		this.pool = pool;
+	}
+
+
+	/**
+	 * Sets the store where the results of the tests are kept (null for none). Memory systems that can not
+	 * be described by the store (see ResultStore.describe()) are always run.
+	 */
+	public void setStore(ResultStore store) {
+		this.store = store;
+	}
+
+
+	/**
+	 * Sets the metrics where the loops run are reported (null for none). The work of each test is its number
+	 * of loops, and the references reported for a loop are the ones actually simulated (the iterations whose
+	 * counters were extrapolated are not counted), with its average access time times them as time.
+	 */
+	public void setMetrics(SimulatorMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+
+	/**
+	 * Same as Processor.runSimulatedLoopTest(), running the loops in parallel.
+	 */
+	public CategoryDataset runSimulatedLoopTest(int max_size, int iterations) {
+		if (max_size <= 0 || iterations <= 0)
+			return new DefaultCategoryDataset();
+		return this.stored("simulated-loops:" + max_size + ":" + iterations, max_size, iterations, false);
+	}
+
+	/**
+	 * Same as Processor.runEspeculatedLoopTest(), running the loops in parallel.
+	 */
+	public CategoryDataset runEspeculatedLoopTest(int max_size) {
+		if (max_size <= 0)
+			return new DefaultCategoryDataset();
+		return this.stored("especulated-loops:" + max_size, max_size, 0, true);
+	}
+
+	/**
+	 * Gets the results of a test from the store, or runs it and puts them in the store.
+	 */
+	private CategoryDataset stored(String workload, int max_size, int iterations, boolean especulated) {
+		String configuration = (this.store == null) ? null : ResultStore.describe(this.prototype);
+		if (configuration == null)
+			return this.run(max_size, iterations, especulated);
+
+		CategoryDataset dataset = this.store.getDataset(configuration, workload);
+		if (dataset != null)
+			return dataset;
+		dataset = this.run(max_size, iterations, especulated);
+		try {
+			this.store.putDataset(configuration, workload, dataset);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return dataset;
+	}
+
+
+	/**
+	 * A processor over its own copy of the memory system, and its buffer for the addresses of the loops.
+	 * Each one is used by a single loop at a time.
+	 */
+	private static class Worker {
+		private Processor processor;
+		private int[] addresses;
+
+		Worker(MemorySystem memory, int max_size) {
+			this.processor = new Processor(memory);
+			this.addresses = new int[max_size >>> 2];
+		}
+	}
+
+	private CategoryDataset run(final int max_size, final int iterations, final boolean especulated) {
+		// The grid of loops, in the order of the dataset
+		List<int[]> loops = new ArrayList<int[]>();
+		for (int loop_size = 16; loop_size <= max_size; loop_size <<= 1) {
+			for (int loop_step = 4; loop_step <= loop_size >>> 1; loop_step <<= 1)
+				loops.add(new int[] {loop_size, loop_step});
+		}
+
+		// Loops with more references go first
+		Integer[] order = new Integer[loops.size()];
+		for (int i = 0; i < order.length; i++)
+			order[i] = i;
+		final List<int[]> grid = loops;
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				int[] one = grid.get(a);
+				int[] other = grid.get(b);
+				return Integer.compare(other[0] / other[1], one[0] / one[1]);
+			}
+		});
+
+		// Each loop borrows a worker, which is created only when all the others are busy (so there are at most
+		// as many as threads), and the workers are forgotten when the test ends
+		final ConcurrentLinkedQueue<Worker> workers = new ConcurrentLinkedQueue<Worker>();
+		final float[] times = new float[loops.size()];
+		final SimulatorMetrics metrics = this.metrics;
+		if (metrics != null)
+			metrics.begin(loops.size());
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+		for (final int index : order) {
+			final int[] loop = loops.get(index);
+			tasks.add(new Callable<Void>() {
+				@Override
+				public Void call() {
+					Worker worker = workers.poll();
+					if (worker == null)
+						worker = new Worker(ParallelLoopRunner.this.prototype.emptyCopy(), max_size);
+					long references;
+					try {
+						if (especulated)
+							times[index] = worker.processor.runEspeculatedLoop(loop[0], loop[1], worker.addresses);
+						else
+							times[index] = worker.processor.runSimulatedLoop(loop[0], loop[1], iterations, worker.addresses);
+						references = worker.processor.getSimulatedReferences();
+					} finally {
+						workers.offer(worker);
+					}
+					if (metrics != null) {
+						metrics.record(references, Math.round((double) times[index] * references));
+						metrics.advance(1);
+					}
+					return null;
+				}
+			});
+		}
+
+		// invokeAll() waits for all the loops, and publishes the times written by the workers
+		for (Future<Void> future : this.pool.invokeAll(tasks)) {
+			try {
+				future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Loop test interrupted", e);
+			} catch (ExecutionException e) {
+				throw new IllegalStateException("Loop test failed", e.getCause());
+			}
+		}
+
+		final DefaultCategoryDataset dataset = new DefaultCategoryDataset();
+		for (int i = 0; i < loops.size(); i++) {
+			int[] loop = loops.get(i);
+			dataset.addValue(times[i], Processor.numberToPow2Category(loop[0]), Processor.numberToPow2Category(loop[1]));
+		}
+		return dataset;
+	}
+}
@@ -11,6 +11,12 @@ public class Processor {
 	// Local variable to store memory system
 	private MemorySystem memory;
 	
+	// References actually run by the last loop (extrapolated iterations are not counted)
+	private long simulated_references;
+	
+	// Loops of the last loop test that were simulated (instead of taken from the analytic model)
+	private int simulated_loops;
+	
 	/** Default constructor, with no cache memory
 	 */
 	public Processor() {
@@ -40,7 +46,7 @@ public class Processor {
 	 * as a multiple of 2^n10 (bytes, Kbytes, Mbytes, etc).<br>
 	 * Example: converts 512 to "512b", and 2048 to "2Kb"
 	 */
-	private String numberToPow2Category(int number) {
+	static String numberToPow2Category(int number) {
 		String category;
 		if (number < 1024) {
 			category = number + "b";
@@ -56,6 +62,76 @@ public class Processor {
 	
 	
 	
+	/**
+	 * Fills the buffer with the addresses referenced by one iteration of a loop, so that it can be
+	 * accessed as a batch.
+	 * 
+	 * @return The number of addresses of the loop (loop_size/loop_step)
+	 */
+	private static int loopAddresses(int loop_size, int loop_step, int[] buffer) {
+		int references = 0;
+		for (int address = 0; address < loop_size; address += loop_step) {
+			buffer[references++] = address;
+		}
+		return references;
+	}
+	
+	
+	/**
+	 * Runs the iterations of a loop over the memory system. Once an iteration leaves the memory system in
+	 * the same state it found it (every level holds the same blocks, with the same replacement information),
+	 * every iteration left would do exactly the same, so they are not run: their counters are extrapolated
+	 * from the last one.<br>
+	 * To keep the check cheap, the state is only hashed after iterations that took the same time as the
+	 * previous one.
+	 * 
+	 * @return The number of iterations run
+	 */
+	private int runLoopIterations(int[] addresses, int references, int iterations) {
+		long lastTime = -1;
+		long lastHash = 0;
+		boolean hashed = false;
+		for (int i = 0; i < iterations; i++) {
+			this.memory.markCounters();
+			long time = this.memory.accessBatch(addresses, 0, references, null);
+			if (time != lastTime) {
+				lastTime = time;
+				hashed = false;
+				continue;
+			}
+			
+			// The hash costs O(entries) of the memory system, so it is only computed when the times match
+			long hash = this.memory.stateHash();
+			if (hashed && hash == lastHash) {
+				// Periodic state: the iteration just run repeats until the end
+				this.memory.extrapolateCounters(iterations - 1 - i);
+				return i + 1;
+			}
+			lastHash = hash;
+			hashed = true;
+		}
+		return iterations;
+	}
+	
+	
+	/**
+	 * Runs all the iterations of a loop over the empty memory system, and cleans it afterwards.
+	 * 
+	 * @param addresses Buffer for the addresses of the loop, big enough for loop_size/loop_step of them
+	 * @return The average access time of all the iterations
+	 */
+	float runSimulatedLoop(int loop_size, int loop_step, int iterations, int[] addresses) {
+		int references = loopAddresses(loop_size, loop_step, addresses);
+		
+		// For each combination of loop_size and loop_step, we iterate as many times as specified
+		this.simulated_references = (long) references * this.runLoopIterations(addresses, references, iterations);
+		// Calculate average access time, and clean memory for next loop
+		float averagTime = this.memory.getAverageAccessTime();
+		this.memory.clean();
+		return averagTime;
+	}
+	
+	
 	/**
 	 * Runs a series of consecutive memory accesses on the processor; changing the total number
 	 * of memory references (loop_size) and the distance in memory between two consecutive ones (loop_step).
@@ -65,6 +141,8 @@ public class Processor {
 	 * is smaller than the second one, and both are powers of two.<br>
 	 * For each combination, the average access time will be calculated and stored in a CategoryDataset for
 	 * further processing.<br>
+	 * Iterations after the memory system reaches a periodic state are extrapolated instead of run, so
+	 * high numbers of iterations are cheap.<br>
 	 * The second parameter allows to adjust the accuracy of the results by setting how many iterations of
 	 * each loop will be performed.
 	 * 
@@ -82,21 +160,15 @@ public class Processor {
 		
 		int loop_step, loop_size;
 		
+		// Buffer for the addresses of a loop, big enough for the one with more references
+		int[] addresses = new int[max_size >>> 2];
+		
 		// Double for loop to change loop_size and loop_step. Bit shifting is used to perform multiplication by 2
 		for (loop_size = 16; loop_size <= max_size; loop_size <<= 1) {
 			String serie = numberToPow2Category(loop_size);
 			for (loop_step = 4; loop_step <= loop_size >>> 1; loop_step <<= 1) {
 				String category = numberToPow2Category(loop_step);
-				
-				// For each combination of loop_size and loop_step, we iterate as many times as specified
-				for (int i = 0; i < iterations; i++) {
-					for (int address = 0; address < loop_size; address += loop_step) {
-						this.memory.access(address).getAccessTime();
-					}
-				}
-				// Calculate average access time, and clean memory for next loop
-				float averagTime = this.memory.getAverageAccessTime();
-				this.memory.clean();
+				float averagTime = this.runSimulatedLoop(loop_size, loop_step, iterations, addresses);
 				
 				dataset.addValue(averagTime, serie, category);		
 			}
@@ -106,6 +178,33 @@ public class Processor {
 	
 	
 	
+	/**
+	 * Runs a loop two times over the empty memory system, and cleans it afterwards.
+	 * 
+	 * @param addresses Buffer for the addresses of the loop, big enough for loop_size/loop_step of them
+	 * @return The average access time of the second run
+	 */
+	float runEspeculatedLoop(int loop_size, int loop_step, int[] addresses) {
+		return this.runEspeculatedLoop(addresses, loopAddresses(loop_size, loop_step, addresses));
+	}
+	
+	/**
+	 * Same as above, with the addresses of the loop already in the buffer.
+	 */
+	private float runEspeculatedLoop(int[] addresses, int references) {
+		// First run of the loop, so that it enters steady regimen
+		this.memory.accessBatch(addresses, 0, references, null);
+		
+		// Second iteration, where time is counted
+		float time = this.memory.accessBatch(addresses, 0, references, null);
+		this.simulated_references = 2L * references;
+		// Calculate average time of second run and clean memory
+		float averagTime = time/(float)references;
+		this.memory.clean();
+		return averagTime;
+	}
+	
+	
 	/**
 	 * Runs a series of consecutive memory accesses on the processor; changing the total number
 	 * of memory references (loop_size) and the distance in memory between two consecutive ones (loop_step).
@@ -123,13 +222,53 @@ public class Processor {
 	 * each series, and the actual data for the range axis is the average access time.
 	 */
 	public CategoryDataset runEspeculatedLoopTest(int max_size) {
+		return this.runAnalyticLoopTest(max_size, null, false);
+	}
+	
+	
+	/**
+	 * Gives the same results as runEspeculatedLoopTest(), but computing them from the description of the
+	 * memory system with an AnalyticLoopModel instead of accessing it (which takes constant time for each
+	 * loop, instead of time proportional to its size). The loops the model does not cover, or all of them if
+	 * the memory system can not be described, are simulated as usual.<br>
+	 * 
+	 * @param max_size Size of the bigger loop to execute.
+	 * @return A CategoryDataset with each loop_size as a series. The loop_step is the category of the points of
+	 * each series, and the actual data for the range axis is the average access time.
+	 */
+	public CategoryDataset runAnalyticLoopTest(int max_size) {
+		return this.runAnalyticLoopTest(max_size, AnalyticLoopModel.fromMemory(this.memory), false);
+	}
+	
+	/**
+	 * Same as runAnalyticLoopTest(), but every loop is also simulated to check that the model gives the exact
+	 * same result (so it takes as long as runEspeculatedLoopTest()).
+	 * 
+	 * @param max_size Size of the bigger loop to execute.
+	 * @return The same CategoryDataset as runAnalyticLoopTest()
+	 * @throws IllegalStateException If the model and the simulation differ on any loop
+	 */
+	public CategoryDataset verifyAnalyticLoopTest(int max_size) {
+		return this.runAnalyticLoopTest(max_size, AnalyticLoopModel.fromMemory(this.memory), true);
+	}
+	
+	/**
+	 * Runs the especulated loop test, taking the results from the model when it covers the loop (if it is
+	 * not null), and checking them against the simulation if verify is set.
+	 */
+	private CategoryDataset runAnalyticLoopTest(int max_size, AnalyticLoopModel model, boolean verify) {
 		final DefaultCategoryDataset dataset = new DefaultCategoryDataset();
+		this.simulated_loops = 0;
 		
 		// If parameter is not valid, return an empty dataset
 		if (max_size <= 0)
 			return dataset;
 		
 		int loop_step, loop_size;
+		
+		// Buffer for the addresses of a loop, big enough for the one with more references (only
+		// needed if some loop has to be simulated)
+		int[] addresses = null;
 
 		// Double for loop to change loop_size and loop_step. Bit shifting is used to perform multiplication by 2
 		for (loop_size = 16; loop_size <= max_size; loop_size <<= 1) {
@@ -137,27 +276,44 @@ public class Processor {
 			for (loop_step = 4; loop_step <= loop_size >>> 1; loop_step <<= 1) {
 				String category = numberToPow2Category(loop_step);
 				
-				// First run of the loop, so that it enters steady regimen
-				for (int address = 0; address < loop_size; address += loop_step) {
-					this.memory.access(address).getAccessTime();
-				}
-				
-				// Prepare constants to count references and time in second interation
-				float time = 0;
-				int references = 0;	
-				for (int address = 0; address < loop_size; address += loop_step) {
-					time += this.memory.access(address).getAccessTime();
-					references++;
+				boolean analytic = model != null && model.covers(loop_size, loop_step);
+				float averagTime = 0;
+				if (analytic)
+					averagTime = model.averageAccessTime(loop_size, loop_step);
+				if (!analytic || verify) {
+					if (addresses == null)
+						addresses = new int[max_size >>> 2];
+					int references = loopAddresses(loop_size, loop_step, addresses);
+					float simulated = this.runEspeculatedLoop(addresses, references);
+					this.simulated_loops++;
+					if (analytic && simulated != averagTime)
+						throw new IllegalStateException("Analytic model gives " + averagTime + " instead of " + simulated
+								+ " for loop_size " + loop_size + " and loop_step " + loop_step);
+					averagTime = simulated;
 				}
-				// Calculate average time of second run and clean memory
-				float averagTime = time/(float)references;
-				this.memory.clean();
 				
 				dataset.addValue(averagTime, serie, category);		
 			}
 		}
 		return dataset;
 	}
+	
+	
+	/**
+	 * Gets the references actually run over the memory system by the last loop, without the iterations
+	 * whose counters were extrapolated.
+	 */
+	long getSimulatedReferences() {
+		return this.simulated_references;
+	}
+	
+	/**
+	 * Gets the number of loops of the last especulated or analytic loop test that were simulated, instead of
+	 * computed with the analytic model.
+	 */
+	public int getSimulatedLoops() {
+		return this.simulated_loops;
+	}
 		
 }
 
@@ -0,0 +1,49 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.Random;
+
+import memory.AllAssociativitySimulator;
+import memory.cache.Associativity;
+import memory.cache.Cache;
+import memory.cache.FactoryCache;
+
+import org.junit.Test;
+
+public class AllAssociativityTest {
+
+	@Test
+	public void testSameAsCaches() {
+		// Every row of the table, turned into a real cache, must give the same hits
+		AllAssociativitySimulator simulator = new AllAssociativitySimulator(16, 64, 16);
+		Random random = new Random(9);
+		int address = 0;
+		int addresses[] = new int[20000];
+		for (int i = 0; i < addresses.length; i++) {
+			address = (random.nextInt(3) == 0) ? random.nextInt(1 << 15) : (address + random.nextInt(128)) & 0x7FFF;
+			addresses[i] = address;
+		}
+		simulator.accessBatch(addresses, 0, addresses.length);
+
+		List<AllAssociativitySimulator.Row> table = simulator.getTable(10);
+		assertTrue("Expected 7 x 5 rows", table.size() == 35);
+		for (AllAssociativitySimulator.Row row : table) {
+			Cache cache = FactoryCache.createCache(row);
+			cache.accessBatch(addresses, 0, addresses.length, null);
+			assertTrue("Wrong hits for " + row, row.hits == cache.getTotalHits());
+		}
+	}
+
+	@Test
+	public void testRowDescriptors() {
+		AllAssociativitySimulator simulator = new AllAssociativitySimulator(4, 4, 4);
+		List<AllAssociativitySimulator.Row> table = simulator.getTable(10);
+		assertTrue("1 set of 1 way should be direct mapped", table.get(0).getAssociativity() == Associativity.DIRECT_MAPPED);
+		assertTrue("1 set of 4 ways should be fully associative", table.get(2).getAssociativity() == Associativity.FULLY_ASSOCIATIVE);
+		assertTrue("4 sets of 2 ways should be 2-way set associative", table.get(7).getAssociativity() == Associativity.SET_ASSOCIATIVE_2WAY);
+		assertTrue("4 sets of 2 ways should take 32 bytes", table.get(7).getCacheSize() == 32);
+	}
+
+}
@@ -0,0 +1,54 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import memory.MemoryHierarchy;
+import memory.cache.Associativity;
+import memory.cache.CacheInfo;
+import memory.cache.Replacement;
+import processor.AnalyticLoopModel;
+import processor.Processor;
+
+import org.jfree.data.category.CategoryDataset;
+import org.junit.Test;
+
+public class AnalyticLoopTest {
+
+	@Test
+	public void testSameAsSimulation() {
+		// verifyAnalyticLoopTest() throws if any loop differs from the simulation
+		CacheInfo L1s[] = {
+				new CacheInfo(16, 512, 10, Associativity.DIRECT_MAPPED),
+				new CacheInfo(32, 1024, 10, Associativity.SET_ASSOCIATIVE_4WAY),
+				new CacheInfo(64, 512, 10, Associativity.FULLY_ASSOCIATIVE, Replacement.FIFO)};
+		CacheInfo L2 = new CacheInfo(64, 0x2000, 40, Associativity.SET_ASSOCIATIVE_2WAY);
+		CacheInfo L3 = new CacheInfo(16, 0x8000, 90, Associativity.SET_ASSOCIATIVE_8WAY);
+
+		for (CacheInfo L1 : L1s) {
+			MemoryHierarchy hierarchies[] = {
+					new MemoryHierarchy(L1, 500),
+					new MemoryHierarchy(L1, L2, 500),
+					new MemoryHierarchy(L1, L2, L3, 500)};
+			for (MemoryHierarchy mem : hierarchies) {
+				AnalyticLoopModel model = AnalyticLoopModel.fromMemory(mem);
+				assertTrue("The hierarchy should be covered by the model", model != null && model.isCovered());
+				assertTrue("Wrong depth of the model", model.getDepth() == mem.getDepth());
+				new Processor(mem).verifyAnalyticLoopTest(0x20000);
+			}
+		}
+	}
+
+	@Test
+	public void testFallbackToSimulation() {
+		// Tree PLRU is not covered, so the loops are simulated and give the same dataset
+		CacheInfo L1 = new CacheInfo(16, 512, 10, Associativity.SET_ASSOCIATIVE_4WAY, Replacement.TREE_PLRU);
+		MemoryHierarchy mem = new MemoryHierarchy(L1, 500);
+		assertTrue("Tree PLRU should not be covered by the model", !AnalyticLoopModel.fromMemory(mem).isCovered());
+
+		Processor p = new Processor(mem);
+		CategoryDataset analytic = p.runAnalyticLoopTest(0x4000);
+		CategoryDataset simulated = p.runEspeculatedLoopTest(0x4000);
+		assertTrue("Both datasets should be equal", analytic.equals(simulated));
+	}
+
+}
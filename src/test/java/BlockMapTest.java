@@ -0,0 +1,102 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import memory.cache.BlockMap;
+
+import org.junit.Test;
+
+public class BlockMapTest {
+
+	private static void checkSame(String message, Map<Integer, Integer> expected, BlockMap map, int range) {
+		assertTrue(message + ": size should be " + expected.size(), map.size() == expected.size());
+		for (int key = -range; key < range; key++) {
+			Integer value = expected.get(key);
+			assertTrue(message + ": value of " + key, map.get(key) == ((value == null) ? BlockMap.NOT_FOUND : value));
+		}
+	}
+
+	@Test
+	public void testRandomOperations() {
+		Random random = new Random(41);
+		// Few keys, so that the same ones are put and removed many times
+		int range = 200;
+		BlockMap map = new BlockMap(4);
+		Map<Integer, Integer> expected = new HashMap<Integer, Integer>();
+		BlockMap copy = null;
+		Map<Integer, Integer> copied = null;
+
+		for (int step = 0; step < 200000; step++) {
+			int key = random.nextInt(2 * range) - range;
+			int operation = random.nextInt(1000);
+			if (operation < 500) {
+				int value = random.nextInt(Integer.MAX_VALUE);
+				map.put(key, value);
+				expected.put(key, value);
+			} else if (operation < 990) {
+				Integer value = expected.remove(key);
+				assertTrue("Removing " + key, map.remove(key) == ((value == null) ? BlockMap.NOT_FOUND : value));
+			} else if (operation < 995) {
+				// The copy must not see the later changes of the map, nor the map those of the copy
+				if (copy != null) {
+					checkSame("Copy", copied, copy, range);
+					copy.clear();
+				}
+				copy = map.copy();
+				copied = new HashMap<Integer, Integer>(expected);
+			} else if (operation < 996) {
+				map.clear();
+				expected.clear();
+			}
+			if (step % 1000 == 0)
+				checkSame("Step " + step, expected, map, range);
+		}
+		checkSame("End", expected, map, range);
+	}
+
+	// Same hash as BlockMap, for a table of 8 slots
+	private static int slotOf8(int key) {
+		return (key * 0x9E3779B9) >>> 29;
+	}
+
+	@Test
+	public void testWrapAround() {
+		// Keys whose home is the last slot of the initial table, so they wrap to the first ones
+		List<Integer> last = new ArrayList<Integer>();
+		List<Integer> first = new ArrayList<Integer>();
+		for (int key = 0; last.size() < 3 || first.isEmpty(); key++) {
+			if (slotOf8(key) == 7 && last.size() < 3)
+				last.add(key);
+			else if (slotOf8(key) == 0 && first.isEmpty())
+				first.add(key);
+		}
+
+		// Slots 7, 0 and 1 (and 2, for the key of slot 0), without growing
+		BlockMap map = new BlockMap(4);
+		for (int i = 0; i < 3; i++)
+			map.put(last.get(i), i);
+		map.put(first.get(0), 3);
+		assertTrue("The map should hold the keys", map.size() == 4);
+
+		// Each removal shifts back the keys after it, across the end of the table
+		assertTrue("Removing the first key", map.remove(last.get(0)) == 0);
+		assertTrue("Keys after the hole should be found", map.get(last.get(1)) == 1 && map.get(last.get(2)) == 2
+				&& map.get(first.get(0)) == 3);
+		assertTrue("Removing the key at the end", map.remove(last.get(1)) == 1);
+		assertTrue("Keys after the hole should be found", map.get(last.get(2)) == 2 && map.get(first.get(0)) == 3);
+		assertTrue("Removed keys should not be found", map.get(last.get(0)) == BlockMap.NOT_FOUND
+				&& map.get(last.get(1)) == BlockMap.NOT_FOUND);
+
+		// Growing rehashes the wrapped keys
+		for (int key = 1000; key < 1100; key++)
+			map.put(key, key);
+		assertTrue("Wrapped keys should survive growing", map.get(last.get(2)) == 2 && map.get(first.get(0)) == 3
+				&& map.size() == 102);
+	}
+}
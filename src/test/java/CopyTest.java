@@ -0,0 +1,48 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import memory.MemoryHierarchy;
+import memory.cache.Associativity;
+import memory.cache.CacheInfo;
+import memory.cache.Replacement;
+
+import org.junit.Test;
+
+public class CopyTest {
+
+	@Test
+	public void testCopyIsIndependent() {
+		for (Replacement replacement : Replacement.values()) {
+			CacheInfo L1 = new CacheInfo(16, 512, 10, Associativity.SET_ASSOCIATIVE_4WAY, replacement);
+			CacheInfo L2 = new CacheInfo(32, 2048, 40, Associativity.FULLY_ASSOCIATIVE, replacement);
+			CacheInfo L3 = new CacheInfo(64, 0x4000, 90, Associativity.DIRECT_MAPPED);
+			MemoryHierarchy original = new MemoryHierarchy(L1, L2, L3, 500);
+
+			// Warm up, and copy
+			Random random = new Random(1);
+			for (int i = 0; i < 5000; i++)
+				original.access(random.nextInt(0x8000));
+			MemoryHierarchy copy = original.copy();
+			long warmHash = original.stateHash();
+			assertTrue(replacement + ": the copy should be in the same state", copy.stateHash() == warmHash);
+			assertTrue(replacement + ": the copy should have the same counters",
+					copy.getL2Cache().getTotalMisses() == original.getL2Cache().getTotalMisses());
+
+			// The copy goes on exactly as the original would
+			MemoryHierarchy twin = original.copy();
+			for (int i = 0; i < 5000; i++) {
+				int address = random.nextInt(0x8000);
+				long packed = copy.accessPacked(address);
+				assertTrue(replacement + ": copies should give the same results", packed == twin.accessPacked(address));
+			}
+			assertTrue(replacement + ": copies should end in the same state", copy.stateHash() == twin.stateHash());
+			assertTrue(replacement + ": the original should not change", original.stateHash() == warmHash);
+			assertTrue(replacement + ": the original counters should not change",
+					original.getTotalReferences() == 5000 && copy.getTotalReferences() == 10000);
+		}
+	}
+
+}
@@ -0,0 +1,133 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import memory.MemoryHierarchy;
+import memory.cache.Associativity;
+import memory.explore.DesignPoint;
+import memory.explore.DesignSpace;
+import memory.explore.LevelRange;
+import memory.explore.ParetoExplorer;
+
+import org.junit.Test;
+
+import processor.Processor;
+
+public class ExploreTest {
+
+	private static final Associativity[] L1_ASSOC = {Associativity.DIRECT_MAPPED, Associativity.SET_ASSOCIATIVE_2WAY,
+			Associativity.SET_ASSOCIATIVE_4WAY, Associativity.FULLY_ASSOCIATIVE};
+	private static final Associativity[] L2_ASSOC = {Associativity.DIRECT_MAPPED, Associativity.SET_ASSOCIATIVE_4WAY};
+	/**
+	 * Simulates every hierarchy of the space, and gets the front from all of them.
+	 */
+	private static List<DesignPoint> bruteForce(DesignSpace space, int[] trace) {
+		List<DesignPoint> points = space.enumerate();
+		List<Float> times = new ArrayList<Float>();
+		for (DesignPoint point : points) {
+			MemoryHierarchy memory = point.createHierarchy();
+			times.add((float) memory.accessBatch(trace, 0, trace.length, null) / trace.length);
+		}
+		return frontOf(points, times);
+	}
+
+	private static List<DesignPoint> frontOf(List<DesignPoint> points, List<Float> times) {
+		List<DesignPoint> front = new ArrayList<DesignPoint>();
+		for (int i = 0; i < points.size(); i++) {
+			boolean dominated = false;
+			for (int j = 0; j < points.size() && !dominated; j++) {
+				long ci = points.get(i).getCapacity(), cj = points.get(j).getCapacity();
+				float ti = times.get(i), tj = times.get(j);
+				dominated = cj <= ci && tj <= ti && (cj < ci || tj < ti);
+			}
+			if (!dominated)
+				front.add(points.get(i));
+		}
+		return front;
+	}
+
+	private static void checkFront(String name, List<DesignPoint> expected, List<DesignPoint> front) {
+		assertTrue(name + ": the front should have " + expected.size() + " points, not " + front.size(),
+				expected.size() == front.size());
+		for (DesignPoint point : front) {
+			boolean found = false;
+			for (DesignPoint other : expected)
+				found |= other.toString().replaceAll("Average.*", "").equals(point.toString().replaceAll("Average.*", ""));
+			assertTrue(name + ": " + point + " should be in the front", found);
+		}
+	}
+
+	@Test
+	public void testTraceExploration() throws IOException {
+		int[] trace = Traces.randomTrace(30000, 0x10000, 20, 29);
+		// Slow L1 caches should be pruned once a smaller hierarchy is faster than their hit time
+		LevelRange L1 = new LevelRange(16, 32, 256, 2048, L1_ASSOC, 10, 50);
+		LevelRange L2 = new LevelRange(32, 64, 0x1000, 0x4000, L2_ASSOC, 40, 60);
+
+		DesignSpace oneLevel = new DesignSpace(200, L1);
+		ParetoExplorer explorer = new ParetoExplorer(oneLevel, 4);
+		List<DesignPoint> front = explorer.exploreTrace(Traces.arrayTrace(trace));
+		checkFront("One level", bruteForce(oneLevel, trace), front);
+		assertTrue("LRU caches alone should never be simulated", explorer.getSimulated() == 0);
+
+		DesignSpace twoLevels = new DesignSpace(200, L1, L2);
+		explorer = new ParetoExplorer(twoLevels, 4);
+		front = explorer.exploreTrace(Traces.arrayTrace(trace));
+		checkFront("Two levels", bruteForce(twoLevels, trace), front);
+		assertTrue("Some hierarchies should be pruned", explorer.getPruned() > 0);
+		assertTrue("Every hierarchy should be accounted for", explorer.getSimulated() + explorer.getPruned()
+				+ explorer.getComputed() == twoLevels.enumerate().size());
+	}
+
+	@Test
+	public void testLoopExploration() throws IOException {
+		LevelRange L1 = new LevelRange(16, 16, 256, 1024, L1_ASSOC, 10, 20);
+		LevelRange L2 = new LevelRange(32, 32, 0x800, 0x2000, L2_ASSOC, 40);
+		DesignSpace space = new DesignSpace(200, L1, L2);
+		ParetoExplorer explorer = new ParetoExplorer(space, 3);
+		List<DesignPoint> front = explorer.exploreLoops(0x4000);
+
+		List<DesignPoint> points = space.enumerate();
+		List<Float> times = new ArrayList<Float>();
+		for (DesignPoint point : points) {
+			org.jfree.data.category.CategoryDataset dataset = new Processor(point.createHierarchy()).runEspeculatedLoopTest(0x4000);
+			double sum = 0;
+			int count = 0;
+			for (int r = 0; r < dataset.getRowCount(); r++) {
+				for (int c = 0; c < dataset.getColumnCount(); c++) {
+					if (dataset.getValue(r, c) != null) {
+						sum += dataset.getValue(r, c).doubleValue();
+						count++;
+					}
+				}
+			}
+			times.add((float) (sum / count));
+		}
+		checkFront("Loops", frontOf(points, times), front);
+
+		// Every hierarchy is LRU with sizes that are powers of 2, so the analytic model covers all of them
+		assertTrue("Covered hierarchies should not be simulated", explorer.getSimulated() == 0 && explorer.getComputed() > 0);
+		for (DesignPoint point : front)
+			assertTrue(point + " should be computed by the model", !point.isSimulated());
+	}
+
+	@Test
+	public void testValidHierarchies() {
+		Associativity[] all = Associativity.values();
+		DesignSpace space = new DesignSpace(100, new LevelRange(8, 64, 16, 256, all, 5),
+				new LevelRange(8, 64, 64, 512, all, 20));
+		for (DesignPoint point : space.enumerate()) {
+			assertTrue("L2 should be bigger", point.levels[1].cache_size > point.levels[0].cache_size);
+			assertTrue("L2 blocks should not be smaller", point.levels[1].block_size >= point.levels[0].block_size);
+			for (int i = 0; i < 2; i++) {
+				int entries = point.levels[i].cache_size / point.levels[i].block_size;
+				assertTrue("Caches should have enough entries for their ways", entries >= point.levels[i].associativity.getNumberWays());
+			}
+		}
+	}
+
+}
@@ -0,0 +1,169 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import memory.MemoryHierarchy;
+import memory.cache.Associativity;
+import memory.cache.Cache;
+import memory.cache.CacheInfo;
+import memory.stats.HierarchyStats;
+import memory.stats.SimulatorMetrics;
+import memory.trace.TraceReplay;
+import processor.ParallelLoopRunner;
+
+import org.junit.Test;
+
+public class MetricsTest {
+
+	// A trace in memory, given in blocks of 1000 addresses
+	@Test
+	public void testEvictions() {
+		CacheInfo info = new CacheInfo(16, 64, 10, Associativity.DIRECT_MAPPED);
+		MemoryHierarchy mem = new MemoryHierarchy(info, 100);
+		Cache L1 = mem.getL1Cache();
+		mem.access(0);
+		mem.access(64);
+		mem.access(16);
+		assertTrue("Only the block replaced should be an eviction", L1.getTotalEvictions() == 1);
+		mem.clean();
+		assertTrue("Cleaning should clear the evictions", L1.getTotalEvictions() == 0);
+	}
+
+	@Test
+	public void testHierarchyStats() {
+		CacheInfo L1 = new CacheInfo(16, 0x200, 2, Associativity.SET_ASSOCIATIVE_2WAY);
+		CacheInfo L2 = new CacheInfo(32, 0x1000, 10, Associativity.DIRECT_MAPPED);
+		CacheInfo L3 = new CacheInfo(64, 0x4000, 30, Associativity.SET_ASSOCIATIVE_4WAY);
+		MemoryHierarchy mem = new MemoryHierarchy(L1, L2, L3, 300);
+		Random random = new Random(5);
+		long time = 0;
+		for (int i = 0; i < 50000; i++)
+			time += mem.accessPacked(random.nextInt(0x8000)) & 0xFFFFFFFFL;
+
+		HierarchyStats stats = mem.getStats();
+		assertTrue("There should be three levels", stats.getDepth() == 3);
+		assertTrue("The time of the L1 should be the time of every access", stats.getLevel(0).total_time == time);
+		assertTrue("The average access time should not be truncated",
+				Math.abs(mem.getAverageAccessTime() - (double) time / 50000) < 1e-3);
+		assertTrue("The miss rate should not be truncated", mem.getMissRate() > 0 && mem.getMissRate() < 1);
+		for (int i = 0; i < 3; i++) {
+			HierarchyStats.Level level = stats.getLevel(i);
+			assertTrue(level.name + ": global miss rate should be over the L1 references",
+					Math.abs(level.global_miss_rate - (double) level.misses / 50000) < 1e-6);
+			assertTrue(level.name + ": fills should be the misses", level.fills == level.misses && level.evictions <= level.fills);
+			if (i > 0)
+				assertTrue(level.name + ": it should see the misses of the level above", level.references == stats.getLevel(i - 1).misses);
+		}
+		assertTrue("The main memory should see the misses of L3", stats.getMainMemoryReferences() == stats.getLevel(2).misses);
+		assertTrue("The AMAT should be the measured average access time: " + stats,
+				Math.abs(stats.getAMAT() - stats.getMeasuredAccessTime()) < 1e-2);
+		assertTrue("The AMAT should not lose precision in the float rates: " + stats.getAMAT(),
+				Math.abs(stats.getAMAT() - (double) time / 50000) < 1e-9);
+	}
+
+	@Test
+	public void testLongCounters() {
+		CacheInfo info = new CacheInfo(16, 0x100, 10, Associativity.FULLY_ASSOCIATIVE);
+		MemoryHierarchy mem = new MemoryHierarchy(info, 100);
+		mem.markCounters();
+		for (int i = 0; i < 32; i++)
+			mem.accessPacked(i << 4);
+
+		// 32 references (and misses) repeated far beyond 2^31
+		mem.extrapolateCounters(100000000);
+		long references = 32L * 100000001;
+		assertTrue("References should not overflow", mem.getTotalReferences() == references);
+		assertTrue("Misses should not overflow", mem.getTotalMisses() == references);
+		assertTrue("The main memory should not overflow", mem.getStats().getMainMemoryReferences() == references);
+		assertTrue("The average access time should stay right", mem.getAverageAccessTime() == 110);
+	}
+
+	@Test
+	public void testTraceReplay() throws IOException, JMException {
+		int[] trace = new int[20000];
+		Random random = new Random(3);
+		for (int i = 0; i < trace.length; i++)
+			trace[i] = random.nextInt(0x10000);
+		CacheInfo L1 = new CacheInfo(16, 0x400, 10, Associativity.SET_ASSOCIATIVE_2WAY);
+		CacheInfo L2 = new CacheInfo(64, 0x2000, 40, Associativity.FULLY_ASSOCIATIVE);
+		MemoryHierarchy mem = new MemoryHierarchy(L1, L2, 200);
+
+		SimulatorMetrics metrics = new SimulatorMetrics("trace test");
+		metrics.watch(mem);
+		metrics.register();
+		try {
+			metrics.begin(trace.length);
+			TraceReplay replay = TraceReplay.run(Traces.arrayTrace(trace), mem, metrics);
+
+			// Everything is read through JMX, as a client would
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = metrics.getObjectName();
+			assertTrue("The metrics should be registered", server.isRegistered(name));
+			assertTrue("Every reference should be reported", (Long) server.getAttribute(name, "References") == trace.length);
+			assertTrue("The whole trace should be done", (Double) server.getAttribute(name, "Progress") == 1.0);
+			assertTrue("The average access time should be the one of the replay",
+					(Float) server.getAttribute(name, "AverageAccessTime") == replay.getAverageAccessTime());
+
+			long[] references = (long[]) server.getAttribute(name, "LevelReferences");
+			long[] hits = (long[]) server.getAttribute(name, "LevelHits");
+			long[] misses = (long[]) server.getAttribute(name, "LevelMisses");
+			long[] evictions = (long[]) server.getAttribute(name, "LevelEvictions");
+			assertTrue("There should be two levels", references.length == 2 && (Integer) server.getAttribute(name, "Levels") == 2);
+			assertTrue("L1 should see the whole trace", references[0] == trace.length);
+			assertTrue("L2 should see the misses of L1", references[1] == misses[0]);
+			assertTrue("Hits and misses should add up", hits[1] + misses[1] == references[1]);
+			assertTrue("The evictions should be those of the caches", evictions[0] == mem.getL1Cache().getTotalEvictions()
+					&& evictions[1] == mem.getL2Cache().getTotalEvictions() && evictions[1] > 0);
+			assertTrue("Some time should have passed", (Double) server.getAttribute(name, "ReferencesPerSecond") > 0);
+
+			server.invoke(name, "reset", null, null);
+			assertTrue("Reset should clear the references", metrics.getReferences() == 0 && metrics.getProgress() == -1);
+		} finally {
+			metrics.unregister();
+		}
+		assertTrue("The metrics should be unregistered", metrics.getObjectName() == null);
+	}
+
+	@Test
+	public void testLoopProgress() {
+		CacheInfo L1 = new CacheInfo(16, 512, 10, Associativity.SET_ASSOCIATIVE_2WAY);
+		ParallelLoopRunner runner = new ParallelLoopRunner(new MemoryHierarchy(L1, 100));
+		SimulatorMetrics metrics = new SimulatorMetrics("loop test");
+		runner.setMetrics(metrics);
+		runner.runEspeculatedLoopTest(0x1000);
+
+		// Loops from 16 bytes to 4K, with steps from 4 bytes to half the size
+		long loops = 0;
+		for (int size = 16; size <= 0x1000; size <<= 1)
+			loops += Integer.numberOfTrailingZeros(size) - 2;
+		assertTrue("The work should be the loops", metrics.getWorkTotal() == loops && metrics.getWorkDone() == loops);
+		assertTrue("The references of every loop should be reported", metrics.getReferences() > 0);
+	}
+
+	@Test
+	public void testExtrapolatedLoopReferences() {
+		CacheInfo L1 = new CacheInfo(16, 512, 10, Associativity.SET_ASSOCIATIVE_2WAY);
+		ParallelLoopRunner runner = new ParallelLoopRunner(new MemoryHierarchy(L1, 100));
+		SimulatorMetrics metrics = new SimulatorMetrics("extrapolated loop test");
+		runner.setMetrics(metrics);
+		int iterations = 100000;
+		runner.runSimulatedLoopTest(0x1000, iterations);
+
+		// The loops reach a periodic state after a few iterations, and the rest are not simulated
+		long logical = 0;
+		for (int size = 16; size <= 0x1000; size <<= 1) {
+			for (int step = 4; step <= size >>> 1; step <<= 1)
+				logical += (long) (size / step) * iterations;
+		}
+		assertTrue("Only the simulated references should be reported", metrics.getReferences() > 0
+				&& metrics.getReferences() < logical / 100);
+	}
+}
@@ -0,0 +1,95 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.nio.IntBuffer;
+
+import memory.MemoryHierarchy;
+import memory.MemoryResults;
+import memory.PackedResults;
+import memory.cache.Associativity;
+import memory.cache.CacheInfo;
+
+import org.junit.Test;
+
+public class PackedResultsTest {
+
+	private MemoryHierarchy newHierarchy() {
+		CacheInfo L1 = new CacheInfo(16, 64, 1, Associativity.DIRECT_MAPPED);
+		CacheInfo L2 = new CacheInfo(16, 256, 10, Associativity.SET_ASSOCIATIVE_2WAY);
+		return new MemoryHierarchy(L1, L2, 100);
+	}
+
+	@Test
+	public void testServingLevel() {
+		MemoryHierarchy mem = this.newHierarchy();
+
+		// First access goes to main memory, second one hits in L1, and the third one
+		// (which conflicts in L1 but not in L2) gets served by L2
+		int memseq[] = {4, 8, 68, 4};
+		int level[] = {2, 0, 2, 1};
+		int time[] = {111, 1, 111, 11};
+		boolean removed[] = {false, false, true, true};
+
+		for (int i = 0; i < memseq.length; i++) {
+			long results = mem.accessPacked(memseq[i]);
+			assertTrue("Wrong serving level at " + (i+1) + "th access.", PackedResults.getLevel(results) == level[i]);
+			assertTrue("Wrong access time at " + (i+1) + "th access.", PackedResults.getAccessTime(results) == time[i]);
+			assertTrue("Wrong hit flag at " + (i+1) + "th access.", PackedResults.wasHit(results) == (level[i] == 0));
+			assertTrue("Wrong removed flag at " + (i+1) + "th access.", PackedResults.blockWasRemoved(results) == removed[i]);
+		}
+	}
+
+
+	@Test
+	public void testSameAsObjectResults() {
+		MemoryHierarchy packed = this.newHierarchy();
+		MemoryHierarchy object = this.newHierarchy();
+
+		int memseq[] = {4, 12, 32, 20, 80, 68, 76, 224, 36, 44, 16, 172, 20, 24, 36, 68};
+		for (int i = 0; i < memseq.length; i++) {
+			long results = packed.accessPacked(memseq[i]);
+			MemoryResults mr = object.access(memseq[i]);
+			MemoryResults last = packed.lastAccessResults();
+
+			assertTrue("Hit differs at " + (i+1) + "th access.", mr.wasHit() == PackedResults.wasHit(results));
+			assertTrue("Time differs at " + (i+1) + "th access.", mr.getAccessTime() == PackedResults.getAccessTime(results));
+			assertTrue("Results of last access differ at " + (i+1) + "th access.", mr.toString().equals(last.toString()));
+
+			// The chain of results must be as deep as the serving level
+			int depth = 0;
+			for (MemoryResults next = mr.getNextLevelResult(); next != null; next = next.getNextLevelResult())
+				depth++;
+			assertTrue("Wrong results chain at " + (i+1) + "th access.", depth == PackedResults.getLevel(results));
+		}
+	}
+
+
+	@Test
+	public void testBatchSameAsSingleAccesses() {
+		MemoryHierarchy single = this.newHierarchy();
+		MemoryHierarchy batch = this.newHierarchy();
+		MemoryHierarchy buffer = this.newHierarchy();
+
+		int memseq[] = {4, 12, 32, 20, 80, 68, 76, 224, 36, 44, 16, 172, 20, 24, 36, 68};
+		long batchResults[] = new long[memseq.length + 2];
+		long bufferResults[] = new long[memseq.length];
+
+		// The batch skips the first address, and starts filling the results in the same index
+		long batchTime = batch.accessBatch(memseq, 1, memseq.length - 1, batchResults);
+		IntBuffer addresses = IntBuffer.wrap(memseq);
+		addresses.position(1);
+		long bufferTime = buffer.accessBatch(addresses, bufferResults);
+		assertTrue("Buffer was not consumed.", !addresses.hasRemaining());
+
+		long time = 0;
+		for (int i = 1; i < memseq.length; i++) {
+			long results = single.accessPacked(memseq[i]);
+			time += PackedResults.getAccessTime(results);
+			assertTrue("Batch results differ at " + i + "th access.", batchResults[i] == results);
+			assertTrue("Buffer results differ at " + i + "th access.", bufferResults[i - 1] == results);
+		}
+		assertTrue("Wrong total batch time.", batchTime == time && bufferTime == time);
+		assertTrue("Wrong number of references.", batch.getTotalReferences() == memseq.length - 1);
+	}
+}
@@ -0,0 +1,60 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.ForkJoinPool;
+
+import memory.MainMemory;
+import memory.MemoryHierarchy;
+import memory.MemorySystem;
+import memory.cache.Associativity;
+import memory.cache.CacheInfo;
+import processor.ParallelLoopRunner;
+import processor.Processor;
+
+import org.jfree.data.category.CategoryDataset;
+import org.junit.Test;
+
+public class ParallelLoopTest {
+
+	@Test
+	public void testEmptyCopy() {
+		CacheInfo L1 = new CacheInfo(16, 512, 10, Associativity.SET_ASSOCIATIVE_4WAY);
+		CacheInfo L2 = new CacheInfo(64, 4096, 40, Associativity.DIRECT_MAPPED);
+		MemoryHierarchy mem = new MemoryHierarchy(L1, L2, 300);
+		mem.access(0);
+		mem.access(1024);
+
+		MemoryHierarchy copy = mem.emptyCopy();
+		assertTrue("The copy should have the same depth", copy.getDepth() == 2);
+		assertTrue("The copy should be empty", !copy.inMemory(0) && copy.getTotalReferences() == 0);
+		assertTrue("The original should not change", mem.inMemory(0) && mem.getTotalReferences() == 2);
+		assertTrue("The copy should have the same L2", copy.getL2Cache().getAssociativity() == Associativity.DIRECT_MAPPED
+				&& copy.getL2Cache().getCacheSize() == 4096);
+		assertTrue("The copy should have the same main memory",
+				((MainMemory) copy.getL2Cache().getNextLevel()).getAccessTime() == 300);
+	}
+
+	@Test
+	public void testSameAsSequential() {
+		CacheInfo L1 = new CacheInfo(16, 512, 10, Associativity.SET_ASSOCIATIVE_2WAY);
+		CacheInfo L2 = new CacheInfo(32, 0x2000, 40, Associativity.FULLY_ASSOCIATIVE);
+		MemorySystem mem = new MemoryHierarchy(L1, L2, 500);
+
+		ForkJoinPool pool = new ForkJoinPool(4);
+		ParallelLoopRunner runner = new ParallelLoopRunner(mem, pool);
+		Processor p = new Processor(mem);
+		CategoryDataset parallel = runner.runEspeculatedLoopTest(0x10000);
+		CategoryDataset sequential = p.runEspeculatedLoopTest(0x10000);
+		assertTrue("Especulated datasets should be equal", parallel.equals(sequential));
+		assertTrue("Series should be in the same order", parallel.getRowKeys().equals(sequential.getRowKeys()));
+		assertTrue("Categories should be in the same order", parallel.getColumnKeys().equals(sequential.getColumnKeys()));
+
+		parallel = runner.runSimulatedLoopTest(0x8000, 5);
+		sequential = p.runSimulatedLoopTest(0x8000, 5);
+		assertTrue("Simulated datasets should be equal", parallel.equals(sequential));
+		assertTrue("The prototype should not be accessed", mem.getTotalReferences() == 0);
+		pool.shutdown();
+	}
+
+}
@@ -0,0 +1,68 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+
+import memory.MemoryHierarchy;
+import memory.PipelinedHierarchy;
+import memory.cache.Associativity;
+import memory.cache.Cache;
+import memory.cache.CacheInfo;
+import memory.cache.Replacement;
+
+import org.junit.Test;
+
+public class PipelinedHierarchyTest {
+
+	@Test
+	public void testSameCountersAsSynchronous() {
+		int[] trace = Traces.randomTrace(300000, 0x100000, 11);
+		CacheInfo L1 = new CacheInfo(16, 0x1000, 10, Associativity.SET_ASSOCIATIVE_4WAY, Replacement.LRU);
+		CacheInfo L2 = new CacheInfo(32, 0x8000, 40, Associativity.SET_ASSOCIATIVE_8WAY, Replacement.RANDOM);
+		CacheInfo L3 = new CacheInfo(64, 0x20000, 90, Associativity.DIRECT_MAPPED);
+		MemoryHierarchy[] hierarchies = {new MemoryHierarchy(L1, 500), new MemoryHierarchy(L1, L2, 500),
+				new MemoryHierarchy(L1, L2, L3, 500)};
+
+		for (MemoryHierarchy synchronous : hierarchies) {
+			PipelinedHierarchy pipelined = new PipelinedHierarchy(synchronous);
+			// Twice, to check that counters accumulate over runs
+			for (int run = 0; run < 2; run++) {
+				long expected = synchronous.accessBatch(trace, 0, trace.length, null);
+				long time = pipelined.run(trace, 0, trace.length);
+				String name = "Depth " + synchronous.getDepth() + ", run " + run;
+				assertTrue(name + ": the time should be the synchronous one", time == expected);
+
+				Cache[] levels = {synchronous.getL1Cache(), synchronous.getL2Cache(), synchronous.getL3Cache()};
+				for (int i = 0; i < synchronous.getDepth(); i++) {
+					assertTrue(name + ": L" + (i + 1) + " references should match",
+							pipelined.getLevel(i).getTotalReferences() == levels[i].getTotalReferences());
+					assertTrue(name + ": L" + (i + 1) + " misses should match",
+							pipelined.getLevel(i).getTotalMisses() == levels[i].getTotalMisses());
+					assertTrue(name + ": L" + (i + 1) + " evictions should match",
+							pipelined.getLevel(i).getTotalEvictions() == levels[i].getTotalEvictions());
+					assertTrue(name + ": L" + (i + 1) + " time should match",
+							pipelined.getTotalTime(i) == levels[i].getTotalTime());
+					assertTrue(name + ": L" + (i + 1) + " average access time should match",
+							pipelined.getAverageAccessTime(i) == levels[i].getAverageAccessTime());
+				}
+				Cache last = levels[synchronous.getDepth() - 1];
+				assertTrue(name + ": main memory references should match",
+						pipelined.getMainMemory().getTotalReferences() == last.getNextLevel().getTotalReferences());
+			}
+		}
+	}
+
+	@Test
+	public void testClean() {
+		int[] trace = Traces.randomTrace(50000, 0x40000, 5);
+		CacheInfo L1 = new CacheInfo(16, 0x400, 10, Associativity.DIRECT_MAPPED);
+		CacheInfo L2 = new CacheInfo(32, 0x2000, 40, Associativity.FULLY_ASSOCIATIVE);
+		PipelinedHierarchy pipelined = new PipelinedHierarchy(200, L1, L2);
+		long first = pipelined.run(trace, 0, trace.length);
+		pipelined.clean();
+		assertTrue("Cleaning should reset the counters",
+				pipelined.getTotalReferences() == 0 && pipelined.getLevel(1).getTotalReferences() == 0);
+		assertTrue("A clean run should repeat the results", pipelined.run(trace, 0, trace.length) == first);
+	}
+
+}
@@ -0,0 +1,209 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.Random;
+
+import memory.MemoryHierarchy;
+import memory.cache.Associativity;
+import memory.cache.Cache;
+import memory.cache.CacheInfo;
+import memory.cache.MissClassifier;
+import memory.cache.MissType;
+import memory.stats.EvictionAgeProbe;
+import memory.stats.HierarchyStats;
+import memory.stats.LogHistogram;
+import memory.stats.ReuseDistanceProbe;
+import memory.stats.SetHeatmapProbe;
+
+import org.junit.Test;
+
+import processor.Processor;
+
+public class ProbeTest {
+
+	@Test
+	public void testLogHistogram() {
+		LogHistogram histogram = new LogHistogram();
+		long[] values = {0, 1, 2, 3, 4, 7, 8, 1000, Long.MAX_VALUE};
+		for (long value : values) {
+			histogram.add(value);
+			int bucket = LogHistogram.bucket(value);
+			assertTrue(value + " should be within its bucket",
+					LogHistogram.lowerBound(bucket) <= value && value <= LogHistogram.upperBound(bucket));
+		}
+		assertTrue("Every value should be counted", histogram.getTotal() == values.length);
+		assertTrue("2 and 3 share a bucket", histogram.getCount(2) == 2);
+		assertTrue("The last bucket should be used", histogram.getUsedBuckets() == LogHistogram.BUCKETS);
+	}
+
+	@Test
+	public void testHeatmap() throws IOException {
+		// 4 sets of 2 ways, and a workload that only uses set 1 (with 3 blocks, so it thrashes)
+		CacheInfo info = new CacheInfo(16, 128, 10, Associativity.SET_ASSOCIATIVE_2WAY);
+		MemoryHierarchy mem = new MemoryHierarchy(info, 100);
+		SetHeatmapProbe heatmap = new SetHeatmapProbe();
+		mem.getL1Cache().attach(heatmap);
+		for (int i = 0; i < 10; i++) {
+			mem.access(0x10);
+			mem.access(0x50);
+			mem.access(0x90);
+		}
+		assertTrue("There should be 4 sets", heatmap.getSets() == 4);
+		assertTrue("Set 1 should get every access", heatmap.getAccesses()[1] == 30 && heatmap.getAccesses()[0] == 0);
+		assertTrue("Set 1 should miss every access", heatmap.getMisses()[1] == 30);
+		assertTrue("Every miss but the first two should evict", heatmap.getEvictions()[1] == 28);
+
+		StringBuilder csv = new StringBuilder();
+		heatmap.writeCsv(csv);
+		assertTrue("The CSV should have a line per set", csv.toString().split("\n").length == 5);
+		assertTrue("The CSV should have the counters of set 1", csv.toString().contains("\n1,30,30,28\n"));
+	}
+
+	@Test
+	public void testReuseAndEvictionAge() throws IOException {
+		// A direct mapped cache of 4 blocks, with a loop of 4 blocks (hits once warm) and a conflict
+		CacheInfo info = new CacheInfo(16, 64, 10, Associativity.DIRECT_MAPPED);
+		MemoryHierarchy mem = new MemoryHierarchy(info, 100);
+		Cache L1 = mem.getL1Cache();
+		ReuseDistanceProbe reuse = new ReuseDistanceProbe(1024);
+		EvictionAgeProbe ages = new EvictionAgeProbe();
+		L1.attach(reuse);
+		L1.attach(ages);
+		for (int i = 0; i < 5; i++) {
+			for (int block = 0; block < 4; block++)
+				mem.access(block << 4);
+		}
+		assertTrue("Each block should be a first access", reuse.getFirstAccesses() == 4);
+		assertTrue("The reuses (distance 3) should be hits", reuse.getHits().getCount(LogHistogram.bucket(3)) == 16
+				&& reuse.getMisses().getTotal() == 0);
+
+		// Blocks 0 and 64 conflict, and evict each other right after being used
+		mem.access(0x40);
+		mem.access(0x00);
+		assertTrue("The reuse of block 0 should be a miss", reuse.getMisses().getCount(LogHistogram.bucket(4)) == 1);
+		assertTrue("There should be two evictions", ages.getLifetimes().getTotal() == 2);
+		assertTrue("Block 0 lived 20 accesses", ages.getLifetimes().getCount(LogHistogram.bucket(20)) == 1);
+		assertTrue("Block 0 was idle 4 accesses", ages.getIdleTimes().getCount(LogHistogram.bucket(4)) == 1);
+
+		// Detached probes are not told of anything else
+		L1.detach(reuse);
+		L1.detach(ages);
+		mem.access(0x80);
+		assertTrue("A detached probe should not change", reuse.getAccesses() == 22 && ages.getLifetimes().getTotal() == 2);
+
+		StringBuilder csv = new StringBuilder();
+		ages.writeCsv(csv);
+		assertTrue("The CSV should start with its header", csv.toString().startsWith("from,to,lifetime,idle\n"));
+	}
+
+	@Test
+	public void testLoopTestIsNotExtrapolated() {
+		// The loops reach a periodic state soon, but the probes must see every iteration
+		CacheInfo info = new CacheInfo(16, 256, 10, Associativity.SET_ASSOCIATIVE_2WAY);
+		MemoryHierarchy mem = new MemoryHierarchy(info, 100);
+		SetHeatmapProbe heatmap = new SetHeatmapProbe();
+		mem.getL1Cache().attach(heatmap);
+		new Processor(mem).runSimulatedLoopTest(64, 1000);
+
+		// 50 references per iteration over all the loops up to 64 bytes
+		long total = 0;
+		for (long accesses : heatmap.getAccesses())
+			total += accesses;
+		assertTrue("The heatmap should see every reference: " + total, total == 50 * 1000);
+	}
+
+	@Test
+	public void testProbesAreNotCopied() {
+		Random random = new Random(1);
+		CacheInfo info = new CacheInfo(16, 256, 10, Associativity.SET_ASSOCIATIVE_4WAY);
+		MemoryHierarchy mem = new MemoryHierarchy(info, 100);
+		SetHeatmapProbe heatmap = new SetHeatmapProbe();
+		mem.getL1Cache().attach(heatmap);
+		for (int i = 0; i < 100; i++)
+			mem.access(random.nextInt(0x1000));
+		MemoryHierarchy copy = mem.copy();
+		copy.access(0);
+		long total = 0;
+		for (long accesses : heatmap.getAccesses())
+			total += accesses;
+		assertTrue("Accesses to a copy should not reach the probes", total == 100);
+
+		try {
+			copy.getL1Cache().attach(heatmap);
+			fail("A probe should only be attached once");
+		} catch (IllegalStateException e) {
+		}
+	}
+
+	@Test
+	public void testMissClassification() {
+		// A direct mapped cache of 4 blocks (16 bytes each)
+		CacheInfo info = new CacheInfo(16, 64, 10, Associativity.DIRECT_MAPPED);
+		MemoryHierarchy mem = new MemoryHierarchy(info, 100);
+		MissClassifier classifier = mem.getL1Cache().enableMissClassification();
+
+		assertTrue("The first access should be compulsory", mem.access(0x00).getMissType() == MissType.COMPULSORY);
+		assertTrue("Hits have no type", mem.access(0x04).getMissType() == null);
+		mem.access(0x40);
+		assertTrue("Two blocks in the same set should conflict", mem.access(0x00).getMissType() == MissType.CONFLICT);
+
+		// 8 blocks over 4 entries: after the first round every access is a capacity miss
+		mem.clean();
+		assertTrue("Cleaning should clean the classifier", classifier.getCompulsory() == 0 && classifier.getConflict() == 0);
+		for (int round = 0; round < 3; round++) {
+			for (int block = 0; block < 8; block++)
+				mem.access(block << 4);
+		}
+		assertTrue("The first round should be compulsory", classifier.getCompulsory() == 8);
+		assertTrue("The next rounds should be capacity misses", classifier.getCapacity() == 16 && classifier.getConflict() == 0);
+	}
+
+	@Test
+	public void testClassifierStateIsHashed() {
+		// The direct mapped caches end with the same blocks, but the classifiers saw different accesses
+		CacheInfo info = new CacheInfo(16, 64, 10, Associativity.DIRECT_MAPPED);
+		int[][] sequences = {{0x00, 0x40}, {0x40}, {0x00, 0x10, 0x40}, {0x10, 0x00, 0x40}};
+		long[] plain = new long[sequences.length];
+		long[] classified = new long[sequences.length];
+		for (int i = 0; i < sequences.length; i++) {
+			MemoryHierarchy mem = new MemoryHierarchy(info, 100);
+			MemoryHierarchy other = new MemoryHierarchy(info, 100);
+			other.getL1Cache().enableMissClassification();
+			for (int address : sequences[i]) {
+				mem.accessPacked(address);
+				other.accessPacked(address);
+			}
+			plain[i] = mem.stateHash();
+			classified[i] = other.stateHash();
+		}
+		assertTrue("The caches should hold the same blocks", plain[0] == plain[1] && plain[2] == plain[3]);
+		assertTrue("The blocks touched should be hashed", classified[0] != classified[1]);
+		assertTrue("The LRU order of the shadow cache should be hashed", classified[2] != classified[3]);
+	}
+
+	@Test
+	public void testClassificationInStats() {
+		Random random = new Random(9);
+		CacheInfo L1 = new CacheInfo(16, 0x400, 10, Associativity.SET_ASSOCIATIVE_2WAY);
+		CacheInfo L2 = new CacheInfo(32, 0x2000, 40, Associativity.FULLY_ASSOCIATIVE);
+		MemoryHierarchy mem = new MemoryHierarchy(L1, L2, 200);
+		mem.enableMissClassification();
+		for (int i = 0; i < 100000; i++)
+			mem.accessPacked((random.nextInt(8) == 0) ? random.nextInt(0x10000) : random.nextInt(0x1000));
+
+		HierarchyStats stats = mem.getStats();
+		for (HierarchyStats.Level level : stats.getLevels()) {
+			assertTrue(level.name + " should be classified", level.classified);
+			assertTrue(level.name + ": every miss should have a type",
+					level.compulsory + level.capacity + level.conflict == level.misses);
+		}
+		assertTrue("The set associative L1 should have conflicts", stats.getLevel(0).conflict > 0);
+		assertTrue("A fully associative LRU cache has no conflicts", stats.getLevel(1).conflict == 0);
+		assertTrue("The report should show the types", stats.toString().contains("Conflict"));
+
+		mem.getL1Cache().disableMissClassification();
+		assertTrue("L1 should not be classified anymore", !mem.getStats().getLevel(0).classified);
+	}
+}
@@ -0,0 +1,144 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import memory.MemoryResults;
+import memory.cache.Associativity;
+import memory.cache.Cache;
+import memory.cache.CacheInfo;
+import memory.cache.FactoryCache;
+import memory.cache.Replacement;
+import memory.cache.ReplacementPolicy;
+import memory.cache.policies.LRUListPolicy;
+import memory.cache.policies.LRUPolicy;
+
+import org.junit.Test;
+
+public class ReplacementPolicyTest {
+
+	// Fills all the ways of the set, in order
+	private static void fill(ReplacementPolicy policy, int set) {
+		for (int way = 0; way < policy.getWays(); way++)
+			policy.onFill(set, way);
+	}
+
+	@Test
+	public void testVictimsInRange() {
+		// Any policy must give a valid way, and the same victims after being cleaned
+		int waysList[] = {2, 4, 8, 64, 256};
+		for (Replacement replacement : Replacement.values()) {
+			for (int ways : waysList) {
+				ReplacementPolicy policy = FactoryCache.createPolicy(replacement, 4, ways);
+				int victims[] = new int[2000];
+				for (int round = 0; round < 2; round++) {
+					policy.clean();
+					Random random = new Random(3);
+					for (int set = 0; set < 4; set++)
+						fill(policy, set);
+					for (int i = 0; i < victims.length; i++) {
+						int set = random.nextInt(4);
+						if (random.nextBoolean()) {
+							policy.onHit(set, random.nextInt(ways));
+							continue;
+						}
+						int victim = policy.victim(set);
+						assertTrue(replacement + " with " + ways + " ways gave way " + victim, victim >= 0 && victim < ways);
+						assertTrue(replacement + " with " + ways + " ways is not repeatable", round == 0 || victims[i] == victim);
+						victims[i] = victim;
+						policy.onFill(set, victim);
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testLRUImplementationsAgree() {
+		int ways = 64;
+		ReplacementPolicy ranks = new LRUPolicy(2, ways);
+		ReplacementPolicy list = new LRUListPolicy(2, ways);
+		Random random = new Random(11);
+		for (int set = 0; set < 2; set++) {
+			fill(ranks, set);
+			fill(list, set);
+		}
+		for (int i = 0; i < 20000; i++) {
+			int set = random.nextInt(2);
+			if (random.nextInt(3) > 0) {
+				int way = random.nextInt(ways);
+				ranks.onHit(set, way);
+				list.onHit(set, way);
+			} else {
+				int victim = list.victim(set);
+				assertTrue("LRU victims differ (" + (i+1) + "th access)", ranks.victim(set) == victim);
+				ranks.onFill(set, victim);
+				list.onFill(set, victim);
+			}
+		}
+	}
+
+	@Test
+	public void testKnownVictims() {
+		// FIFO ignores hits
+		ReplacementPolicy fifo = FactoryCache.createPolicy(Replacement.FIFO, 1, 4);
+		fill(fifo, 0);
+		fifo.onHit(0, 0);
+		assertTrue("FIFO should replace the oldest block", fifo.victim(0) == 0);
+		fifo.onFill(0, 0);
+		assertTrue("FIFO should replace the oldest block", fifo.victim(0) == 1);
+
+		// Tree PLRU points away from the last accessed half
+		ReplacementPolicy tree = FactoryCache.createPolicy(Replacement.TREE_PLRU, 1, 4);
+		fill(tree, 0);
+		assertTrue("Tree PLRU should replace way 0", tree.victim(0) == 0);
+		tree.onHit(0, 0);
+		assertTrue("Tree PLRU should replace way 2", tree.victim(0) == 2);
+		tree.onHit(0, 2);
+		assertTrue("Tree PLRU should replace way 1", tree.victim(0) == 1);
+
+		// Bit PLRU clears the bits once all of them are set
+		ReplacementPolicy bits = FactoryCache.createPolicy(Replacement.BIT_PLRU, 1, 4);
+		for (int way = 0; way < 3; way++)
+			bits.onFill(0, way);
+		assertTrue("Bit PLRU should replace the only way not used", bits.victim(0) == 3);
+		bits.onFill(0, 3);
+		assertTrue("Bit PLRU should replace the first way not used", bits.victim(0) == 0);
+
+		// SRRIP keeps the block that was hit
+		ReplacementPolicy rrip = FactoryCache.createPolicy(Replacement.SRRIP, 1, 4);
+		fill(rrip, 0);
+		rrip.onHit(0, 0);
+		assertTrue("SRRIP should replace way 1", rrip.victim(0) == 1);
+
+		// LFU replaces the block with less accesses
+		ReplacementPolicy lfu = FactoryCache.createPolicy(Replacement.LFU, 1, 4);
+		fill(lfu, 0);
+		for (int way = 0; way < 4; way++)
+			if (way != 2)
+				lfu.onHit(0, way);
+		assertTrue("LFU should replace way 2", lfu.victim(0) == 2);
+	}
+
+	@Test
+	public void testCacheWithPolicy() {
+		// A loop of 5 blocks over a 4 blocks FA cache: LRU and FIFO always miss, but Bimodal RRIP
+		// keeps some of the blocks
+		int memseq[] = {0, 4, 8, 12, 16, 0, 4, 8, 12, 16, 0, 4, 8, 12, 16};
+		int hits[] = new int[Replacement.values().length];
+		for (Replacement replacement : Replacement.values()) {
+			Cache cache = FactoryCache.createCache(new CacheInfo(4, 16, 10, Associativity.FULLY_ASSOCIATIVE, replacement));
+			assertTrue("The cache should keep the policy", cache.getReplacement() == replacement);
+			for (int address : memseq) {
+				MemoryResults mr = cache.access(address);
+				if (mr.wasHit())
+					hits[replacement.ordinal()]++;
+			}
+		}
+		assertTrue("LRU should always miss on a loop bigger than the cache", hits[Replacement.LRU.ordinal()] == 0);
+		assertTrue("FIFO should always miss on a loop bigger than the cache", hits[Replacement.FIFO.ordinal()] == 0);
+		assertTrue("Bimodal RRIP should keep part of the loop", hits[Replacement.BRRIP.ordinal()] > 0);
+	}
+
+}
@@ -0,0 +1,170 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import memory.MemoryHierarchy;
+import memory.cache.Associativity;
+import memory.cache.CacheInfo;
+import memory.explore.DesignPoint;
+import memory.explore.DesignSpace;
+import memory.explore.LevelRange;
+import memory.explore.ParetoExplorer;
+import memory.explore.ResultStore;
+import memory.trace.TraceSource;
+
+import org.jfree.data.category.CategoryDataset;
+import org.junit.Test;
+
+import processor.ParallelLoopRunner;
+
+public class ResultStoreTest {
+
+	private static File emptyFile() throws IOException {
+		File file = File.createTempFile("results", ".csv");
+		file.delete();
+		file.deleteOnExit();
+		return file;
+	}
+
+	@Test
+	public void testPersistence() throws IOException {
+		File file = emptyFile();
+		Map<String, Float> values = new LinkedHashMap<String, Float>();
+		values.put("b", 1.5f);
+		values.put("a", 0.1f);
+		try (ResultStore store = new ResultStore(file)) {
+			store.put("16:1024:1:10:LRU|MM100", "trace:one", values);
+			store.put("16:1024:1:10:LRU|MM100", "trace:two", new LinkedHashMap<String, Float>());
+			assertTrue("Results should be found", store.get("16:1024:1:10:LRU|MM100", "trace:one").equals(values));
+		}
+
+		// A line that was being written when the process died
+		Files.write(file.toPath(), "12ab,trace:thr".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+		try (ResultStore store = new ResultStore(file)) {
+			assertTrue("Complete results should be loaded", store.size() == 2);
+			Map<String, Float> loaded = store.get("16:1024:1:10:LRU|MM100", "trace:one");
+			assertTrue("Values should be loaded in order", loaded.keySet().iterator().next().equals("b") && loaded.equals(values));
+			assertTrue("Other workloads are other results", !store.contains("16:1024:1:10:LRU|MM100", "trace:three"));
+			store.put("16:1024:1:10:LRU|MM100", "trace:three", values);
+		}
+		try (ResultStore store = new ResultStore(file)) {
+			assertTrue("The half written line should be dropped", store.size() == 3);
+		}
+	}
+
+	@Test
+	public void testResumedExploration() throws IOException {
+		Associativity[] associativities = {Associativity.DIRECT_MAPPED, Associativity.SET_ASSOCIATIVE_2WAY};
+		DesignSpace space = new DesignSpace(200, new LevelRange(16, 16, 256, 1024, associativities, 10, 30),
+				new LevelRange(32, 32, 0x800, 0x2000, associativities, 40));
+		File file = emptyFile();
+
+		List<DesignPoint> front;
+		int evaluated;
+		try (ResultStore store = new ResultStore(file)) {
+			ParetoExplorer explorer = new ParetoExplorer(space, 2);
+			explorer.setStore(store);
+			front = explorer.exploreLoops(0x2000);
+			evaluated = explorer.getSimulated() + explorer.getComputed();
+			assertTrue("Every hierarchy should be stored", store.size() == space.enumerate().size());
+		}
+		try (ResultStore store = new ResultStore(file)) {
+			ParetoExplorer explorer = new ParetoExplorer(space, 2);
+			explorer.setStore(store);
+			List<DesignPoint> again = explorer.exploreLoops(0x2000);
+			assertTrue("Nothing should be simulated again", explorer.getSimulated() == 0);
+			assertTrue("Results should come from the store", explorer.getStored() + explorer.getComputed() == evaluated);
+			assertTrue("The front should be the same", again.toString().equals(front.toString()));
+		}
+	}
+
+	/**
+	 * A trace that can not be read.
+	 */
+	private static TraceSource unreadable() {
+		return new TraceSource() {
+			@Override
+			public IntBuffer next() {
+				throw new AssertionError("The trace should not be read");
+			}
+			@Override
+			public void rewind() {
+			}
+			@Override
+			public void close() {
+			}
+		};
+	}
+
+	@Test
+	public void testStoredTraceExploration() throws IOException {
+		int[] trace = Traces.randomTrace(30000, 0x10000, 20, 29);
+		Associativity[] associativities = {Associativity.DIRECT_MAPPED, Associativity.SET_ASSOCIATIVE_2WAY};
+		LevelRange L1 = new LevelRange(16, 32, 256, 2048, associativities, 10, 50);
+		LevelRange L2 = new LevelRange(32, 64, 0x1000, 0x4000, associativities, 40, 60);
+		// Single level hierarchies are computed, and the slow two level ones are pruned
+		DesignSpace[] spaces = {new DesignSpace(200, L1), new DesignSpace(200, L1, L2)};
+		File file = emptyFile();
+
+		for (DesignSpace space : spaces) {
+			List<DesignPoint> front;
+			try (ResultStore store = new ResultStore(file)) {
+				ParetoExplorer explorer = new ParetoExplorer(space, 2);
+				explorer.setStore(store);
+				int before = store.size();
+				front = explorer.exploreTrace(Traces.arrayTrace(trace), "random");
+				assertTrue("Some hierarchies should be computed or pruned", explorer.getComputed() + explorer.getPruned() > 0);
+				assertTrue("Every hierarchy should be stored", store.size() - before == space.enumerate().size());
+			}
+			try (ResultStore store = new ResultStore(file)) {
+				ParetoExplorer explorer = new ParetoExplorer(space, 2);
+				explorer.setStore(store);
+				List<DesignPoint> again = explorer.exploreTrace(unreadable(), "random");
+				assertTrue("Nothing should be simulated again", explorer.getSimulated() == 0 && explorer.getComputed() == 0);
+				assertTrue("The front should be the same", again.toString().equals(front.toString()));
+			}
+		}
+	}
+
+	@Test
+	public void testStoredLoopTest() throws IOException {
+		CacheInfo L1 = new CacheInfo(16, 256, 10, Associativity.SET_ASSOCIATIVE_2WAY);
+		CacheInfo L2 = new CacheInfo(32, 0x1000, 40, Associativity.DIRECT_MAPPED);
+		File file = emptyFile();
+		CategoryDataset first;
+		try (ResultStore store = new ResultStore(file)) {
+			ParallelLoopRunner runner = new ParallelLoopRunner(new MemoryHierarchy(L1, L2, 300));
+			runner.setStore(store);
+			first = runner.runSimulatedLoopTest(0x4000, 5);
+			assertTrue("The test should be stored", store.size() == 1);
+		}
+		try (ResultStore store = new ResultStore(file)) {
+			ParallelLoopRunner runner = new ParallelLoopRunner(new MemoryHierarchy(L1, L2, 300));
+			runner.setStore(store);
+			CategoryDataset loaded = runner.runSimulatedLoopTest(0x4000, 5);
+			assertTrue("The loaded dataset should have the same shape", loaded.getRowCount() == first.getRowCount()
+					&& loaded.getColumnCount() == first.getColumnCount());
+			for (int r = 0; r < first.getRowCount(); r++) {
+				for (int c = 0; c < first.getColumnCount(); c++) {
+					Number expected = first.getValue(r, c);
+					Number value = loaded.getValue(r, c);
+					assertTrue("Loop " + r + ", " + c + " should be loaded", (expected == null) ? value == null
+							: value != null && expected.floatValue() == value.floatValue());
+				}
+			}
+			runner.runSimulatedLoopTest(0x4000, 6);
+			assertTrue("Other iterations are another workload", store.size() == 2);
+		}
+	}
+
+}
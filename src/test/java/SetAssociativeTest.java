@@ -1,6 +1,9 @@
 package tests;
 
 import static org.junit.Assert.*;
+
+import java.util.Random;
+
 import memory.MemoryResults;
 import memory.cache.CacheEntry;
 import memory.cache.types.CacheSA;
@@ -70,6 +73,58 @@ public class SetAssociativeTest {
 				assertTrue("Expected another block in memory.", expectedBlockAddress[i] == array[i].block_address);
 		}		
 	}
-
+	
+	
+	@Test
+	public void testHighAssociativityLRU() {
+		// Reference model of the LRU of a set: the last time each way was accessed, empty ways are filled first
+		// (in order), and then the way accessed longest ago is replaced.
+		int waysList[] = {2, 4, 8, 16, 32, 64};
+		Random random = new Random(7);
+		
+		for (int ways : waysList) {
+			int sets = 4;
+			CacheSA cache = new CacheSA(4, 4 * ways * sets, 10, ways);
+			int tags[][] = new int[sets][ways];
+			int lastUse[][] = new int[sets][ways];
+			boolean valid[][] = new boolean[sets][ways];
+			
+			for (int i = 0; i < 20000; i++) {
+				int address = random.nextInt(4 * ways * sets * 3) & ~3;
+				int set = (address >> 2) % sets;
+				
+				// Expected outcome, from the reference model
+				int way = -1;
+				for (int j = 0; j < ways && way < 0; j++)
+					if (valid[set][j] && tags[set][j] == address)
+						way = j;
+				boolean hit = way >= 0;
+				int removed = -1;
+				if (!hit) {
+					int min = Integer.MAX_VALUE;
+					for (int j = 0; j < ways && way < 0; j++) {
+						if (!valid[set][j]) {
+							way = j;
+						} else if (lastUse[set][j] < min) {
+							min = lastUse[set][j];
+							removed = j;
+						}
+					}
+					if (way < 0)
+						way = removed;
+					else
+						removed = -1;
+					valid[set][way] = true;
+					tags[set][way] = address;
+				}
+				lastUse[set][way] = i;
+				
+				MemoryResults mr = cache.access(address);
+				assertTrue("Expected cache " + (hit?"hit":"miss") + " with " + ways + " ways (" + (i+1) + "th access)", mr.wasHit() == hit);
+				assertTrue("Wrong block placement with " + ways + " ways (" + (i+1) + "th access)", mr.getBlockPosition() == set * ways + way);
+				assertTrue("Wrong removed block with " + ways + " ways (" + (i+1) + "th access)", mr.blockWasRemoved() == (removed >= 0));
+			}
+		}
+	}
 	
 }
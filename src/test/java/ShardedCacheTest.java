@@ -0,0 +1,85 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import memory.MainMemory;
+import memory.ShardedCacheSimulator;
+import memory.cache.Associativity;
+import memory.cache.Cache;
+import memory.cache.CacheInfo;
+import memory.cache.CacheProbe;
+import memory.cache.FactoryCache;
+import memory.cache.Replacement;
+
+import org.junit.Test;
+
+public class ShardedCacheTest {
+
+	@Test
+	public void testSameTotalsAsSequential() {
+		int[] trace = Traces.randomTrace(200000, 0x40000, 7);
+		Associativity[] associativities = {Associativity.DIRECT_MAPPED, Associativity.SET_ASSOCIATIVE_4WAY,
+				Associativity.SET_ASSOCIATIVE_16WAY, Associativity.FULLY_ASSOCIATIVE};
+		for (Associativity associativity : associativities) {
+			for (Replacement replacement : Replacement.values()) {
+				CacheInfo info = new CacheInfo(32, 0x2000, 10, associativity, replacement);
+				Cache sequential = FactoryCache.createCache(info);
+				sequential.setNextLevel(new MainMemory(200));
+				long expected = sequential.accessBatch(trace, 0, trace.length, null);
+
+				for (int threads = 1; threads <= 8; threads <<= 1) {
+					String name = associativity + " " + replacement + " (" + threads + " threads)";
+					ShardedCacheSimulator sharded = new ShardedCacheSimulator(info, 200, threads);
+					long time = sharded.run(trace, 0, trace.length);
+					assertTrue(name + ": the time should be the sequential one", time == expected);
+					assertTrue(name + ": the misses should be the sequential ones",
+							sharded.getTotalMisses() == sequential.getTotalMisses());
+					assertTrue(name + ": every access should be counted", sharded.getTotalReferences() == trace.length);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testShardsAndClean() {
+		CacheInfo info = new CacheInfo(16, 1024, 10, Associativity.SET_ASSOCIATIVE_2WAY, Replacement.LRU);
+		assertTrue("Shards should be a power of 2", new ShardedCacheSimulator(info, 100, 6).getShards() == 4);
+		assertTrue("Shards should not exceed the sets", new ShardedCacheSimulator(info, 100, 1024).getShards() == 32);
+		CacheInfo random = new CacheInfo(16, 1024, 10, Associativity.SET_ASSOCIATIVE_2WAY, Replacement.RANDOM);
+		assertTrue("Random replacement should not be split", new ShardedCacheSimulator(random, 100, 8).getShards() == 1);
+
+		int[] trace = Traces.randomTrace(50000, 0x8000, 3);
+		ShardedCacheSimulator sharded = new ShardedCacheSimulator(info, 100, 4);
+		long first = sharded.run(trace, 0, trace.length);
+		sharded.clean();
+		assertTrue("Cleaning should reset the counters", sharded.getTotalReferences() == 0);
+		assertTrue("A clean run should repeat the results", sharded.run(trace, 0, trace.length) == first);
+	}
+
+	@Test(timeout = 10000)
+	public void testFailedShard() {
+		CacheInfo info = new CacheInfo(16, 1024, 10, Associativity.SET_ASSOCIATIVE_2WAY, Replacement.LRU);
+		ShardedCacheSimulator sharded = new ShardedCacheSimulator(info, 100, 4);
+		sharded.getShard(1).attach(new CacheProbe() {
+			@Override
+			public void attached(Cache cache) {
+			}
+			@Override
+			public void accessed(int address, int position, long results) {
+				throw new IllegalArgumentException("Failed shard");
+			}
+		});
+
+		// Many more addresses than fit in the ring of the failed shard
+		int[] trace = Traces.randomTrace(2000000, 0x8000, 5);
+		try {
+			sharded.run(trace, 0, trace.length);
+			fail("The failure of a shard should be reported");
+		} catch (IllegalStateException e) {
+			assertTrue("The failure should be the cause", e.getCause() instanceof IllegalArgumentException);
+		}
+	}
+
+}
@@ -0,0 +1,63 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import memory.StackDistanceAnalyzer;
+import memory.cache.types.CacheFA;
+
+import org.junit.Test;
+
+public class StackDistanceTest {
+
+	@Test
+	public void testSimpleDistances() {
+		// Blocks of 4 bytes: A B A C B A -> distances: cold, cold, 1, cold, 2, 2
+		StackDistanceAnalyzer analyzer = new StackDistanceAnalyzer(4);
+		int memseq[] = {0, 4, 0, 8, 4, 0};
+		for (int address : memseq)
+			analyzer.access(address);
+
+		long histogram[] = analyzer.getHistogram(4);
+		assertTrue("Expected 3 cold misses", analyzer.getColdMisses(4) == 3);
+		assertTrue("Expected one access with distance 1", histogram[1] == 1);
+		assertTrue("Expected two accesses with distance 2 or 3", histogram[2] == 2);
+		assertTrue("A 1 block cache should always miss", analyzer.getHits(4, 4) == 0);
+		assertTrue("A 2 block cache should hit once", analyzer.getHits(4, 8) == 1);
+		assertTrue("A 4 block cache should hit three times", analyzer.getHits(4, 16) == 3);
+	}
+
+	@Test
+	public void testSameAsFullyAssociative() {
+		// Random accesses with some locality (so that distances are spread), long enough to compact the
+		// tree many times. Every power-of-2 size must give the same hits as the LRU CacheFA.
+		int block_sizes[] = {4, 16, 64};
+		int cache_sizes[] = {64, 256, 1024, 4096, 16384};
+		StackDistanceAnalyzer analyzer = new StackDistanceAnalyzer(block_sizes);
+		CacheFA caches[][] = new CacheFA[block_sizes.length][cache_sizes.length];
+		for (int b = 0; b < block_sizes.length; b++)
+			for (int c = 0; c < cache_sizes.length; c++)
+				caches[b][c] = new CacheFA(block_sizes[b], cache_sizes[c], 10);
+
+		Random random = new Random(5);
+		int address = 0;
+		int addresses[] = new int[50000];
+		for (int i = 0; i < addresses.length; i++) {
+			address = (random.nextInt(4) == 0) ? random.nextInt(1 << 16) : (address + random.nextInt(64)) & 0xFFFF;
+			addresses[i] = address;
+		}
+		analyzer.accessBatch(addresses, 0, addresses.length);
+
+		for (int b = 0; b < block_sizes.length; b++) {
+			for (int c = 0; c < cache_sizes.length; c++) {
+				CacheFA cache = caches[b][c];
+				cache.accessBatch(addresses, 0, addresses.length, null);
+				long hits = analyzer.getHits(block_sizes[b], cache_sizes[c]);
+				assertTrue("Wrong hits for " + block_sizes[b] + "b blocks and " + cache_sizes[c] + "b cache: " + hits + " instead of " + cache.getTotalHits(),
+						hits == cache.getTotalHits());
+			}
+		}
+	}
+
+}
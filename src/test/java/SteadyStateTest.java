@@ -0,0 +1,83 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import memory.MemoryHierarchy;
+import memory.cache.Associativity;
+import memory.cache.Cache;
+import memory.cache.CacheInfo;
+import memory.cache.Replacement;
+
+import org.junit.Test;
+
+public class SteadyStateTest {
+
+	private static MemoryHierarchy newHierarchy(Replacement replacement) {
+		CacheInfo L1 = new CacheInfo(16, 256, 10, Associativity.SET_ASSOCIATIVE_2WAY, replacement);
+		CacheInfo L2 = new CacheInfo(32, 2048, 40, Associativity.FULLY_ASSOCIATIVE, replacement);
+		return new MemoryHierarchy(L1, L2, 500);
+	}
+
+	@Test
+	public void testStateHash() {
+		MemoryHierarchy one = newHierarchy(Replacement.LRU);
+		MemoryHierarchy other = newHierarchy(Replacement.LRU);
+		assertTrue("Empty hierarchies should have the same state", one.stateHash() == other.stateHash());
+
+		int memseq[] = {0, 16, 512, 0, 4096, 16};
+		for (int address : memseq) {
+			one.access(address);
+			other.access(address);
+		}
+		assertTrue("Same accesses should give the same state", one.stateHash() == other.stateHash());
+
+		// Same blocks in the caches, but different LRU order
+		other.access(0);
+		assertTrue("Different LRU information should give a different state", one.stateHash() != other.stateHash());
+
+		one.clean();
+		assertTrue("A clean hierarchy should be empty", one.stateHash() == newHierarchy(Replacement.LRU).stateHash());
+	}
+
+	@Test
+	public void testExtrapolation() {
+		// Runs loops until an iteration leaves the same state it found, and extrapolates the rest. The
+		// counters must be the same as running all the iterations.
+		int iterations = 40;
+		int loop_sizes[] = {128, 512, 2048, 8192};
+		for (Replacement replacement : Replacement.values()) {
+			for (int loop_size : loop_sizes) {
+				int addresses[] = new int[loop_size / 8];
+				for (int i = 0; i < addresses.length; i++)
+					addresses[i] = i * 8;
+
+				MemoryHierarchy full = newHierarchy(replacement);
+				for (int i = 0; i < iterations; i++)
+					full.accessBatch(addresses, 0, addresses.length, null);
+
+				MemoryHierarchy fast = newHierarchy(replacement);
+				long lastHash = fast.stateHash();
+				for (int i = 0; i < iterations; i++) {
+					fast.markCounters();
+					fast.accessBatch(addresses, 0, addresses.length, null);
+					long hash = fast.stateHash();
+					if (hash == lastHash) {
+						fast.extrapolateCounters(iterations - 1 - i);
+						break;
+					}
+					lastHash = hash;
+				}
+
+				String loop = replacement + " with a loop of " + loop_size + "b: ";
+				Cache levels[][] = {{full.getL1Cache(), fast.getL1Cache()}, {full.getL2Cache(), fast.getL2Cache()}};
+				for (Cache level[] : levels) {
+					assertTrue(loop + "wrong references", level[0].getTotalReferences() == level[1].getTotalReferences());
+					assertTrue(loop + "wrong misses", level[0].getTotalMisses() == level[1].getTotalMisses());
+				}
+				assertTrue(loop + "wrong main memory accesses",
+						full.getL2Cache().getNextLevel().getTotalReferences() == fast.getL2Cache().getNextLevel().getTotalReferences());
+			}
+		}
+	}
+
+}
@@ -0,0 +1,275 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import memory.MemoryHierarchy;
+import memory.cache.Associativity;
+import memory.cache.Replacement;
+import memory.cache.CacheInfo;
+import memory.trace.CompressedTraceReader;
+import memory.trace.DinTraceParser;
+import memory.trace.FanOutSimulator;
+import memory.trace.HexTraceParser;
+import memory.trace.LackeyTraceParser;
+import memory.trace.MappedTraceReader;
+import memory.trace.RecordingMemorySystem;
+import memory.trace.TextTraceParser;
+import memory.trace.TraceReplay;
+import memory.trace.TraceWriter;
+
+import org.junit.Test;
+
+import processor.Processor;
+
+public class TraceTest {
+
+	private static MemoryHierarchy hierarchy() {
+		CacheInfo L1 = new CacheInfo(16, 0x1000, 10, Associativity.SET_ASSOCIATIVE_4WAY);
+		CacheInfo L2 = new CacheInfo(64, 0x10000, 40, Associativity.DIRECT_MAPPED);
+		return new MemoryHierarchy(L1, L2, 500);
+	}
+
+	@Test
+	public void testMappedReplay() throws IOException {
+		int[] trace = Traces.randomTrace(100000, 0x80000, 13);
+		File file = File.createTempFile("trace", ".bin");
+		file.deleteOnExit();
+		ByteBuffer bytes = ByteBuffer.allocate(trace.length * 4 + 3).order(ByteOrder.LITTLE_ENDIAN);
+		bytes.asIntBuffer().put(trace);
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+			channel.write(bytes);
+		}
+
+		MemoryHierarchy expected = hierarchy();
+		long time = expected.accessBatch(trace, 0, trace.length, null);
+
+		// Windows of several sizes (even ones that are not a whole number of addresses)
+		int[] windows = {MappedTraceReader.DEFAULT_WINDOW, 0x10000, 4000, 1022};
+		for (int window : windows) {
+			MemoryHierarchy memory = hierarchy();
+			try (MappedTraceReader reader = new MappedTraceReader(file, window)) {
+				assertTrue("Trailing bytes should be ignored", reader.getReferences() == trace.length);
+				TraceReplay replay = TraceReplay.run(reader, memory);
+				assertTrue("Window " + window + ": every address should be replayed", replay.references == trace.length);
+				assertTrue("Window " + window + ": the time should match", replay.total_time == time);
+				assertTrue("Window " + window + ": the misses should match",
+						memory.getL2Cache().getTotalMisses() == expected.getL2Cache().getTotalMisses());
+
+				// Rewinding replays the trace again
+				reader.rewind();
+				assertTrue("A rewound trace should be replayed again", TraceReplay.run(reader, memory).references == trace.length);
+			}
+		}
+	}
+
+	private static void checkParsed(TextTraceParser parser, int[] addresses, byte[] operations) throws IOException {
+		int i = 0;
+		IntBuffer block;
+		while ((block = parser.next()) != null) {
+			for (int j = 0; block.hasRemaining(); j++, i++) {
+				assertTrue("Too many references parsed", i < addresses.length);
+				assertTrue("Address " + i + " should be parsed", block.get() == addresses[i]);
+				assertTrue("Operation " + i + " should be parsed", parser.getOperations()[j] == operations[i]);
+			}
+		}
+		assertTrue("Every reference should be parsed", i == addresses.length && parser.getReferences() == i);
+	}
+
+	private static TextTraceParser fromText(String kind, String text) {
+		ReadableByteChannel channel = Channels.newChannel(new ByteArrayInputStream(text.getBytes(StandardCharsets.US_ASCII)));
+		if (kind.equals("din"))
+			return new DinTraceParser(channel);
+		if (kind.equals("lackey"))
+			return new LackeyTraceParser(channel);
+		return new HexTraceParser(channel);
+	}
+
+	@Test
+	public void testTextFormats() throws IOException {
+		String din = "0 408ed4\n1 10013220 extra\r\n2 408ed8\n3 0\n4 0\n\n0 7fffffff";
+		checkParsed(fromText("din", din), new int[] {0x408ed4, 0x10013220, 0x408ed8, 0x7fffffff},
+				new byte[] {TextTraceParser.READ, TextTraceParser.WRITE, TextTraceParser.INSTRUCTION, TextTraceParser.READ});
+
+		String lackey = "==1234== Lackey, an example Valgrind tool\nI  04222cac,3\n L 7ff0001f8,8\n"
+				+ " S 0422cf40,4\n M 0421fa10,4\n==1234== \n";
+		checkParsed(fromText("lackey", lackey), new int[] {0x04222cac, 0xff0001f8, 0x0422cf40, 0x0421fa10},
+				new byte[] {TextTraceParser.INSTRUCTION, TextTraceParser.READ, TextTraceParser.WRITE, TextTraceParser.MODIFY});
+
+		String hex = "# addresses\n0x1A2b\n  ff\n\n0XdeadBEEF\n";
+		checkParsed(fromText("hex", hex), new int[] {0x1a2b, 0xff, 0xdeadbeef},
+				new byte[] {TextTraceParser.READ, TextTraceParser.READ, TextTraceParser.READ});
+
+		try {
+			fromText("din", "0 408ed4\n7 12\n").next();
+			fail("A wrong label should not be parsed");
+		} catch (IOException e) {
+			assertTrue("The error should tell the line", e.getMessage().contains("line 2"));
+		}
+
+		try {
+			fromText("hex", hex).rewind();
+			fail("A trace read from a stream should not be rewound");
+		} catch (IOException e) {
+		}
+	}
+
+	@Test
+	public void testLongTextReplay() throws IOException {
+		// Long enough to need many blocks and many reads of the buffer
+		int[] trace = Traces.randomTrace(200000, 0x80000, 17);
+		StringBuilder text = new StringBuilder();
+		for (int address : trace)
+			text.append(Integer.toHexString(address)).append('\n');
+		File file = File.createTempFile("trace", ".txt");
+		file.deleteOnExit();
+		Files.write(file.toPath(), text.toString().getBytes(StandardCharsets.US_ASCII));
+
+		MemoryHierarchy expected = hierarchy();
+		long time = expected.accessBatch(trace, 0, trace.length, null);
+		MemoryHierarchy memory = hierarchy();
+		try (HexTraceParser parser = new HexTraceParser(file)) {
+			TraceReplay replay = TraceReplay.run(parser, memory);
+			assertTrue("Every address should be replayed", replay.references == trace.length);
+			assertTrue("The time should match", replay.total_time == time);
+
+			parser.rewind();
+			assertTrue("A rewound trace should be replayed again", TraceReplay.run(parser, memory).references == trace.length);
+		}
+	}
+
+	private static int[] readAll(CompressedTraceReader reader, int length) throws IOException {
+		int[] read = new int[length];
+		int i = 0;
+		IntBuffer block;
+		while ((block = reader.next()) != null) {
+			int n = block.remaining();
+			assertTrue("Too many references read", i + n <= length);
+			block.get(read, i, n);
+			i += n;
+		}
+		assertTrue("Every reference should be read", i == length);
+		return read;
+	}
+
+	@Test
+	public void testCompressedTrace() throws IOException {
+		int[] random = Traces.randomTrace(30000, 0x7FFFFFFF, 19);
+		int[] strided = new int[30000];
+		for (int i = 0; i < strided.length; i++)
+			strided[i] = (i % 1000) * 64;
+
+		for (int[] trace : new int[][] {random, strided}) {
+			for (boolean deflate : new boolean[] {false, true}) {
+				String name = (trace == random ? "Random" : "Strided") + (deflate ? ", deflated" : "");
+				File file = File.createTempFile("trace", ".ctr");
+				file.deleteOnExit();
+				try (TraceWriter writer = new TraceWriter(file, deflate, 4096)) {
+					writer.write(trace, 0, 10000);
+					for (int i = 10000; i < trace.length; i++)
+						writer.write(trace[i]);
+				}
+				if (trace == strided)
+					assertTrue(name + ": a strided trace should be small", file.length() < (deflate ? 2000 : trace.length * 3));
+
+				try (CompressedTraceReader reader = new CompressedTraceReader(file)) {
+					assertTrue(name + ": the index should count every reference", reader.getReferences() == trace.length);
+					assertTrue(name + ": the addresses should be read back", Arrays.equals(readAll(reader, trace.length), trace));
+
+					// Seeking into the middle of a block
+					reader.seek(5000);
+					IntBuffer block = reader.next();
+					assertTrue(name + ": seeking should go to the reference", block.get() == trace[5000]);
+					reader.seek(trace.length);
+					IntBuffer end = reader.next();
+					assertTrue(name + ": seeking to the end should leave nothing", end == null || !end.hasRemaining());
+
+					reader.rewind();
+					MemoryHierarchy expected = hierarchy();
+					long time = expected.accessBatch(trace, 0, trace.length, null);
+					assertTrue(name + ": the replay should match", TraceReplay.run(reader, hierarchy()).total_time == time);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testRecording() throws IOException {
+		File file = File.createTempFile("trace", ".ctr");
+		file.deleteOnExit();
+		int max_size = 0x400;
+		int iterations = 20;
+		try (TraceWriter writer = new TraceWriter(file, true)) {
+			new Processor(new RecordingMemorySystem(hierarchy(), writer)).runSimulatedLoopTest(max_size, iterations);
+		}
+
+		// Every iteration of every loop, with none extrapolated
+		int expected = 0;
+		for (int loop_size = 16; loop_size <= max_size; loop_size <<= 1) {
+			for (int loop_step = 4; loop_step <= loop_size >>> 1; loop_step <<= 1)
+				expected += iterations * (loop_size / loop_step);
+		}
+		try (CompressedTraceReader reader = new CompressedTraceReader(file)) {
+			assertTrue("Every reference should be recorded", reader.getReferences() == expected);
+			int[] trace = readAll(reader, expected);
+			for (int i = 0; i < 4 * iterations; i++)
+				assertTrue("The first loop should be recorded in order", trace[i] == (i % 4) * 4);
+		}
+	}
+
+	@Test
+	public void testFanOut() throws IOException {
+		int[] trace = Traces.randomTrace(300000, 0x100000, 23);
+		File file = File.createTempFile("trace", ".ctr");
+		file.deleteOnExit();
+		try (TraceWriter writer = new TraceWriter(file, false, 50000)) {
+			writer.write(trace, 0, trace.length);
+		}
+
+		List<MemoryHierarchy> systems = new ArrayList<MemoryHierarchy>();
+		for (Associativity associativity : Associativity.values()) {
+			for (Replacement replacement : new Replacement[] {Replacement.LRU, Replacement.RANDOM}) {
+				CacheInfo L1 = new CacheInfo(16, 0x1000, 10, associativity, replacement);
+				CacheInfo L2 = new CacheInfo(64, 0x10000, 40, Associativity.DIRECT_MAPPED);
+				systems.add(new MemoryHierarchy(L1, L2, 500));
+			}
+		}
+
+		for (int threads : new int[] {1, 3, 64}) {
+			for (MemoryHierarchy memory : systems)
+				memory.clean();
+			List<FanOutSimulator.Row> table;
+			try (CompressedTraceReader reader = new CompressedTraceReader(file)) {
+				table = new FanOutSimulator(systems, threads).run(reader);
+			}
+			assertTrue("There should be a row per memory system", table.size() == systems.size());
+			for (int i = 0; i < systems.size(); i++) {
+				MemoryHierarchy alone = systems.get(i).emptyCopy();
+				long time = alone.accessBatch(trace, 0, trace.length, null);
+				FanOutSimulator.Row row = table.get(i);
+				String name = threads + " threads, system " + i;
+				assertTrue(name + ": every address should be replayed", row.references == trace.length);
+				assertTrue(name + ": the time should be that of a replay alone", row.total_time == time);
+				assertTrue(name + ": the misses should be those of a replay alone",
+						row.memory.getTotalMisses() == alone.getTotalMisses());
+			}
+		}
+	}
+
+}
@@ -0,0 +1,57 @@
+package tests;
+
+import java.nio.IntBuffer;
+import java.util.Random;
+
+import memory.trace.TraceSource;
+
+/**
+ * Traces shared by the tests.
+ */
+public class Traces {
+
+	/**
+	 * A random trace: mostly a small working set (the first 1/16 of the range), with one access in four all
+	 * over the range.
+	 */
+	public static int[] randomTrace(int length, int range, long seed) {
+		return randomTrace(length, range, 4, seed);
+	}
+
+	/**
+	 * Same as above, with one access in 'far' all over the range.
+	 */
+	public static int[] randomTrace(int length, int range, int far, long seed) {
+		Random random = new Random(seed);
+		int[] trace = new int[length];
+		for (int i = 0; i < length; i++)
+			trace[i] = (random.nextInt(far) == 0) ? random.nextInt(range) : random.nextInt(range >>> 4);
+		return trace;
+	}
+
+	/**
+	 * A trace in an array, given in blocks of 1000 addresses.
+	 */
+	public static TraceSource arrayTrace(final int[] trace) {
+		return new TraceSource() {
+			private int position;
+
+			@Override
+			public IntBuffer next() {
+				if (this.position >= trace.length)
+					return null;
+				int length = Math.min(1000, trace.length - this.position);
+				IntBuffer block = IntBuffer.wrap(trace, this.position, length);
+				this.position += length;
+				return block;
+			}
+			@Override
+			public void rewind() {
+				this.position = 0;
+			}
+			@Override
+			public void close() {
+			}
+		};
+	}
+}